@@ -2,8 +2,10 @@ package com.so.cloudjrb;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // Tarefas periódicas (ex: limpeza dos ids de transferência)
 public class CloudjrbApplication {
 
 	public static void main(String[] args) {
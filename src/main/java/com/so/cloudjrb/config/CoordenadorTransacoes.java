@@ -0,0 +1,97 @@
+package com.so.cloudjrb.config;
+
+import com.so.cloudjrb.service.EscritorAgrupado;
+import org.hibernate.jpa.spi.JpaCompliance;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.hibernate.resource.transaction.backend.jdbc.internal.JdbcResourceLocalTransactionCoordinatorBuilderImpl;
+import org.hibernate.resource.transaction.spi.DdlTransactionIsolator;
+import org.hibernate.resource.transaction.spi.IsolationDelegate;
+import org.hibernate.resource.transaction.spi.SynchronizationRegistry;
+import org.hibernate.resource.transaction.spi.TransactionCoordinator;
+import org.hibernate.resource.transaction.spi.TransactionCoordinatorBuilder;
+import org.hibernate.resource.transaction.spi.TransactionCoordinatorOwner;
+import org.hibernate.resource.transaction.spi.TransactionObserver;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+import org.hibernate.tool.schema.internal.exec.JdbcContext;
+
+/**
+ * Transações JDBC do Hibernate (as padrão) com o mesmo ajuste do TransacaoConfig.
+ *
+ * Quando uma operação do JPA falha (ex: o flush bate numa constraint), o próprio
+ * Hibernate marca a transação para rollback, e o commit vira rollback. Dentro de
+ * uma operação do EscritorAgrupado quem desfaz é o savepoint dela: a marca é
+ * absorvida e o grupo segue para o commit com as vizinhas. Fora de uma operação do
+ * grupo o comportamento é o padrão.
+ *
+ * Registrado em 'hibernate.transaction.coordinator_class'.
+ */
+public class CoordenadorTransacoes implements TransactionCoordinatorBuilder {
+
+    private final TransactionCoordinatorBuilder padrao = JdbcResourceLocalTransactionCoordinatorBuilderImpl.INSTANCE;
+
+    @Override
+    public TransactionCoordinator buildTransactionCoordinator(TransactionCoordinatorOwner owner, Options options) {
+        return new Coordenador(padrao.buildTransactionCoordinator(owner, options));
+    }
+
+    @Override
+    public boolean isJta() {
+        return padrao.isJta();
+    }
+
+    @Override
+    public PhysicalConnectionHandlingMode getDefaultConnectionHandlingMode() {
+        return padrao.getDefaultConnectionHandlingMode();
+    }
+
+    @Override
+    public DdlTransactionIsolator buildDdlTransactionIsolator(JdbcContext jdbcContext) {
+        return padrao.buildDdlTransactionIsolator(jdbcContext);
+    }
+
+    private final class Coordenador implements TransactionCoordinator {
+
+        private final TransactionCoordinator delegado;
+
+        Coordenador(TransactionCoordinator delegado) {
+            this.delegado = delegado;
+        }
+
+        @Override
+        public TransactionDriver getTransactionDriverControl() {
+            return new Driver(delegado.getTransactionDriverControl());
+        }
+
+        @Override
+        public TransactionCoordinatorBuilder getTransactionCoordinatorBuilder() {
+            return CoordenadorTransacoes.this;
+        }
+
+        @Override public SynchronizationRegistry getLocalSynchronizations() { return delegado.getLocalSynchronizations(); }
+        @Override public JpaCompliance getJpaCompliance() { return delegado.getJpaCompliance(); }
+        @Override public void explicitJoin() { delegado.explicitJoin(); }
+        @Override public boolean isJoined() { return delegado.isJoined(); }
+        @Override public void pulse() { delegado.pulse(); }
+        @Override public boolean isActive() { return delegado.isActive(); }
+        @Override public IsolationDelegate createIsolationDelegate() { return delegado.createIsolationDelegate(); }
+        @Override public void addObserver(TransactionObserver observer) { delegado.addObserver(observer); }
+        @Override public void removeObserver(TransactionObserver observer) { delegado.removeObserver(observer); }
+        @Override public void setTimeOut(int seconds) { delegado.setTimeOut(seconds); }
+        @Override public int getTimeOut() { return delegado.getTimeOut(); }
+        @Override public void invalidate() { delegado.invalidate(); }
+    }
+
+    private record Driver(TransactionCoordinator.TransactionDriver delegado) implements TransactionCoordinator.TransactionDriver {
+
+        @Override
+        public void markRollbackOnly() {
+            if (!EscritorAgrupado.absorverRollback()) delegado.markRollbackOnly();
+        }
+
+        @Override public void begin() { delegado.begin(); }
+        @Override public void commit() { delegado.commit(); }
+        @Override public void rollback() { delegado.rollback(); }
+        @Override public TransactionStatus getStatus() { return delegado.getStatus(); }
+        @Override public boolean isActive(boolean isMarkedRollbackConsideredActive) { return delegado.isActive(isMarkedRollbackConsideredActive); }
+    }
+}
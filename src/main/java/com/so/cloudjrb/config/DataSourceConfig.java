@@ -0,0 +1,158 @@
+package com.so.cloudjrb.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Acesso ao SQLite em modo WAL: uma única conexão de escrita (o SQLite só aceita
+ * um escritor por vez) e um pool de conexões somente leitura. No WAL, leitores
+ * não bloqueiam o escritor nem são bloqueados por ele.
+ *
+ * Cada transação vai para um dos pools conforme o seu 'readOnly'
+ * (@Transactional(readOnly = true) -> leitura; o resto -> escrita). Sem transação
+ * (ex: criação do schema pelo Hibernate), a conexão é a de escrita.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    private static final String ESCRITA = "escrita";
+    private static final String LEITURA = "leitura";
+
+    // Pools de uma conexão só: a de escrita (um escritor por vez) e a das sequências
+    private static final int CONEXOES_ESCRITA = 1;
+    private static final int CONEXOES_SEQUENCIAS = 1;
+
+    // Conexões somente leitura (a de escrita é sempre uma só)
+    @Value("${app.datasource.leitores:4}")
+    private int leitores;
+
+    // NORMAL: no WAL, só o checkpoint faz fsync; um commit não se perde por crash do processo
+    @Value("${app.datasource.synchronous:NORMAL}")
+    private String synchronous;
+
+    // Páginas em cache por conexão; negativo = em KiB (padrão do SQLite: -2000)
+    @Value("${app.datasource.cache-size:-20000}")
+    private int cacheSize;
+
+    // Bytes do arquivo lidos via mmap (0 desliga)
+    @Value("${app.datasource.mmap-size:268435456}")
+    private long mmapSize;
+
+    // Quanto tempo (ms) uma conexão espera por um lock do banco antes de falhar
+    @Value("${app.datasource.busy-timeout-ms:5000}")
+    private int busyTimeoutMs;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean threadsVirtuais;
+
+    // Arquivo das sequências (vazio = o do banco com o sufixo '-sequencias')
+    @Value("${app.datasource.sequencias-url:}")
+    private String sequenciasUrl;
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource escritaDataSource(DataSourceProperties properties) {
+        SQLiteConfig config = pragmas();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL); // Persistente: fica gravado no arquivo
+        return pool("sqlite-escrita", properties.determineUrl(), config, CONEXOES_ESCRITA, false);
+    }
+
+    // Depois da escrita: é ela quem cria o arquivo e liga o WAL
+    @Bean(destroyMethod = "close")
+    @DependsOn("escritaDataSource")
+    public HikariDataSource leituraDataSource(DataSourceProperties properties) {
+        SQLiteConfig config = pragmas();
+        config.setReadOnly(true);
+        return pool("sqlite-leitura", properties.determineUrl(), config, leitoresEfetivos(), true);
+    }
+
+    /**
+     * Sequências (ReservaSequencias): outro arquivo, em autocommit. No arquivo
+     * principal a reserva esperaria o lock da transação de quem reserva.
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource sequenciasDataSource(DataSourceProperties properties) {
+        SQLiteConfig config = pragmas();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        String url = sequenciasUrl.isBlank() ? properties.determineUrl() + "-sequencias" : sequenciasUrl;
+        return pool("sqlite-sequencias", url, config, CONEXOES_SEQUENCIAS, false);
+    }
+
+    /**
+     * Com threads virtuais, cada chamada ao driver do SQLite prende a thread
+     * virtual à sua carrier (métodos synchronized em volta de código nativo,
+     * inclusive a espera do busy_timeout). Se todas as conexões estiverem em uso
+     * ao mesmo tempo, é preciso sobrar carrier para o resto da aplicação: o total
+     * de conexões (leitura + escrita + sequências) fica abaixo do número de carriers.
+     * Quem não consegue conexão espera no pool, o que não prende a carrier.
+     */
+    private int leitoresEfetivos() {
+        if (!threadsVirtuais) return leitores;
+        int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        // Uma carrier por conexão dos outros pools e uma livre
+        int maximo = Math.max(1, carriers - CONEXOES_ESCRITA - CONEXOES_SEQUENCIAS - 1);
+        if (leitores <= maximo) return leitores;
+        System.out.println("[DATASOURCE] Threads virtuais: " + maximo + " conexões de leitura em vez de "
+                + leitores + " (" + carriers + " carriers).");
+        return maximo;
+    }
+
+    /**
+     * DataSource usado pelo JPA. O proxy 'lazy' só pega a conexão real no primeiro
+     * comando SQL, quando o 'readOnly' da transação já está definido.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("escritaDataSource") DataSource escrita,
+                                 @Qualifier("leituraDataSource") DataSource leitura) {
+        AbstractRoutingDataSource roteador = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? LEITURA : ESCRITA;
+            }
+        };
+        roteador.setTargetDataSources(Map.of(ESCRITA, escrita, LEITURA, leitura));
+        roteador.setDefaultTargetDataSource(escrita);
+        roteador.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(roteador);
+    }
+
+    private SQLiteConfig pragmas() {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(synchronous.toUpperCase()));
+        config.setCacheSize(cacheSize);
+        config.setBusyTimeout(busyTimeoutMs);
+        return config;
+    }
+
+    private HikariDataSource pool(String nome, String url, SQLiteConfig pragmas, int tamanho, boolean somenteLeitura) {
+        SQLiteDataSource sqlite = new SQLiteDataSource(pragmas);
+        sqlite.setUrl(url);
+
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName(nome);
+        hikari.setDataSource(sqlite);
+        hikari.setMaximumPoolSize(tamanho);
+        hikari.setMinimumIdle(tamanho);
+        hikari.setReadOnly(somenteLeitura); // Deve bater com o modo de abertura do arquivo
+        hikari.setConnectionInitSql("PRAGMA mmap_size=" + mmapSize);
+        // Conexões somente leitura não podem criar o arquivo: não falha se ele ainda não existir
+        if (somenteLeitura) hikari.setInitializationFailTimeout(-1);
+        return new HikariDataSource(hikari);
+    }
+}
@@ -0,0 +1,31 @@
+package com.so.cloudjrb.config;
+
+import org.hibernate.community.dialect.SQLiteDialect;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.spi.SQLExceptionConversionDelegate;
+import org.hibernate.internal.util.JdbcExceptionHelper;
+
+/**
+ * Dialeto do SQLite que reconhece violação de constraint (chave primária, unique,
+ * not null...). O driver não preenche o SQLState e o dialeto da comunidade não
+ * trata o código SQLITE_CONSTRAINT: sem isto a violação chega como erro genérico
+ * (JpaSystemException) e não como DataIntegrityViolationException, que é o que
+ * quem grava ids de transferência espera para reconhecer um id repetido.
+ */
+public class DialetoSQLite extends SQLiteDialect {
+
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    @Override
+    public SQLExceptionConversionDelegate buildSQLExceptionConversionDelegate() {
+        SQLExceptionConversionDelegate padrao = super.buildSQLExceptionConversionDelegate();
+        return (sqlException, message, sql) -> {
+            // Códigos estendidos (ex: SQLITE_CONSTRAINT_PRIMARYKEY) trazem o primário no byte baixo
+            if ((JdbcExceptionHelper.extractErrorCode(sqlException) & 0xFF) == SQLITE_CONSTRAINT) {
+                String constraint = getViolatedConstraintNameExtractor().extractConstraintName(sqlException);
+                return new ConstraintViolationException(message, sqlException, sql, constraint);
+            }
+            return padrao != null ? padrao.convert(sqlException, message, sql) : null;
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package com.so.cloudjrb.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca operações de escrita que são aplicadas pelo escritor único, com commit
+ * em grupo junto de outras operações (ver EscritorAgrupado e EscritaAgrupadaAspect).
+ * Quem chama continua recebendo o resultado ou a exceção da própria operação.
+ *
+ * O método pode rodar mais de uma vez (commit do grupo falhou, @RetryOnConflict):
+ * efeitos fora do banco (cache, tokens, comprovantes, publicações) devem ser
+ * registrados como afterCommit da transação, nunca executados direto.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EscritaAgrupada {
+}
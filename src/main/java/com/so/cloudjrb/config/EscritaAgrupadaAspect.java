@@ -0,0 +1,38 @@
+package com.so.cloudjrb.config;
+
+import com.so.cloudjrb.service.EscritorAgrupado;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Desvia os métodos @EscritaAgrupada para a thread do EscritorAgrupado.
+ *
+ * Roda dentro do @RetryOnConflict (uma nova tentativa volta para a fila) e fora
+ * do @Transactional, que então abre/participa da transação do grupo na thread
+ * do escritor.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnExpression(EscritorAgrupado.CONDICAO)
+public class EscritaAgrupadaAspect {
+
+    @Autowired
+    private EscritorAgrupado escritor;
+
+    @Around("@annotation(com.so.cloudjrb.config.EscritaAgrupada)")
+    public Object agrupar(ProceedingJoinPoint pjp) throws Throwable {
+        // Já no escritor (chamada aninhada) ou dentro de outra transação: segue direto
+        if (escritor.naThreadDeEscrita() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return pjp.proceed();
+        }
+        return escritor.executar(pjp::proceed);
+    }
+}
@@ -0,0 +1,169 @@
+package com.so.cloudjrb.config;
+
+import com.so.cloudjrb.model.TipoMovimentacao;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Converte a tabela 'movimentacoes' do formato antigo (tipo em texto livre,
+ * 'data_hora' formatada, valor em reais) para o compacto (ver Movimentacao):
+ * código do tipo, instante em epoch ms, valor em centavos, contraparte e detalhe.
+ *
+ * Roda antes do JPA subir (como o Flyway/Liquibase fariam), numa só transação na
+ * conexão de escrita: ou a tabela inteira é convertida, ou nada muda. Banco novo
+ * ou já convertido: não faz nada.
+ *
+ * Linhas cuja data não pode ser lida ficam com instante 0 (01/01/1970, no começo do
+ * extrato); a quantidade e os primeiros ids vão para o log, para correção manual.
+ *
+ * Com spring.jpa.hibernate.ddl-auto=create-drop (ou create) o Hibernate recria as
+ * tabelas logo depois e a tabela convertida se perde: em produção use update ou none.
+ */
+@Component
+public class MigracaoMovimentacoes {
+
+    private static final DateTimeFormatter DATA_HORA_ANTIGA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    private static final int LOTE = 1000;
+    private static final int IDS_NO_LOG = 20;
+
+    /** O EntityManagerFactory (e com ele o Hibernate) só é criado depois da migração. */
+    @Component
+    static class AntesDoJpa extends EntityManagerFactoryDependsOnPostProcessor {
+        AntesDoJpa() {
+            super("migracaoMovimentacoes");
+        }
+    }
+
+    @Autowired
+    @Qualifier("escritaDataSource")
+    private DataSource dataSource;
+
+    @PostConstruct
+    void migrar() throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            Set<String> colunas = colunas(con);
+            if (!colunas.contains("data_hora")) return; // Tabela inexistente ou já no formato novo
+
+            System.out.println("[MIGRACAO] Convertendo 'movimentacoes' para o formato compacto...");
+            con.setAutoCommit(false);
+            try (Statement st = con.createStatement()) {
+                if (!colunas.contains("codigo")) st.execute("alter table movimentacoes add column codigo integer not null default 0");
+                if (!colunas.contains("instante_ms")) st.execute("alter table movimentacoes add column instante_ms bigint not null default 0");
+                if (!colunas.contains("valor_centavos")) st.execute("alter table movimentacoes add column valor_centavos bigint not null default 0");
+                if (!colunas.contains("contraparte")) st.execute("alter table movimentacoes add column contraparte varchar(14)");
+                if (!colunas.contains("detalhe")) st.execute("alter table movimentacoes add column detalhe varchar(255)");
+
+                long convertidas = converterLinhas(con, colunas.contains("instante"));
+
+                // Colunas antigas (e o índice sobre 'instante') deixam de existir
+                st.execute("drop index if exists idx_mov_conta_instante");
+                st.execute("create index if not exists idx_mov_conta_instante_ms on movimentacoes (account_cpf, instante_ms)");
+                for (String antiga : new String[] {"tipo", "data_hora", "instante", "valor"}) {
+                    if (colunas.contains(antiga)) st.execute("alter table movimentacoes drop column " + antiga);
+                }
+                con.commit();
+                System.out.println("[MIGRACAO] " + convertidas + " movimentação(ões) convertida(s).");
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Lê as linhas antigas em lotes (cursor por id) e grava as colunas novas
+    // ('instante' só existe nas versões que já filtravam o extrato por período)
+    private long converterLinhas(Connection con, boolean temInstante) throws SQLException {
+        String selecao = "select id, tipo, data_hora, " + (temInstante ? "instante" : "null as instante")
+                + ", valor from movimentacoes where id > ? order by id limit " + LOTE;
+        String atualizacao = "update movimentacoes set codigo = ?, instante_ms = ?, valor_centavos = ?, "
+                + "contraparte = ?, detalhe = ? where id = ?";
+        long total = 0;
+        long semData = 0;
+        List<Long> idsSemData = new ArrayList<>();
+        long cursor = Long.MIN_VALUE;
+        try (PreparedStatement sel = con.prepareStatement(selecao);
+             PreparedStatement upd = con.prepareStatement(atualizacao)) {
+            while (true) {
+                sel.setLong(1, cursor);
+                int lidas = 0;
+                try (ResultSet rs = sel.executeQuery()) {
+                    while (rs.next()) {
+                        cursor = rs.getLong("id");
+                        TipoMovimentacao.Decomposto d = TipoMovimentacao.decompor(rs.getString("tipo"));
+                        upd.setInt(1, d.tipo().codigo());
+                        Long instante = instante(rs);
+                        if (instante == null) {
+                            semData++;
+                            if (idsSemData.size() < IDS_NO_LOG) idsSemData.add(cursor);
+                        }
+                        upd.setLong(2, instante != null ? instante : 0L);
+                        upd.setLong(3, Math.round(rs.getDouble("valor") * 100)); // Reais -> centavos
+                        upd.setObject(4, d.contraparte(), Types.VARCHAR);
+                        upd.setObject(5, d.detalhe(), Types.VARCHAR);
+                        upd.setLong(6, cursor);
+                        upd.addBatch();
+                        lidas++;
+                    }
+                }
+                if (lidas == 0) {
+                    if (semData > 0) {
+                        System.err.println("[MIGRACAO] " + semData + " movimentação(ões) com data ilegível, gravada(s)"
+                                + " com instante 0 (ids" + (semData > idsSemData.size() ? ", primeiros" : "")
+                                + ": " + idsSemData + ")");
+                    }
+                    return total;
+                }
+                upd.executeBatch();
+                total += lidas;
+            }
+        }
+    }
+
+    // 'instante' (quando existir) ou o texto 'data_hora', no fuso do servidor; null se nenhum for legível
+    private static Long instante(ResultSet rs) throws SQLException {
+        try {
+            Timestamp instante = rs.getTimestamp("instante");
+            if (instante != null) return instante.getTime();
+        } catch (SQLException e) {
+            // Valor em formato que o driver não reconhece: usa 'data_hora'
+        }
+        String dataHora = rs.getString("data_hora");
+        if (dataHora == null) return null;
+        try {
+            return LocalDateTime.parse(dataHora, DATA_HORA_ANTIGA).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Set<String> colunas(Connection con) throws SQLException {
+        Set<String> colunas = new HashSet<>();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("select name from pragma_table_info('movimentacoes')")) {
+            while (rs.next()) colunas.add(rs.getString(1));
+        }
+        return colunas;
+    }
+}
@@ -0,0 +1,84 @@
+package com.so.cloudjrb.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.OptimisticLockException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Repete os métodos @RetryOnConflict que falham por conflito de concorrência.
+ *
+ * Roda antes (por fora) do @Transactional, então cada tentativa é uma transação
+ * nova, que relê a conta já com a versão atualizada. A espera entre tentativas é
+ * exponencial com jitter, para que as transações em conflito não colidam de novo.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class OptimisticRetryAspect {
+
+    @Value("${app.concorrencia.max-tentativas:5}")
+    private int maxTentativas;
+
+    @Value("${app.concorrencia.espera-base-ms:10}")
+    private long esperaBaseMs;
+
+    @Value("${app.concorrencia.espera-max-ms:200}")
+    private long esperaMaxMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter conflitos;
+    private Counter retentativas;
+    private Counter esgotadas;
+
+    @PostConstruct
+    void iniciar() {
+        conflitos = meterRegistry.counter("bank.concorrencia.conflitos");
+        retentativas = meterRegistry.counter("bank.concorrencia.retentativas");
+        esgotadas = meterRegistry.counter("bank.concorrencia.esgotadas");
+    }
+
+    @Around("@annotation(com.so.cloudjrb.config.RetryOnConflict)")
+    public Object retentar(ProceedingJoinPoint pjp) throws Throwable {
+        // Chamada dentro de outra transação: quem repete é a transação de fora
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return pjp.proceed();
+        }
+
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                return pjp.proceed();
+            } catch (ConcurrencyFailureException | OptimisticLockException e) {
+                conflitos.increment();
+                if (tentativa >= maxTentativas) {
+                    esgotadas.increment();
+                    System.err.println("[CONCORRÊNCIA] " + pjp.getSignature().toShortString() +
+                            " falhou após " + tentativa + " tentativas: " + e.getMessage());
+                    throw e;
+                }
+                retentativas.increment();
+                Thread.sleep(espera(tentativa));
+            }
+        }
+    }
+
+    // "Full jitter": sorteia entre 0 e o teto exponencial da tentativa
+    private long espera(int tentativa) {
+        long teto = Math.min(esperaMaxMs, esperaBaseMs << Math.min(tentativa, 16));
+        return ThreadLocalRandom.current().nextLong(teto + 1);
+    }
+}
@@ -1,22 +1,71 @@
 package com.so.cloudjrb.config;
 
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig {
 
     // Define um nome padrão e estático para a nossa fila de transferências
     public static final String QUEUE_NAME = "transferencias.queue";
 
+    // "rabbit" (padrão) ou "local": sem broker, aplicadas no processo (TransferenciaLocal)
+    public static final String MODO = "app.transferencias.modo";
+
+    // Propriedade que liga o consumo em lote (TransferenciaLoteConsumer)
+    public static final String LOTE_HABILITADO = "app.transferencias.lote.habilitado";
+
+    // Modo particionado: K filas "transferencias.queue.<n>" ligadas a esta exchange,
+    // com a partição escolhida pelo hash do CPF de origem
+    public static final String EXCHANGE_PARTICOES = "transferencias.exchange";
+    public static final String PARTICOES = "app.transferencias.particoes";
+
+    public static String filaParticao(int particao) {
+        return QUEUE_NAME + "." + particao;
+    }
+
     @Bean
     public Queue transferenciasQueue() {
         // O "true" significa que a fila é "durável" (sobrevive a reinícios do RabbitMQ)
         return new Queue(QUEUE_NAME, true);
     }
+
+    /**
+     * Filas particionadas (app.transferencias.particoes > 0). Cada fila tem
+     * "single active consumer": mesmo com várias instâncias da aplicação, só um
+     * consumidor por vez recebe daquela partição, preservando a ordem por conta.
+     */
+    @Bean
+    @ConditionalOnExpression("${" + PARTICOES + ":0} > 0")
+    public Declarables transferenciasParticoes(@Value("${" + PARTICOES + "}") int particoes) {
+        DirectExchange exchange = new DirectExchange(EXCHANGE_PARTICOES, true, false);
+        List<Declarable> declaraveis = new ArrayList<>();
+        declaraveis.add(exchange);
+        for (int i = 0; i < particoes; i++) {
+            Queue fila = QueueBuilder.durable(filaParticao(i)).singleActiveConsumer().build();
+            declaraveis.add(fila);
+            declaraveis.add(BindingBuilder.bind(fila).to(exchange).with(String.valueOf(i)));
+        }
+        return new Declarables(declaraveis);
+    }
+
     // --- INÍCIO DA CORREÇÃO ---
 
     /**
@@ -28,4 +77,26 @@ public class RabbitMQConfig {
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
     }
-}
\ No newline at end of file
+
+    /**
+     * Fábrica de listeners em lote: entrega até 'tamanho' mensagens de uma vez,
+     * ou o que chegou dentro de 'linger-ms', ao TransferenciaLoteConsumer.
+     */
+    @Bean
+    @ConditionalOnProperty(name = LOTE_HABILITADO, havingValue = "true")
+    public SimpleRabbitListenerContainerFactory transferenciasLoteFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${app.transferencias.lote.tamanho:50}") int tamanho,
+            @Value("${app.transferencias.lote.linger-ms:200}") long lingerMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(tamanho);
+        factory.setBatchReceiveTimeout(lingerMs);
+        // O prefetch precisa cobrir o lote inteiro
+        factory.setPrefetchCount(tamanho);
+        return factory;
+    }
+}
@@ -0,0 +1,16 @@
+package com.so.cloudjrb.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca operações de escrita que devem ser repetidas quando a transação falha
+ * por conflito de concorrência (ex: versão da conta alterada por outra transação).
+ * A repetição envolve a transação inteira; ver OptimisticRetryAspect.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+}
@@ -0,0 +1,115 @@
+package com.so.cloudjrb.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.so.cloudjrb.exception.AcessoNegadoException;
+import com.so.cloudjrb.service.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Valida o token de sessão (Authorization: Bearer ...) das chamadas à API, só em
+ * memória (TokenService), sem consultar a conta. Em /api/contas/{cpf}/..., o CPF
+ * do caminho tem de ser o do token.
+ *
+ * Com app.token.obrigatorio=false (padrão, enquanto os clientes não enviam o token),
+ * chamadas sem token passam; um token inválido é sempre recusado.
+ */
+@Component
+public class TokenFilter extends OncePerRequestFilter {
+
+    /** Atributo da requisição com o CPF do token válido. */
+    public static final String ATRIBUTO_CPF = "sessao.cpf";
+
+    private static final String PREFIXO_CONTAS = "/api/contas/";
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.token.obrigatorio:false}")
+    private boolean obrigatorio;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String caminho = request.getRequestURI().substring(request.getContextPath().length());
+        if (!caminho.startsWith("/api/")) return true; // SPA e arquivos estáticos
+        if (HttpMethod.OPTIONS.matches(request.getMethod())) return true; // Preflight CORS
+        // Login e abertura de conta ainda não têm token
+        return caminho.equals("/api/login")
+                || (caminho.equals("/api/contas") && HttpMethod.POST.matches(request.getMethod()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String cabecalho = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (cabecalho == null || !cabecalho.startsWith("Bearer ")) {
+            if (obrigatorio) {
+                recusar(response, HttpStatus.UNAUTHORIZED, "Sessão ausente. Faça login.");
+                return;
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+
+        TokenService.Sessao sessao = tokenService.validar(cabecalho.substring("Bearer ".length()).trim());
+        if (sessao == null) {
+            recusar(response, HttpStatus.UNAUTHORIZED, "Sessão inválida ou expirada. Faça login novamente.");
+            return;
+        }
+
+        String cpfDoCaminho = cpfDoCaminho(request);
+        if (cpfDoCaminho != null && !cpfDoCaminho.equals(sessao.cpf())) {
+            recusar(response, HttpStatus.FORBIDDEN, "Acesso negado a esta conta.");
+            return;
+        }
+        request.setAttribute(ATRIBUTO_CPF, sessao.cpf());
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Para operações cujo CPF vem no corpo (ex: transferência): recusa se houver
+     * sessão e ela for de outra conta.
+     */
+    public static void verificarTitular(HttpServletRequest request, String cpf) {
+        Object cpfSessao = request.getAttribute(ATRIBUTO_CPF);
+        if (cpfSessao != null && !cpfSessao.equals(cpf)) {
+            throw new AcessoNegadoException("Acesso negado a esta conta.");
+        }
+    }
+
+    // "/api/contas/{cpf}" ou "/api/contas/{cpf}/..." (exceto "/api/contas/transferir")
+    private static String cpfDoCaminho(HttpServletRequest request) {
+        String caminho = request.getRequestURI().substring(request.getContextPath().length());
+        if (!caminho.startsWith(PREFIXO_CONTAS)) return null;
+        String resto = caminho.substring(PREFIXO_CONTAS.length());
+        int barra = resto.indexOf('/');
+        String segmento = barra < 0 ? resto : resto.substring(0, barra);
+        if (segmento.isEmpty() || segmento.equals("transferir")) return null;
+        return UriUtils.decode(segmento, StandardCharsets.UTF_8);
+    }
+
+    private void recusar(HttpServletResponse response, HttpStatus status, String mensagem) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Map.of("erro", mensagem));
+    }
+}
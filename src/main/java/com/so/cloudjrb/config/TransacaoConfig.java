@@ -0,0 +1,36 @@
+package com.so.cloudjrb.config;
+
+import com.so.cloudjrb.service.EscritorAgrupado;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Gerenciador de transações da aplicação (no lugar do padrão do Spring Boot).
+ *
+ * É o mesmo com ou sem o EscritorAgrupado ligado: o @Transactional das operações
+ * do escritor participa da transação do grupo por meio dele, e é ele quem marca a
+ * transação para rollback quando um participante falha; por isso não basta um
+ * gerenciador só para o escritor. Fora de uma operação do grupo o comportamento
+ * é o padrão.
+ */
+@Configuration
+public class TransacaoConfig {
+
+    @Bean
+    static PlatformTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager tm = new JpaTransactionManager() {
+            @Override
+            protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+                if (!EscritorAgrupado.absorverRollback()) super.doSetRollbackOnly(status);
+            }
+        };
+        customizers.ifAvailable(c -> c.customize((TransactionManager) tm));
+        return tm;
+    }
+}
@@ -0,0 +1,117 @@
+package com.so.cloudjrb.config;
+
+import com.so.cloudjrb.dto.TransferRequest;
+import com.so.cloudjrb.service.TransferenciaConsumer;
+import com.so.cloudjrb.service.TransferenciaLoteConsumer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consumidores do modo particionado: um listener por fila de partição, cada um
+ * com um único consumidor (ordem garantida por CPF de origem). As partições
+ * rodam em paralelo, então a vazão cresce com o número de partições. Créditos
+ * para uma mesma conta de destino podem concorrer entre partições; ver
+ * TransferenciaPublisher.
+ *
+ * O trabalho é delegado ao consumidor configurado (TransferenciaConsumer ou,
+ * no modo em lote, TransferenciaLoteConsumer).
+ */
+@Configuration
+@ConditionalOnExpression("${" + RabbitMQConfig.PARTICOES + ":0} > 0")
+public class TransferenciaParticoesConfig implements RabbitListenerConfigurer {
+
+    @Value("${" + RabbitMQConfig.PARTICOES + "}")
+    private int particoes;
+
+    @Autowired
+    private MessageConverter jsonMessageConverter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+
+    @Autowired
+    private ObjectProvider<TransferenciaConsumer> consumidor;
+
+    @Autowired
+    private ObjectProvider<TransferenciaLoteConsumer> consumidorLote;
+
+    @Autowired
+    @Qualifier("rabbitListenerContainerFactory")
+    private SimpleRabbitListenerContainerFactory fabricaPadrao;
+
+    @Autowired(required = false)
+    @Qualifier("transferenciasLoteFactory")
+    private SimpleRabbitListenerContainerFactory fabricaLote;
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        boolean emLote = fabricaLote != null;
+        for (int i = 0; i < particoes; i++) {
+            String fila = RabbitMQConfig.filaParticao(i);
+            String tag = String.valueOf(i);
+            Counter processadas = meterRegistry.counter("transferencias.particao.processadas", "particao", tag);
+
+            // Lag = mensagens prontas na fila da partição (consultado a cada leitura da métrica)
+            Gauge.builder("transferencias.particao.lag", amqpAdmin, admin -> mensagensNaFila(admin, fila))
+                    .tag("particao", tag)
+                    .register(meterRegistry);
+
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId("transferencias-particao-" + i);
+            endpoint.setQueueNames(fila);
+            endpoint.setConcurrency("1");
+            endpoint.setBatchListener(emLote);
+            endpoint.setMessageListener(new MessageListener() {
+                @Override
+                public void onMessage(Message message) {
+                    consumidor.getObject().processarTransferencia(converter(message));
+                    processadas.increment();
+                }
+
+                @Override
+                public void onMessageBatch(List<Message> messages) {
+                    List<TransferRequest> lote = new ArrayList<>(messages.size());
+                    for (Message m : messages) lote.add(converter(m));
+                    consumidorLote.getObject().processarLote(lote);
+                    processadas.increment(lote.size());
+                }
+            });
+            registrar.registerEndpoint(endpoint, emLote ? fabricaLote : fabricaPadrao);
+        }
+    }
+
+    private TransferRequest converter(Message message) {
+        return (TransferRequest) jsonMessageConverter.fromMessage(message);
+    }
+
+    private static double mensagensNaFila(AmqpAdmin admin, String fila) {
+        try {
+            QueueInformation info = admin.getQueueInfo(fila);
+            return info != null ? info.getMessageCount() : Double.NaN;
+        } catch (Exception e) {
+            return Double.NaN; // Broker indisponível
+        }
+    }
+}
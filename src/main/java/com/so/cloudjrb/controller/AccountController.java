@@ -1,27 +1,27 @@
 package com.so.cloudjrb.controller;
 
+import com.so.cloudjrb.config.TokenFilter;
+import com.so.cloudjrb.dto.ContaResponse;
+import com.so.cloudjrb.dto.ExtratoResponse;
 import com.so.cloudjrb.dto.PagamentoRequest;
 import com.so.cloudjrb.dto.TransferRequest;
 import com.so.cloudjrb.dto.ValorRequest;
 import com.so.cloudjrb.model.Account;
-import com.so.cloudjrb.model.ContaCorrente;
-import com.so.cloudjrb.model.ContaPoupanca;
+import com.so.cloudjrb.model.Dinheiro;
 import com.so.cloudjrb.service.BankService;
 import com.so.cloudjrb.service.ExtratoPdfService;
+import com.so.cloudjrb.service.ExtratoService;
+import com.so.cloudjrb.service.TransferenciaPublisher;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Autowired;
-import com.so.cloudjrb.config.RabbitMQConfig;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 
 import java.util.HashMap; // Importação chave para a correção
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
 
 /**
@@ -36,20 +36,22 @@ public class AccountController {
     @Autowired
     private BankService bankService;
 
+    @Autowired
+    private ExtratoService extratoService;
+
     @Autowired
     private ExtratoPdfService extratoPdfService;
-    // Injeta o template do RabbitMQ
+    // Publica as transferências na fila (ou na partição) do RabbitMQ
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private TransferenciaPublisher transferenciaPublisher;
 
     /**
      * Busca os detalhes completos de uma conta pelo CPF.
      * (Migrado de: GET /api/contas/:cpf)
      */
     @GetMapping("/{cpf}")
-    public ResponseEntity<Account> getAccount(@PathVariable String cpf) {
-        Account conta = bankService.buscarConta(cpf);
-        return ResponseEntity.ok(conta);
+    public ResponseEntity<ContaResponse> getAccount(@PathVariable String cpf) {
+        return ResponseEntity.ok(bankService.consultarConta(cpf));
     }
 
     /**
@@ -58,26 +60,27 @@ public class AccountController {
      */
     @GetMapping("/{cpf}/saldo")
     public ResponseEntity<Map<String, Object>> getSaldo(@PathVariable String cpf) {
-        Account conta = bankService.buscarConta(cpf);
+        ContaResponse conta = bankService.consultarConta(cpf);
 
         // Usamos um HashMap explícito para evitar erros de tipo
         Map<String, Object> payload = new HashMap<>();
 
-        double saldo = conta.getSaldo();
-        double saldoDisponivel = saldo;
+        // Contas em centavos; a resposta continua em reais
+        long saldo = conta.saldo();
+        long saldoDisponivel = saldo;
 
-        if (conta instanceof ContaCorrente cc) {
-            double limite = cc.getLimiteChequeEspecial();
+        if (conta.limiteChequeEspecial() != null) {
+            long limite = conta.limiteChequeEspecial();
             saldoDisponivel += limite;
-            payload.put("limiteChequeEspecial", limite);
-        } else if (conta instanceof ContaPoupanca cp) {
-            double investimento = cp.getInvestimento();
+            payload.put("limiteChequeEspecial", Dinheiro.decimal(limite));
+        } else if (conta.investimento() != null) {
+            long investimento = conta.investimento();
             saldoDisponivel += investimento;
-            payload.put("investimento", investimento);
+            payload.put("investimento", Dinheiro.decimal(investimento));
         }
 
-        payload.put("saldo", saldo);
-        payload.put("saldoDisponivel", saldoDisponivel);
+        payload.put("saldo", Dinheiro.decimal(saldo));
+        payload.put("saldoDisponivel", Dinheiro.decimal(saldoDisponivel));
         return ResponseEntity.ok(payload);
     }
 
@@ -88,7 +91,7 @@ public class AccountController {
     @PostMapping("/{cpf}/deposito")
     public ResponseEntity<Map<String, String>> depositar(@PathVariable String cpf, @RequestBody ValorRequest req) {
         bankService.depositar(cpf, req.valor());
-        return ResponseEntity.ok(Map.of("mensagem", "Depósito de R$ " + req.valor() + " realizado com sucesso!"));
+        return ResponseEntity.ok(Map.of("mensagem", "Depósito de R$ " + Dinheiro.decimal(req.valor()) + " realizado com sucesso!"));
     }
 
     /**
@@ -98,7 +101,7 @@ public class AccountController {
     @PostMapping("/{cpf}/saque")
     public ResponseEntity<Map<String, String>> sacar(@PathVariable String cpf, @RequestBody ValorRequest req) {
         bankService.sacar(cpf, req.valor());
-        return ResponseEntity.ok(Map.of("mensagem", "Saque de R$ " + req.valor() + " realizado com sucesso!"));
+        return ResponseEntity.ok(Map.of("mensagem", "Saque de R$ " + Dinheiro.decimal(req.valor()) + " realizado com sucesso!"));
     }
 
     /**
@@ -106,18 +109,29 @@ public class AccountController {
      * (Migrado de: POST /api/contas/transferir)
      */
     @PostMapping("/transferir")
-    public ResponseEntity<Map<String, String>> transferir(@RequestBody TransferRequest req) {
+    public ResponseEntity<Map<String, String>> transferir(@RequestBody TransferRequest req, HttpServletRequest request) {
+        // O CPF de origem vem no corpo: com sessão, tem de ser o do token
+        TokenFilter.verificarTitular(request, req.cpfOrigem());
 
         System.out.println("[CONTROLADOR] Pedido de transferência recebido. A publicar na fila...");
 
+        // Cada transferência leva um id (do cliente, para reenvios seguros, ou gerado aqui).
+        // O consumidor ignora ids já processados, então reentregas não movem dinheiro duas vezes.
+        if (req.idTransferencia() == null || req.idTransferencia().isBlank()) {
+            req = req.comId(UUID.randomUUID().toString());
+        }
+
         // Em vez de chamar bankService.transferir(...),
         // publicamos a mensagem (o objeto DTO) diretamente na fila.
-        rabbitTemplate.convertAndSend(RabbitMQConfig.QUEUE_NAME, req);
+        // (no modo particionado, vai para a partição do CPF de origem)
+        transferenciaPublisher.publicar(req);
 
         // Retorna uma resposta imediata para o utilizador.
         // O frontend
         // irá mostrar esta mensagem.
-        return ResponseEntity.ok(Map.of("mensagem", "Transferência solicitada. O processamento está em curso."));
+        return ResponseEntity.ok(Map.of(
+                "mensagem", "Transferência solicitada. O processamento está em curso.",
+                "idTransferencia", req.idTransferencia()));
     }
 
     /**
@@ -127,7 +141,7 @@ public class AccountController {
     @PostMapping("/{cpf}/pagamento")
     public ResponseEntity<Map<String, String>> pagarBoleto(@PathVariable String cpf, @RequestBody PagamentoRequest req) {
         bankService.pagarBoleto(cpf, req.codigo(), req.valor(), req.dataVencimento());
-        return ResponseEntity.ok(Map.of("mensagem", "Pagamento de R$ " + req.valor() + " realizado com sucesso!"));
+        return ResponseEntity.ok(Map.of("mensagem", "Pagamento de R$ " + Dinheiro.decimal(req.valor()) + " realizado com sucesso!"));
     }
 
     /**
@@ -141,56 +155,68 @@ public class AccountController {
     }
 
     /**
-     * Retorna o extrato da conta em formato JSON.
+     * Retorna o extrato da conta em formato JSON, paginado por cursor.
      * (Migrado de: GET /api/contas/:cpf/extrato)
      *
-     * ESTE MÉTODO CONTÉM A CORREÇÃO PARA O ERRO DE COMPILAÇÃO.
+     * 'cursor' é o id da última movimentação recebida (o valor de 'proximoCursor'
+     * da página anterior) e 'limite' o tamanho da página (com teto no servidor).
+     * 'inicio' e 'fim' (yyyy-MM-dd ou dd/MM/yyyy) filtram o período na própria consulta.
      */
     @GetMapping("/{cpf}/extrato")
-    public ResponseEntity<Map<String, Object>> getExtratoJson(@PathVariable String cpf,
-                                                              @RequestParam(required = false) String inicio,
-                                                              @RequestParam(required = false) String fim) {
-        Account conta = bankService.buscarConta(cpf);
+    public ResponseEntity<ExtratoResponse> getExtratoJson(@PathVariable String cpf,
+                                                          @RequestParam(required = false) Long cursor,
+                                                          @RequestParam(required = false) Integer limite,
+                                                          @RequestParam(required = false) String inicio,
+                                                          @RequestParam(required = false) String fim) {
+        return ResponseEntity.ok(extratoService.buscarPagina(cpf, cursor, limite, inicio, fim));
+    }
+
+    /**
+     * Exporta o histórico completo da conta em NDJSON (uma movimentação por linha),
+     * escrevendo diretamente na resposta, como no extrato em PDF.
+     */
+    @GetMapping(value = "/{cpf}/extrato/ndjson", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportarExtratoNdjson(@PathVariable String cpf,
+                                                                       @RequestParam(required = false) String inicio,
+                                                                       @RequestParam(required = false) String fim) {
+        // Valida a conta e o período antes de começar a escrever a resposta (404/400 normais)
+        extratoService.verificarConta(cpf);
+        extratoService.validarPeriodo(inicio, fim);
+
+        StreamingResponseBody stream = outputStream -> {
+            try {
+                extratoService.exportarNdjson(cpf, inicio, fim, outputStream);
+            } catch (Exception e) {
+                System.err.println("Erro ao exportar extrato: " + e.getMessage());
+                throw new RuntimeException("Erro ao exportar extrato", e);
+            }
+        };
 
-        // --- INÍCIO DA CORREÇÃO ---
-        // Mapeia as Entidades 'Movimentacao' para um DTO (HashMap)
-        // Usamos um HashMap explícito DENTRO do .map() para evitar o erro.
-        List<Map<String, Object>> movimentacoesDTO = conta.getMovimentacoes().stream()
-                // TODO: Adicionar lógica de filtro de data aqui usando 'inicio' e 'fim'
-                .map(m -> {
-                    // Substituímos o Map.of() por um HashMap explícito
-                    Map<String, Object> movMap = new HashMap<>();
-                    movMap.put("dataHora", m.getDataHora());
-                    movMap.put("tipo", m.getTipo());
-                    movMap.put("valor", m.getValor());
-                    return movMap;
-                })
-                .collect(Collectors.toList());
-        // --- FIM DA CORREÇÃO ---
-
-        // O HashMap externo (que já corrigimos antes)
-        Map<String, Object> responseMap = new HashMap<>();
-        responseMap.put("cpf", cpf);
-        responseMap.put("saldoAtual", conta.getSaldo());
-        responseMap.put("movimentacoes", movimentacoesDTO);
-
-        return ResponseEntity.ok(responseMap);
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "attachment; filename=extrato_" + cpf + ".ndjson")
+                .body(stream);
     }
 
     /**
      * Gera e baixa o extrato da conta em formato PDF.
      * (Migrado de: GET /api/contas/:cpf/extrato/pdf)
+     * Aceita o mesmo período opcional ('inicio'/'fim') do extrato JSON.
      */
     @GetMapping("/{cpf}/extrato/pdf")
-    public ResponseEntity<StreamingResponseBody> getExtratoPdf(@PathVariable String cpf, HttpServletResponse response) {
-        // Busca a conta
+    public ResponseEntity<StreamingResponseBody> getExtratoPdf(@PathVariable String cpf,
+                                                               @RequestParam(required = false) String inicio,
+                                                               @RequestParam(required = false) String fim,
+                                                               HttpServletResponse response) {
+        // Busca a conta e confere o período antes de abrir a resposta (404/400 normais)
         Account conta = bankService.buscarConta(cpf);
+        extratoService.validarPeriodo(inicio, fim);
 
         // Cria um "corpo de resposta" que escreve o PDF diretamente para o navegador
         StreamingResponseBody stream = outputStream -> {
             try {
                 // Delega a lógica de criação do PDF para o serviço
-                extratoPdfService.gerarExtratoPDF(conta, outputStream);
+                // As movimentações são lidas do banco em páginas, durante a escrita
+                extratoPdfService.gerarExtratoPDF(conta, inicio, fim, outputStream);
             } catch (Exception e) {
                 System.err.println("Erro ao gerar PDF: " + e.getMessage());
                 throw new RuntimeException("Erro ao gerar extrato PDF", e);
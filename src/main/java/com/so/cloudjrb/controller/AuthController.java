@@ -2,8 +2,9 @@ package com.so.cloudjrb.controller;
 
 import com.so.cloudjrb.dto.CreateAccountRequest;
 import com.so.cloudjrb.dto.LoginRequest;
-import com.so.cloudjrb.model.Account;
+import com.so.cloudjrb.dto.LoginResponse;
 import com.so.cloudjrb.service.BankService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,10 +21,11 @@ public class AuthController {
 
     // Migração de: post("/api/login", ...)
     @PostMapping("/login")
-    public ResponseEntity<Account> login(@RequestBody LoginRequest req) {
-        // A validação de senha, bloqueio e erro é tratada pelo BankService
-        Account conta = bankService.login(req.cpf(), req.senha());
-        // Retorna o objeto da conta (sem senha, graças ao @JsonIgnore)
+    public ResponseEntity<LoginResponse> login(@RequestBody LoginRequest req, HttpServletRequest request) {
+        // A validação de senha e erro é tratada pelo BankService
+        // O IP entra no limite de tentativas (junto com o CPF)
+        LoginResponse conta = bankService.login(req.cpf(), req.senha(), request.getRemoteAddr());
+        // Retorna só a identificação da conta (sem senha, sem movimentações)
         return ResponseEntity.ok(conta);
     }
 
@@ -1,11 +1,11 @@
 package com.so.cloudjrb.controller;
 
 import com.so.cloudjrb.dto.CardRequest;
+import com.so.cloudjrb.dto.CartaoCreditoResponse;
+import com.so.cloudjrb.dto.CartaoDebitoResponse;
 import com.so.cloudjrb.dto.CompraRequest;
+import com.so.cloudjrb.dto.ContaResponse;
 import com.so.cloudjrb.exception.ResourceNotFoundException;
-import com.so.cloudjrb.model.Account;
-import com.so.cloudjrb.model.CartaoCredito;
-import com.so.cloudjrb.model.CartaoDebito;
 import com.so.cloudjrb.service.BankService;
 import com.so.cloudjrb.service.CartaoService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -62,22 +62,18 @@ public class CardController {
 
     // Migração de: get("/api/contas/:cpf/cartoes/credito/info", ...)
     @GetMapping("/credito/info")
-    public ResponseEntity<CartaoCredito> getInfoCredito(@PathVariable String cpf) {
-        Account conta = bankService.buscarConta(cpf);
-        if (conta.getCartaoCredito() == null) {
-            throw new ResourceNotFoundException("Cartão de crédito não encontrado.");
-        }
-        return ResponseEntity.ok(conta.getCartaoCredito());
+    public ResponseEntity<CartaoCreditoResponse> getInfoCredito(@PathVariable String cpf) {
+        return ResponseEntity.ok(cartaoService.consultarCartaoCredito(cpf));
     }
 
     // Migração de: get("/api/contas/:cpf/cartoes/debito/info", ...)
     @GetMapping("/debito/info")
-    public ResponseEntity<CartaoDebito> getInfoDebito(@PathVariable String cpf) {
-        Account conta = bankService.buscarConta(cpf);
-        if (conta.getCartaoDebito() == null) {
+    public ResponseEntity<CartaoDebitoResponse> getInfoDebito(@PathVariable String cpf) {
+        ContaResponse conta = bankService.consultarConta(cpf);
+        if (conta.cartaoDebito() == null) {
             throw new ResourceNotFoundException("Cartão de débito não encontrado.");
         }
-        return ResponseEntity.ok(conta.getCartaoDebito());
+        return ResponseEntity.ok(conta.cartaoDebito());
     }
 
     // Adicione a rota de /fatura/pdf aqui, similar ao extrato em PDF
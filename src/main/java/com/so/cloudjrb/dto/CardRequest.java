@@ -1,4 +1,4 @@
 package com.so.cloudjrb.dto;
 
 // Usado para solicitar cartão de crédito
-public record CardRequest(double limite) {}
\ No newline at end of file
+public record CardRequest(@EmReais long limite) {}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.so.cloudjrb.dto;
+
+import com.so.cloudjrb.repository.AccountRepository.ContaView;
+
+import java.util.List;
+
+public record CartaoCreditoResponse(
+        Long id,
+        String numero,
+        String validade,
+        String cvv,
+        @EmReais long limite,
+        @EmReais long faturaTotal,
+        @EmReais long limiteDisponivel,
+        FaturaResponse faturaAtual
+) {
+    static CartaoCreditoResponse de(ContaView v) {
+        long limite = v.getCreditoLimite() != null ? v.getCreditoLimite() : 0L;
+        long total = v.getFaturaTotal() != null ? v.getFaturaTotal() : 0L;
+        FaturaResponse fatura = v.getFaturaId() != null
+                ? new FaturaResponse(v.getFaturaId(), v.getFaturaMesReferencia(), v.getFaturaDataFechamento(),
+                        v.getFaturaDataVencimento(), total, null)
+                : null;
+        return new CartaoCreditoResponse(v.getCreditoId(), v.getCreditoNumero(), v.getCreditoValidade(),
+                v.getCreditoCvv(), limite, total, limite - total, fatura);
+    }
+
+    /** Mesmo cartão, com as compras da fatura atual preenchidas. */
+    public CartaoCreditoResponse comCompras(List<MovimentacaoResponse> compras) {
+        if (faturaAtual == null) return this;
+        return new CartaoCreditoResponse(id, numero, validade, cvv, limite, faturaTotal, limiteDisponivel,
+                faturaAtual.comCompras(compras));
+    }
+}
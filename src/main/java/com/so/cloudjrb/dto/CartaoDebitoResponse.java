@@ -0,0 +1,8 @@
+package com.so.cloudjrb.dto;
+
+public record CartaoDebitoResponse(
+        Long id,
+        String numero,
+        String validade,
+        String cvv
+) {}
@@ -1,6 +1,6 @@
 package com.so.cloudjrb.dto;
 
 public record CompraRequest(
-        double valor,
+        @EmReais long valor,
         String descricao
 ) {}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.so.cloudjrb.dto;
+
+import com.so.cloudjrb.repository.AccountRepository.ContaView;
+
+// Dados da conta devolvidos pela API (e guardados no cache de leitura).
+// O histórico de movimentações fica no extrato paginado.
+public record ContaResponse(
+        String cpf,
+        Integer numero,
+        String titular,
+        String tipoConta,
+        @EmReais long saldo,
+        boolean encerrada,
+        String dataEncerramento,
+        @EmReais Long limiteChequeEspecial, // só Conta Corrente
+        @EmReais Long investimento,         // só Conta Poupança
+        CartaoCreditoResponse cartaoCredito,
+        CartaoDebitoResponse cartaoDebito
+) {
+    public static ContaResponse de(ContaView v) {
+        return new ContaResponse(
+                v.getCpf(),
+                v.getNumero(),
+                v.getTitular(),
+                tipoConta(v.getLimiteChequeEspecial() != null),
+                v.getSaldo(),
+                Boolean.TRUE.equals(v.getEncerrada()),
+                v.getDataEncerramento(),
+                v.getLimiteChequeEspecial(),
+                v.getInvestimento(),
+                v.getCreditoId() != null ? CartaoCreditoResponse.de(v) : null,
+                v.getDebitoId() != null
+                        ? new CartaoDebitoResponse(v.getDebitoId(), v.getDebitoNumero(), v.getDebitoValidade(), v.getDebitoCvv())
+                        : null
+        );
+    }
+
+    // Mesmo texto de Account.getTipoConta()
+    public static String tipoConta(boolean corrente) {
+        return corrente ? "Conta Corrente" : "Conta Poupança";
+    }
+}
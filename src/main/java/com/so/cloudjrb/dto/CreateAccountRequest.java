@@ -5,5 +5,5 @@ public record CreateAccountRequest(
         String titular,
         String senha,
         String tipo,
-        Double saldoInicial
+        @EmReais Long saldoInicial
 ) {}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.so.cloudjrb.dto;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.so.cloudjrb.model.Dinheiro;
+
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.math.BigDecimal;
+
+/**
+ * Campo em centavos (long) que aparece no JSON em reais (ex: 1050 <-> 10.50).
+ * A API e as mensagens da fila continuam em reais; a leitura converte o texto
+ * decimal direto para centavos, sem passar por double.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+@JacksonAnnotationsInside
+@JsonSerialize(using = EmReais.Serializador.class)
+@JsonDeserialize(using = EmReais.Desserializador.class)
+public @interface EmReais {
+
+    class Serializador extends JsonSerializer<Long> {
+        @Override
+        public void serialize(Long centavos, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(Dinheiro.decimal(centavos));
+        }
+    }
+
+    class Desserializador extends JsonDeserializer<Long> {
+        @Override
+        public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            BigDecimal reais = p.currentToken() == JsonToken.VALUE_STRING
+                    ? new BigDecimal(p.getText().trim().replace(',', '.'))
+                    : p.getDecimalValue();
+            return Dinheiro.centavos(reais);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.so.cloudjrb.dto;
+
+import java.util.List;
+
+// Página do extrato. 'proximoCursor' é nulo quando não há mais movimentações.
+public record ExtratoResponse(
+        String cpf,
+        @EmReais long saldoAtual,
+        List<MovimentacaoResponse> movimentacoes,
+        Long proximoCursor
+) {}
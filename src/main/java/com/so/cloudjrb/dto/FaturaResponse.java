@@ -0,0 +1,20 @@
+package com.so.cloudjrb.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// 'compras' só é preenchido na consulta do cartão de crédito; nos dados da conta fica de fora
+public record FaturaResponse(
+        Long id,
+        String mesReferencia,
+        LocalDate dataFechamento,
+        LocalDate dataVencimento,
+        @EmReais long total,
+        @JsonInclude(JsonInclude.Include.NON_NULL) List<MovimentacaoResponse> compras
+) {
+    public FaturaResponse comCompras(List<MovimentacaoResponse> compras) {
+        return new FaturaResponse(id, mesReferencia, dataFechamento, dataVencimento, total, compras);
+    }
+}
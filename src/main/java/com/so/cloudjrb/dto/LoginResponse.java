@@ -0,0 +1,12 @@
+package com.so.cloudjrb.dto;
+
+// Resposta do login: só a identificação da conta (os demais dados vêm de GET /api/contas/{cpf})
+// e o token de sessão, enviado nas chamadas seguintes em "Authorization: Bearer <token>"
+public record LoginResponse(
+        String cpf,
+        Integer numero,
+        String titular,
+        String tipoConta,
+        String token,
+        long tokenExpiraEm // epoch em milissegundos
+) {}
@@ -0,0 +1,19 @@
+package com.so.cloudjrb.dto;
+
+import com.so.cloudjrb.model.Movimentacao;
+import com.so.cloudjrb.model.TipoMovimentacao;
+
+// Linha do extrato devolvida pela API (sem carregar a entidade completa).
+// 'dataHora' e 'tipo' são os textos exibidos, montados a partir do formato compacto do banco.
+public record MovimentacaoResponse(
+        Long id,
+        String dataHora,
+        String tipo,
+        @EmReais long valor
+) {
+    // Usado nas consultas (select new ...): recebe as colunas e monta os textos
+    public MovimentacaoResponse(Long id, long instante, TipoMovimentacao tipo, String contraparte,
+                                String detalhe, long valor) {
+        this(id, Movimentacao.formatarDataHora(instante), tipo.descrever(contraparte, detalhe), valor);
+    }
+}
@@ -2,6 +2,6 @@ package com.so.cloudjrb.dto;
 
 public record PagamentoRequest(
         String codigo,
-        double valor,
+        @EmReais long valor,
         String dataVencimento // Opcional
 ) {}
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.so.cloudjrb.dto;
+
+// Resultado de uma transferência processada em lote ('erro' só quando sucesso = false)
+public record ResultadoTransferencia(
+        TransferRequest request,
+        boolean sucesso,
+        String erro
+) {}
@@ -1,7 +1,14 @@
 package com.so.cloudjrb.dto;
 
+// 'idTransferencia' identifica a transferência para evitar processá-la duas vezes.
+// Pode vir do cliente; se não vier, o servidor gera um.
 public record TransferRequest(
+        String idTransferencia,
         String cpfOrigem,
         String cpfDestino,
-        double valor
-) {}
\ No newline at end of file
+        @EmReais long valor // centavos
+) {
+    public TransferRequest comId(String id) {
+        return new TransferRequest(id, cpfOrigem, cpfDestino, valor);
+    }
+}
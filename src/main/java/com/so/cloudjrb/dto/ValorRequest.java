@@ -1,3 +1,3 @@
 package com.so.cloudjrb.dto;
 
-public record ValorRequest(double valor) {}
\ No newline at end of file
+public record ValorRequest(@EmReais long valor) {}
\ No newline at end of file
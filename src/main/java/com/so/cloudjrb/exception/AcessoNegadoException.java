@@ -0,0 +1,10 @@
+package com.so.cloudjrb.exception;
+
+/**
+ * Operação sobre uma conta diferente da do token de sessão (HTTP 403).
+ */
+public class AcessoNegadoException extends RuntimeException {
+    public AcessoNegadoException(String message) {
+        super(message);
+    }
+}
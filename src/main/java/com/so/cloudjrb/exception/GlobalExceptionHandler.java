@@ -1,5 +1,6 @@
 package com.so.cloudjrb.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -20,6 +21,20 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(Map.of("erro", ex.getMessage()), HttpStatus.BAD_REQUEST);
     }
 
+    // Limite de tentativas de login: 429 com o tempo de espera no Retry-After
+    @ExceptionHandler(LoginBloqueadoException.class)
+    public ResponseEntity<Map<String, String>> handleLoginBloqueadoException(LoginBloqueadoException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getSegundosRestantes()))
+                .body(Map.of("erro", ex.getMessage()));
+    }
+
+    // Conta diferente da do token de sessão
+    @ExceptionHandler(AcessoNegadoException.class)
+    public ResponseEntity<Map<String, String>> handleAcessoNegadoException(AcessoNegadoException ex) {
+        return new ResponseEntity<>(Map.of("erro", ex.getMessage()), HttpStatus.FORBIDDEN);
+    }
+
     // Exceção de "Não Encontrado"
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<Map<String, String>> handleResourceNotFoundException(ResourceNotFoundException ex) {
@@ -0,0 +1,18 @@
+package com.so.cloudjrb.exception;
+
+/**
+ * Login recusado pelo limitador de tentativas (HTTP 429), antes de consultar a conta.
+ */
+public class LoginBloqueadoException extends DomainException {
+
+    private final long segundosRestantes;
+
+    public LoginBloqueadoException(long segundosRestantes) {
+        super("Muitas tentativas de login. Tente novamente em " + segundosRestantes + " segundos.");
+        this.segundosRestantes = segundosRestantes;
+    }
+
+    public long getSegundosRestantes() {
+        return segundosRestantes;
+    }
+}
@@ -0,0 +1,30 @@
+package com.so.cloudjrb.ledger;
+
+/**
+ * Estado em memória de uma conta dentro do motor (valores em centavos).
+ * Só a thread do shard dono da conta altera estes campos; 'encerrada' é volatile
+ * porque outros shards a consultam antes de enviar uma transferência.
+ */
+final class EstadoConta {
+
+    final String cpf;
+    String titular;
+    boolean corrente;
+    long saldo;
+    long limiteCheque;
+    long investimento;
+    volatile boolean encerrada;
+
+    boolean temDebito;
+    boolean temCredito;
+    long limiteCredito;
+    long fatura;
+
+    EstadoConta(String cpf) {
+        this.cpf = cpf;
+    }
+
+    long disponivel() {
+        return corrente ? saldo + limiteCheque : saldo;
+    }
+}
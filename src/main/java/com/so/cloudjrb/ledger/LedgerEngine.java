@@ -0,0 +1,607 @@
+package com.so.cloudjrb.ledger;
+
+import com.so.cloudjrb.dto.ResultadoTransferencia;
+import com.so.cloudjrb.dto.TransferRequest;
+import com.so.cloudjrb.exception.DomainException;
+import com.so.cloudjrb.exception.ResourceNotFoundException;
+import com.so.cloudjrb.model.Account;
+import com.so.cloudjrb.model.ContaPoupanca;
+import com.so.cloudjrb.model.Dinheiro;
+import com.so.cloudjrb.model.TipoMovimentacao;
+import com.so.cloudjrb.service.ComprovanteService;
+import com.so.cloudjrb.service.TransferenciaDedupStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Motor de saldos em memória (app.ledger.habilitado=true).
+ *
+ * Os saldos e limites ficam em memória, divididos em shards pelo hash do CPF.
+ * Cada shard tem uma única thread que aplica depósitos, saques, transferências e
+ * compras da sua fila. Toda operação aplicada vai para o journal (fsync em grupo)
+ * antes de ser confirmada a quem pediu, e é projetada de forma assíncrona nas
+ * tabelas 'accounts'/'movimentacoes' pelo LedgerProjector.
+ *
+ * Transferências entre shards: o shard de origem debita e grava o débito; só
+ * depois do fsync o crédito é enviado ao shard de destino. Se o destino tiver sido
+ * encerrado nesse meio tempo, o valor volta para a origem (estorno). Débitos sem
+ * crédito/estorno no journal são completados na recuperação.
+ *
+ * Na inicialização: snapshot + journal são reaplicados, o banco é atualizado, um
+ * novo snapshot é gravado e o journal recomeça vazio.
+ *
+ * Se o journal falhar, as operações do grupo que falhou já alteraram a memória sem
+ * chegar ao disco: a partir daí o motor recusa tudo (IllegalStateException) até a
+ * aplicação ser reiniciada, quando a memória é refeita a partir do disco.
+ */
+@Component
+@ConditionalOnProperty(name = LedgerEngine.HABILITADO, havingValue = "true")
+public class LedgerEngine {
+
+    public static final String HABILITADO = "app.ledger.habilitado";
+
+    // Chaves de transferências sem idTransferencia (não vão para a deduplicação)
+    static final String PREFIXO_CHAVE_INTERNA = "ledger:";
+
+    @Autowired
+    private LedgerProjector projector;
+
+    @Autowired
+    private ComprovanteService comprovanteService;
+
+    @Autowired
+    private TransferenciaDedupStore transferenciaDedupStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.ledger.shards:4}")
+    private int numeroShards;
+
+    @Value("${app.ledger.diretorio:./data/ledger/}")
+    private String diretorio;
+
+    @Value("${app.ledger.journal.grupo-max:256}")
+    private int grupoMax;
+
+    @Value("${app.ledger.shard.capacidade:10000}")
+    private int capacidadeShard;
+
+    @Value("${app.ledger.espera-ms:5000}")
+    private long esperaMs;
+
+    @Value("${app.ledger.dedup.max-entradas:100000}")
+    private int maxIdsRecentes;
+
+    private final Map<String, EstadoConta> contas = new ConcurrentHashMap<>();
+    private LedgerShard[] shards;
+    // Ids de transferência aplicados recentemente, por shard (só a thread do shard acessa)
+    private List<Set<String>> idsRecentes;
+    private LedgerJournal journal;
+    private Timer tempoOperacao;
+
+    // Regra de uma operação, executada na thread do shard. Lança DomainException se recusada.
+    @FunctionalInterface
+    private interface Operacao {
+        void aplicar(EstadoConta conta, List<RegistroLedger> registros);
+    }
+
+    // --- Ciclo de vida ---
+
+    @PostConstruct
+    void iniciar() throws IOException {
+        Path pasta = Path.of(diretorio);
+        Files.createDirectories(pasta);
+        Path arquivoSnapshot = pasta.resolve("snapshot.bin");
+        Path arquivoJournal = pasta.resolve("journal.log");
+
+        shards = new LedgerShard[numeroShards];
+        idsRecentes = new ArrayList<>(numeroShards);
+        for (int i = 0; i < numeroShards; i++) {
+            shards[i] = new LedgerShard(i, capacidadeShard);
+            idsRecentes.add(new LinkedHashSet<>());
+        }
+
+        // 1. Último snapshot
+        LedgerSnapshot snapshot = LedgerSnapshot.ler(arquivoSnapshot);
+        long ultimoSeq = -1L;
+        if (snapshot != null) {
+            contas.putAll(snapshot.contas);
+            ultimoSeq = snapshot.ultimoSeq;
+        }
+
+        // 2. Contas que só existem no banco (ou todas, na primeira vez) e dados cadastrais
+        long projetado = projector.ultimoProjetado();
+        Set<String> carregadasDoBanco = new HashSet<>();
+        for (Account conta : projector.contasDoBanco()) {
+            EstadoConta e = contas.get(conta.getCpf());
+            if (e == null) {
+                contas.put(conta.getCpf(), estadoInicial(conta));
+                carregadasDoBanco.add(conta.getCpf());
+            } else {
+                LedgerProjector.atualizarCadastro(e, conta, false);
+            }
+        }
+
+        // 3. Reaplica o journal posterior ao snapshot
+        Map<String, RegistroLedger> pendentes = new LinkedHashMap<>();
+        List<RegistroLedger> registros = new ArrayList<>();
+        for (RegistroLedger r : LedgerJournal.ler(arquivoJournal)) {
+            if (r.seq() <= ultimoSeq) continue;
+            // Contas lidas do banco já refletem o que foi projetado
+            if (!(carregadasDoBanco.contains(r.cpf()) && r.seq() <= projetado)) {
+                reaplicar(r);
+            }
+            registros.add(r);
+            ultimoSeq = r.seq();
+            switch (r.tipo()) {
+                case TRANSFERENCIA_DEBITO -> {
+                    pendentes.put(r.chave(), r);
+                    lembrarId(shard(r.cpf()), r.chave());
+                }
+                case TRANSFERENCIA_CREDITO, TRANSFERENCIA_ESTORNO -> pendentes.remove(r.chave());
+                default -> { }
+            }
+        }
+
+        // 4. Completa transferências interrompidas entre o débito e o crédito
+        for (RegistroLedger debito : pendentes.values()) {
+            registros.add(concluirTransferencia(debito).comSeq(++ultimoSeq));
+        }
+        if (!pendentes.isEmpty()) {
+            System.out.println("[LEDGER] " + pendentes.size() + " transferência(s) concluída(s) na recuperação.");
+        }
+
+        // 5. Projeta no banco o que ainda faltava
+        List<RegistroLedger> naoProjetados = new ArrayList<>();
+        for (RegistroLedger r : registros) {
+            if (r.seq() > projetado) naoProjetados.add(r);
+        }
+        if (!naoProjetados.isEmpty()) projector.projetarNaRecuperacao(naoProjetados);
+
+        // 6. Novo snapshot e journal vazio
+        new LedgerSnapshot(ultimoSeq, new HashMap<>(contas)).gravar(arquivoSnapshot);
+        journal = new LedgerJournal(arquivoJournal, grupoMax, projector::enfileirar, meterRegistry);
+        journal.abrir(ultimoSeq + 1);
+
+        // 7. Métricas e threads
+        tempoOperacao = meterRegistry.timer("ledger.operacao");
+        for (int i = 0; i < numeroShards; i++) {
+            LedgerShard s = shards[i];
+            Gauge.builder("ledger.shard.pendentes", s, LedgerShard::pendentes)
+                    .tag("shard", String.valueOf(i))
+                    .register(meterRegistry);
+            s.iniciar();
+        }
+        projector.iniciar();
+
+        System.out.println("[LEDGER] Motor iniciado com " + contas.size() + " conta(s), " +
+                numeroShards + " shard(s), seq " + ultimoSeq + ".");
+    }
+
+    @PreDestroy
+    void encerrar() throws InterruptedException {
+        for (LedgerShard s : shards) s.parar();
+        journal.parar();
+        projector.parar();
+    }
+
+    // --- Operações ---
+
+    public void depositar(String cpf, long valor) {
+        executar(cpf, (e, regs) -> {
+            if (valor <= 0) throw new DomainException("Valor inválido para depósito.");
+            if (e.encerrada) throw new DomainException("Conta encerrada.");
+            e.saldo += valor;
+            regs.add(registro(TipoRegistro.DEPOSITO, e, TipoMovimentacao.DEPOSITO, null, valor, null, null));
+        });
+    }
+
+    public void sacar(String cpf, long valor) {
+        executar(cpf, (e, regs) -> {
+            if (valor <= 0) throw new DomainException("Valor inválido para saque.");
+            if (e.encerrada) throw new DomainException("Conta encerrada.");
+            exigirSaldoParaSaque(e, valor);
+            e.saldo -= valor;
+            regs.add(registro(TipoRegistro.SAQUE, e,
+                    e.corrente ? TipoMovimentacao.SAQUE_CORRENTE : TipoMovimentacao.SAQUE_POUPANCA, null, valor, null, null));
+        });
+    }
+
+    public void pagarBoleto(String cpf, String codigo, long valor, String dataVencimento) {
+        String detalhe = codigo +
+                (dataVencimento != null && !dataVencimento.isBlank() ? " (Venc.: " + dataVencimento + ")" : "");
+        String[] titular = new String[1];
+        debitar(cpf, valor, TipoMovimentacao.PAGAMENTO_BOLETO, detalhe, e -> titular[0] = e.titular);
+        comprovanteService.agendarComprovantePagamento(titular[0], cpf, codigo, valor, dataVencimento);
+    }
+
+    public void comprarDebito(String cpf, long valor, String descricao) {
+        executar(cpf, (e, regs) -> {
+            if (e.encerrada) throw new DomainException("Conta encerrada.");
+            if (!e.temDebito) throw new DomainException("Conta não possui cartão de débito.");
+            if (valor <= 0) throw new DomainException("Valor inválido para compra.");
+            aplicarDebito(e, valor, TipoRegistro.DEBITO, TipoMovimentacao.COMPRA_DEBITO, descricao, regs);
+        });
+    }
+
+    public void comprarCredito(String cpf, long valor, String descricao) {
+        executar(cpf, (e, regs) -> {
+            if (e.encerrada) throw new DomainException("Conta encerrada.");
+            if (!e.temCredito) throw new DomainException("Conta não possui cartão de crédito.");
+            if (valor <= 0) throw new DomainException("Valor inválido para compra.");
+            if (valor > e.limiteCredito - e.fatura) throw new DomainException("Limite insuficiente.");
+            e.fatura += valor;
+            regs.add(registro(TipoRegistro.COMPRA_CREDITO, e, TipoMovimentacao.COMPRA_CREDITO, null, valor, descricao, null));
+        });
+    }
+
+    public void pagarFatura(String cpf) {
+        executar(cpf, (e, regs) -> {
+            if (e.encerrada) throw new DomainException("Conta encerrada.");
+            if (!e.temCredito) throw new DomainException("Conta não possui cartão de crédito.");
+            if (e.fatura <= 0) throw new DomainException("Não há fatura em aberto.");
+            aplicarDebito(e, e.fatura, TipoRegistro.PAGAMENTO_FATURA, TipoMovimentacao.PAGAMENTO_FATURA, null, regs);
+            e.fatura = 0;
+        });
+    }
+
+    public void investir(String cpf, long valor) {
+        executar(cpf, (e, regs) -> {
+            if (e.corrente) throw new DomainException("Esta operação é exclusiva para Conta Poupança.");
+            if (valor <= 0) throw new DomainException("Valor inválido para investir.");
+            if (e.encerrada) throw new DomainException("Conta encerrada.");
+            if (valor > e.saldo) throw new DomainException("Saldo insuficiente para investir.");
+            long rendimento = rendimentoPoupanca(valor);
+            e.saldo -= valor;
+            e.investimento += valor + rendimento;
+            regs.add(registro(TipoRegistro.INVESTIMENTO, e, TipoMovimentacao.APLICACAO_POUPANCA, null, valor,
+                    Dinheiro.formatar(rendimento), null));
+        });
+    }
+
+    public void resgatar(String cpf, long valor) {
+        executar(cpf, (e, regs) -> {
+            if (e.corrente) throw new DomainException("Esta operação é exclusiva para Conta Poupança.");
+            if (valor <= 0) throw new DomainException("Valor inválido para resgate.");
+            if (e.encerrada) throw new DomainException("Conta encerrada.");
+            if (valor > e.investimento) throw new DomainException("Valor supera o montante investido.");
+            e.investimento -= valor;
+            e.saldo += valor;
+            regs.add(registro(TipoRegistro.RESGATE, e, TipoMovimentacao.RESGATE_POUPANCA, null, valor, null, null));
+        });
+    }
+
+    public void encerrarConta(String cpf) {
+        executar(cpf, (e, regs) -> {
+            if (e.saldo > 0) throw new DomainException("Conta não pode ser encerrada com saldo disponível.");
+            if (e.saldo < 0) throw new DomainException("Conta não pode ser encerrada com cheque especial em uso.");
+            if (e.temCredito && e.fatura > 0) throw new DomainException("Conta possui fatura de cartão de crédito pendente.");
+            if (!e.corrente && e.investimento > 0)
+                throw new DomainException("Conta não pode ser encerrada com dinheiro investido na poupança.");
+            e.encerrada = true;
+            regs.add(registro(TipoRegistro.ENCERRAMENTO, e, TipoMovimentacao.ENCERRAMENTO, null, 0, null, null));
+        });
+    }
+
+    /** Transferência; ids já aplicados são ignorados. */
+    public void transferir(TransferRequest req) {
+        aguardar(submeterTransferencia(req));
+    }
+
+    public List<ResultadoTransferencia> transferirEmLote(List<TransferRequest> lote) {
+        List<CompletableFuture<Void>> futuros = new ArrayList<>(lote.size());
+        for (TransferRequest req : lote) {
+            try {
+                futuros.add(submeterTransferencia(req));
+            } catch (RuntimeException e) {
+                futuros.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        List<ResultadoTransferencia> resultados = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            try {
+                aguardar(futuros.get(i));
+                resultados.add(new ResultadoTransferencia(lote.get(i), true, null));
+            } catch (DomainException | ResourceNotFoundException e) {
+                resultados.add(new ResultadoTransferencia(lote.get(i), false, e.getMessage()));
+            }
+        }
+        return resultados;
+    }
+
+    // --- Cadastro (contas e cartões são criados no banco e apenas avisados ao motor) ---
+
+    /** Conta recém-criada no banco; entra no motor depois do commit. */
+    public void registrarConta(Account conta) {
+        aposCommit(() -> {
+            EstadoConta novo = estadoInicial(conta);
+            shards[shard(novo.cpf)].executarInterno(() -> contas.putIfAbsent(novo.cpf, novo));
+        });
+    }
+
+    /** Cartões/limites alterados no banco; o motor é atualizado depois do commit. */
+    public void atualizarCadastro(Account conta) {
+        aposCommit(() -> {
+            EstadoConta referencia = estadoInicial(conta);
+            shards[shard(referencia.cpf)].executarInterno(() -> {
+                EstadoConta e = contas.putIfAbsent(referencia.cpf, referencia);
+                if (e != null) {
+                    e.temDebito = referencia.temDebito;
+                    e.temCredito = referencia.temCredito;
+                    e.limiteCredito = referencia.limiteCredito;
+                    e.limiteCheque = referencia.limiteCheque;
+                }
+            });
+        });
+    }
+
+    // --- Internos ---
+
+    private CompletableFuture<Void> submeterTransferencia(TransferRequest req) {
+        String id = req.idTransferencia();
+        // Consulta ao banco fora da thread do shard
+        if (id != null && transferenciaDedupStore.jaProcessada(id)) {
+            System.out.println("[LEDGER] Transferência " + id + " já processada, ignorando.");
+            return CompletableFuture.completedFuture(null);
+        }
+        String chave = id != null ? id : PREFIXO_CHAVE_INTERNA + UUID.randomUUID();
+        long v = req.valor();
+        int indiceOrigem = shard(req.cpfOrigem());
+
+        CompletableFuture<Void> gravado = new CompletableFuture<>();
+        Timer.Sample amostra = Timer.start(meterRegistry);
+        shards[indiceOrigem].executarExterno(() -> {
+            try {
+                if (!journal.disponivel()) throw journal.indisponivel();
+                EstadoConta origem = contas.get(req.cpfOrigem());
+                EstadoConta destino = contas.get(req.cpfDestino());
+                if (origem == null || destino == null) throw new ResourceNotFoundException("Conta não encontrada.");
+                if (!idsRecentes.get(indiceOrigem).add(chave)) {
+                    gravado.complete(null); // Reentrega: já aplicada por este shard
+                    return;
+                }
+                try {
+                    if (origem.encerrada) throw new DomainException("Conta de origem encerrada.");
+                    if (destino.encerrada) throw new DomainException("Conta de destino encerrada.");
+                    if (v <= 0) throw new DomainException("Valor inválido para transferência.");
+                    exigirSaldoParaSaque(origem, v);
+                } catch (RuntimeException e) {
+                    idsRecentes.get(indiceOrigem).remove(chave);
+                    throw e;
+                }
+                limitarIdsRecentes(indiceOrigem);
+                origem.saldo -= v;
+                RegistroLedger debito = registro(TipoRegistro.TRANSFERENCIA_DEBITO, origem,
+                        TipoMovimentacao.TRANSFERENCIA_ENVIADA, destino.cpf, v, null, chave);
+                String titularOrigem = origem.titular;
+                String titularDestino = destino.titular;
+
+                CompletableFuture<Void> fsync = new CompletableFuture<>();
+                journal.gravar(List.of(debito), fsync);
+                fsync.whenComplete((ok, erro) -> {
+                    if (erro != null) {
+                        gravado.completeExceptionally(erro);
+                        return;
+                    }
+                    // O crédito só sai depois que o débito está em disco
+                    shards[shard(debito.contraparte())].executarInterno(() -> creditarOuDevolver(debito));
+                    comprovanteService.agendarComprovanteTransferencia(titularOrigem, debito.cpf(),
+                            titularDestino, debito.contraparte(), req.valor());
+                    gravado.complete(null);
+                });
+            } catch (RuntimeException e) {
+                gravado.completeExceptionally(e);
+            }
+        }, esperaMs);
+        return gravado.whenComplete((ok, erro) -> amostra.stop(tempoOperacao));
+    }
+
+    /** Na thread do shard de destino: credita, ou manda o estorno para o shard de origem. */
+    private void creditarOuDevolver(RegistroLedger debito) {
+        // Journal parado: o débito está em disco e o crédito é feito na recuperação
+        if (!journal.disponivel()) return;
+        EstadoConta destino = contas.get(debito.contraparte());
+        if (destino != null && !destino.encerrada) {
+            gravarSemEsperar(creditar(destino, debito));
+        } else {
+            EstadoConta origem = contas.get(debito.cpf());
+            shards[shard(origem.cpf)].executarInterno(() -> gravarSemEsperar(estornar(origem, debito)));
+        }
+    }
+
+    /** Recuperação (uma thread só): crédito no destino ou estorno na origem. */
+    private RegistroLedger concluirTransferencia(RegistroLedger debito) {
+        EstadoConta destino = contas.get(debito.contraparte());
+        return destino != null && !destino.encerrada
+                ? creditar(destino, debito)
+                : estornar(contas.get(debito.cpf()), debito);
+    }
+
+    private RegistroLedger creditar(EstadoConta destino, RegistroLedger debito) {
+        destino.saldo += debito.valor();
+        return registro(TipoRegistro.TRANSFERENCIA_CREDITO, destino, TipoMovimentacao.TRANSFERENCIA_RECEBIDA,
+                debito.cpf(), debito.valor(), null, debito.chave());
+    }
+
+    private RegistroLedger estornar(EstadoConta origem, RegistroLedger debito) {
+        origem.saldo += debito.valor();
+        return registro(TipoRegistro.TRANSFERENCIA_ESTORNO, origem, TipoMovimentacao.TRANSFERENCIA_ESTORNO,
+                debito.contraparte(), debito.valor(), null, debito.chave());
+    }
+
+    private void gravarSemEsperar(RegistroLedger registro) {
+        journal.gravar(List.of(registro), new CompletableFuture<>());
+    }
+
+    private void debitar(String cpf, long v, TipoMovimentacao movimento, String detalhe,
+                         Consumer<EstadoConta> aoAplicar) {
+        executar(cpf, (e, regs) -> {
+            aplicarDebito(e, v, TipoRegistro.DEBITO, movimento, detalhe, regs);
+            aoAplicar.accept(e);
+        });
+    }
+
+    // Mesmas regras de Account/ContaCorrente.debitarInterno
+    private void aplicarDebito(EstadoConta e, long v, TipoRegistro tipo, TipoMovimentacao movimento, String detalhe,
+                               List<RegistroLedger> regs) {
+        if (v <= 0) throw new DomainException("Valor inválido.");
+        if (e.encerrada) throw new DomainException("Conta encerrada.");
+        if (v > e.disponivel()) {
+            throw new DomainException(e.corrente
+                    ? "Saldo insuficiente (limite de cheque especial excedido)."
+                    : "Saldo insuficiente.");
+        }
+        e.saldo -= v;
+        regs.add(registro(tipo, e, movimento, null, v, detalhe, null));
+    }
+
+    // Mesmas regras de ContaCorrente.sacar / ContaPoupanca.sacar
+    private void exigirSaldoParaSaque(EstadoConta e, long v) {
+        if (v > e.disponivel()) {
+            throw new DomainException(e.corrente
+                    ? "Saldo insuficiente (limite de cheque especial excedido)."
+                    : "Saldo insuficiente (sem cheque especial).");
+        }
+    }
+
+    /** Executa a operação na thread do shard da conta e espera o fsync do journal. */
+    private void executar(String cpf, Operacao operacao) {
+        Timer.Sample amostra = Timer.start(meterRegistry);
+        CompletableFuture<Void> gravado = new CompletableFuture<>();
+        shards[shard(cpf)].executarExterno(() -> {
+            EstadoConta conta = contas.get(cpf);
+            if (conta == null) {
+                gravado.completeExceptionally(new ResourceNotFoundException("Conta não encontrada."));
+                return;
+            }
+            if (!journal.disponivel()) {
+                gravado.completeExceptionally(journal.indisponivel());
+                return;
+            }
+            List<RegistroLedger> registros = new ArrayList<>(1);
+            try {
+                operacao.aplicar(conta, registros);
+            } catch (RuntimeException e) {
+                gravado.completeExceptionally(e);
+                return;
+            }
+            journal.gravar(registros, gravado);
+        }, esperaMs);
+        try {
+            aguardar(gravado);
+        } finally {
+            amostra.stop(tempoOperacao);
+        }
+    }
+
+    private static void aposCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+
+    private static void aguardar(CompletableFuture<Void> futuro) {
+        try {
+            futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Falha no ledger", e.getCause());
+        }
+    }
+
+    // Efeito de um registro já aplicado (recuperação): sem validar regras
+    private void reaplicar(RegistroLedger r) {
+        EstadoConta e = contas.get(r.cpf());
+        if (e == null) {
+            System.err.println("[LEDGER] Conta " + r.cpf() + " do seq " + r.seq() + " não existe; registro ignorado.");
+            return;
+        }
+        switch (r.tipo()) {
+            case DEPOSITO, SAQUE, DEBITO, TRANSFERENCIA_DEBITO, TRANSFERENCIA_CREDITO, TRANSFERENCIA_ESTORNO -> e.saldo = r.saldoApos();
+            case PAGAMENTO_FATURA -> {
+                e.saldo = r.saldoApos();
+                e.fatura = 0;
+            }
+            case COMPRA_CREDITO -> e.fatura += r.valor();
+            case INVESTIMENTO -> {
+                e.saldo = r.saldoApos();
+                e.investimento += r.valor() + rendimentoPoupanca(r.valor());
+            }
+            case RESGATE -> {
+                e.saldo = r.saldoApos();
+                e.investimento -= r.valor();
+            }
+            case ENCERRAMENTO -> e.encerrada = true;
+        }
+    }
+
+    private EstadoConta estadoInicial(Account conta) {
+        EstadoConta e = new EstadoConta(conta.getCpf());
+        e.saldo = conta.getSaldo();
+        LedgerProjector.atualizarCadastro(e, conta, true);
+        return e;
+    }
+
+    private void lembrarId(int indiceShard, String chave) {
+        idsRecentes.get(indiceShard).add(chave);
+        limitarIdsRecentes(indiceShard);
+    }
+
+    private void limitarIdsRecentes(int indiceShard) {
+        Set<String> ids = idsRecentes.get(indiceShard);
+        Iterator<String> it = ids.iterator();
+        while (ids.size() > maxIdsRecentes && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static RegistroLedger registro(TipoRegistro tipo, EstadoConta e, TipoMovimentacao movimento,
+                                           String contraparte, long valor, String detalhe, String chave) {
+        return new RegistroLedger(-1L, tipo, System.currentTimeMillis(), e.cpf, contraparte,
+                valor, e.saldo, movimento, detalhe, chave);
+    }
+
+    private int shard(String cpf) {
+        return Math.floorMod(cpf.hashCode(), numeroShards);
+    }
+
+    static long rendimentoPoupanca(long valor) {
+        return Dinheiro.aplicarTaxa(valor, ContaPoupanca.TAXA_RENDIMENTO);
+    }
+}
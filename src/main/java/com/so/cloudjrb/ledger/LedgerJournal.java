@@ -0,0 +1,279 @@
+package com.so.cloudjrb.ledger;
+
+import com.so.cloudjrb.model.TipoMovimentacao;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Journal append-only do motor, com fsync em grupo.
+ *
+ * Os shards entregam os registros de cada operação junto com o future de quem
+ * pediu. Uma thread única junta o que estiver pendente (até 'grupoMax' registros),
+ * grava tudo, faz um único fsync e só então completa os futures e repassa os
+ * registros para a projeção no banco.
+ *
+ * Formato de cada registro: [tamanho int][crc32 int][payload]. Na leitura, um
+ * registro incompleto ou com CRC inválido (escrita interrompida) encerra o arquivo.
+ * O código do TipoMovimentacao fica no fim do payload; registros gravados antes dele
+ * (só com a descrição pronta no lugar do detalhe) são decompostos uma vez na leitura.
+ *
+ * Se a escrita ou o fsync de um grupo falhar, o arquivo é truncado de volta ao fim
+ * do último grupo confirmado, o seq volta atrás e o journal para de aceitar
+ * registros: nada pode ser gravado depois de um registro pela metade, senão a
+ * leitura pararia nele e perderia o que veio depois. O motor também para (ver
+ * disponivel()); o estado volta a bater com o disco ao reiniciar a aplicação.
+ */
+final class LedgerJournal implements Runnable {
+
+    private record Pendente(List<RegistroLedger> registros, CompletableFuture<Void> future) {}
+
+    private final Path arquivo;
+    private final int grupoMax;
+    private final Consumer<List<RegistroLedger>> aposGravar;
+    private final BlockingQueue<Pendente> fila = new LinkedBlockingQueue<>();
+    private final DistributionSummary tamanhoGrupo;
+    private final Timer tempoFsync;
+
+    private FileChannel canal;
+    private long proximoSeq;
+    private volatile boolean ativo;
+    // Primeira falha de gravação; depois dela o journal não grava mais nada
+    private volatile Exception falha;
+    private Thread thread;
+
+    LedgerJournal(Path arquivo, int grupoMax, Consumer<List<RegistroLedger>> aposGravar, MeterRegistry meterRegistry) {
+        this.arquivo = arquivo;
+        this.grupoMax = grupoMax;
+        this.aposGravar = aposGravar;
+        this.tamanhoGrupo = meterRegistry.summary("ledger.journal.grupo");
+        this.tempoFsync = meterRegistry.timer("ledger.journal.fsync");
+        meterRegistry.gauge("ledger.journal.falhou", this, j -> j.falha != null ? 1 : 0);
+    }
+
+    /** Abre um journal vazio; os próximos registros recebem seq a partir de 'proximoSeq'. */
+    void abrir(long proximoSeq) throws IOException {
+        this.proximoSeq = proximoSeq;
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.canal.force(true);
+        this.ativo = true;
+        this.thread = new Thread(this, "ledger-journal");
+        this.thread.start();
+    }
+
+    void gravar(List<RegistroLedger> registros, CompletableFuture<Void> future) {
+        if (!ativo) {
+            future.completeExceptionally(new IllegalStateException("Journal do ledger encerrado."));
+            return;
+        }
+        if (falha != null) {
+            future.completeExceptionally(indisponivel());
+            return;
+        }
+        fila.add(new Pendente(registros, future));
+    }
+
+    /** False depois de uma falha de gravação: o motor deve recusar novas operações. */
+    boolean disponivel() {
+        return falha == null;
+    }
+
+    IllegalStateException indisponivel() {
+        return new IllegalStateException("Ledger indisponível após falha no journal; reinicie a aplicação.", falha);
+    }
+
+    void parar() throws InterruptedException {
+        ativo = false;
+        if (thread != null) thread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    @Override
+    public void run() {
+        List<Pendente> grupo = new ArrayList<>();
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pendente primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (primeiro == null) continue;
+                grupo.add(primeiro);
+                int registros = primeiro.registros().size();
+                while (registros < grupoMax) {
+                    Pendente p = fila.poll();
+                    if (p == null) break;
+                    grupo.add(p);
+                    registros += p.registros().size();
+                }
+                gravarGrupo(grupo, registros);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                grupo.clear();
+            }
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            System.err.println("[LEDGER] Erro ao fechar o journal: " + e.getMessage());
+        }
+    }
+
+    private void gravarGrupo(List<Pendente> grupo, int totalRegistros) {
+        if (falha != null) {
+            for (Pendente p : grupo) p.future().completeExceptionally(indisponivel());
+            return;
+        }
+        List<RegistroLedger> gravados = new ArrayList<>(totalRegistros);
+        long seqInicial = proximoSeq;
+        long posicao = -1L;
+        try {
+            posicao = canal.position();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(totalRegistros * 128);
+            for (Pendente p : grupo) {
+                for (RegistroLedger r : p.registros()) {
+                    RegistroLedger comSeq = r.comSeq(proximoSeq++);
+                    escrever(buffer, comSeq);
+                    gravados.add(comSeq);
+                }
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) canal.write(bytes);
+            tempoFsync.record(() -> forcar());
+            tamanhoGrupo.record(totalRegistros);
+        } catch (Exception e) {
+            // Nada foi confirmado: desfaz o grupo no arquivo e todas as operações falham
+            proximoSeq = seqInicial;
+            desfazer(posicao);
+            falha = e;
+            for (Pendente p : grupo) p.future().completeExceptionally(e);
+            System.err.println("[LEDGER] Erro ao gravar o journal, motor parado: " + e.getMessage());
+            return;
+        }
+        for (Pendente p : grupo) p.future().complete(null);
+        aposGravar.accept(gravados);
+    }
+
+    // Volta o arquivo ao fim do último grupo confirmado (descarta bytes parciais)
+    private void desfazer(long posicao) {
+        if (posicao < 0) return;
+        try {
+            canal.truncate(posicao);
+            canal.position(posicao);
+            canal.force(false);
+        } catch (IOException e) {
+            // O journal já está parado: o registro parcial fica no fim e é descartado na leitura
+            System.err.println("[LEDGER] Não foi possível truncar o journal: " + e.getMessage());
+        }
+    }
+
+    private void forcar() {
+        try {
+            canal.force(false);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // --- Serialização ---
+
+    static void escrever(ByteArrayOutputStream destino, RegistroLedger r) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeLong(r.seq());
+        out.writeByte(r.tipo().codigo());
+        out.writeLong(r.instante());
+        out.writeUTF(r.cpf());
+        out.writeUTF(r.contraparte() != null ? r.contraparte() : "");
+        out.writeLong(r.valor());
+        out.writeLong(r.saldoApos());
+        out.writeUTF(r.detalhe() != null ? r.detalhe() : "");
+        out.writeUTF(r.chave() != null ? r.chave() : "");
+        out.writeByte(r.movimento().codigo());
+        out.flush();
+
+        byte[] dados = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(dados);
+        DataOutputStream cabecalho = new DataOutputStream(destino);
+        cabecalho.writeInt(dados.length);
+        cabecalho.writeInt((int) crc.getValue());
+        cabecalho.write(dados);
+        cabecalho.flush();
+    }
+
+    /** Lê todos os registros íntegros do journal (lista vazia se o arquivo não existir). */
+    static List<RegistroLedger> ler(Path arquivo) throws IOException {
+        List<RegistroLedger> registros = new ArrayList<>();
+        if (!Files.exists(arquivo)) return registros;
+
+        try (InputStream is = Files.newInputStream(arquivo);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+            while (true) {
+                int tamanho;
+                int crcEsperado;
+                byte[] dados;
+                try {
+                    tamanho = in.readInt();
+                    crcEsperado = in.readInt();
+                    if (tamanho <= 0 || tamanho > 1 << 20) break;
+                    dados = in.readNBytes(tamanho);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (dados.length < tamanho) break; // Escrita interrompida no fim do arquivo
+                CRC32 crc = new CRC32();
+                crc.update(dados);
+                if ((int) crc.getValue() != crcEsperado) break;
+
+                DataInputStream r = new DataInputStream(new ByteArrayInputStream(dados));
+                long seq = r.readLong();
+                TipoRegistro tipo = TipoRegistro.deCodigo(r.readByte());
+                long instante = r.readLong();
+                String cpf = r.readUTF();
+                String contraparte = r.readUTF();
+                long valor = r.readLong();
+                long saldoApos = r.readLong();
+                String detalhe = r.readUTF();
+                String chave = r.readUTF();
+                TipoMovimentacao movimento;
+                if (r.available() > 0) {
+                    movimento = TipoMovimentacao.deCodigo(r.readUnsignedByte());
+                } else if (tipo == TipoRegistro.COMPRA_CREDITO) {
+                    movimento = TipoMovimentacao.COMPRA_CREDITO; // Já era só a descrição da compra
+                } else {
+                    // Formato anterior: o texto do extrato estava no lugar do detalhe
+                    TipoMovimentacao.Decomposto d = TipoMovimentacao.decompor(detalhe);
+                    movimento = d.tipo();
+                    detalhe = d.detalhe();
+                }
+                registros.add(new RegistroLedger(seq, tipo, instante, cpf,
+                        contraparte.isEmpty() ? null : contraparte, valor, saldoApos,
+                        movimento, detalhe == null || detalhe.isEmpty() ? null : detalhe,
+                        chave.isEmpty() ? null : chave));
+            }
+        }
+        return registros;
+    }
+}
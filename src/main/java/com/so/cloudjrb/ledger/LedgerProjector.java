@@ -0,0 +1,302 @@
+package com.so.cloudjrb.ledger;
+
+import com.so.cloudjrb.model.Account;
+import com.so.cloudjrb.model.ContaCorrente;
+import com.so.cloudjrb.model.ContaPoupanca;
+import com.so.cloudjrb.model.LedgerProjecao;
+import com.so.cloudjrb.repository.AccountRepository;
+import com.so.cloudjrb.repository.LedgerProjecaoRepository;
+import com.so.cloudjrb.service.ContaCache;
+import com.so.cloudjrb.service.TransferenciaDedupStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Projeta os registros do journal nas tabelas existentes ('accounts',
+ * 'movimentacoes', faturas), de forma assíncrona e em lotes.
+ *
+ * O saldo projetado é o 'saldoApos' do registro, então o banco converge
+ * exatamente para o estado do motor. O último seq aplicado é gravado na mesma
+ * transação (LedgerProjecao), o que torna a projeção idempotente após um crash.
+ *
+ * Erros transitórios (banco ocupado, conflito de versão) são repetidos sem limite.
+ * Um lote que falha 'max-tentativas' vezes por outro motivo é refeito registro a
+ * registro, e o que ainda falhar é estacionado em 'projecao-estacionados.log' (mesmo
+ * formato do journal), com alerta no log e na métrica ledger.projecao.estacionados,
+ * para que um registro com problema não pare a projeção de todos os seguintes.
+ */
+@Component
+@ConditionalOnProperty(name = LedgerEngine.HABILITADO, havingValue = "true")
+public class LedgerProjector implements Runnable {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private LedgerProjecaoRepository projecaoRepository;
+
+    @Autowired
+    private TransferenciaDedupStore transferenciaDedupStore;
+
+    @Autowired
+    private ContaCache contaCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.ledger.projecao.lote:500}")
+    private int tamanhoLote;
+
+    // Falhas não transitórias de um mesmo lote antes de isolar os registros com problema
+    @Value("${app.ledger.projecao.max-tentativas:5}")
+    private int maxTentativas;
+
+    @Value("${app.ledger.diretorio:./data/ledger/}")
+    private String diretorio;
+
+    private final BlockingQueue<RegistroLedger> fila = new LinkedBlockingQueue<>();
+    private TransactionTemplate transacao;
+    private TransactionTemplate leitura;
+    private Counter estacionados;
+    private volatile boolean ativo;
+    private Thread thread;
+
+    @PostConstruct
+    void configurar() {
+        transacao = new TransactionTemplate(transactionManager);
+        leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+        meterRegistry.gauge("ledger.projecao.pendentes", fila, BlockingQueue::size);
+        estacionados = meterRegistry.counter("ledger.projecao.estacionados");
+    }
+
+    /**
+     * Copia os dados cadastrais do banco (tipo, limites, cartões). Com 'valores',
+     * copia também o que o motor passa a controlar depois (investimento, fatura,
+     * encerramento): só para contas que o motor ainda não conhece.
+     */
+    static void atualizarCadastro(EstadoConta e, Account conta, boolean valores) {
+        e.titular = conta.getTitular();
+        if (conta instanceof ContaCorrente cc) {
+            e.corrente = true;
+            e.limiteCheque = cc.getLimiteChequeEspecial();
+        } else if (conta instanceof ContaPoupanca cp) {
+            e.corrente = false;
+            if (valores) e.investimento = cp.getInvestimento();
+        }
+        e.temDebito = conta.getCartaoDebito() != null;
+        e.temCredito = conta.getCartaoCredito() != null;
+        if (e.temCredito) {
+            e.limiteCredito = conta.getCartaoCredito().getLimite();
+            if (valores) e.fatura = conta.getCartaoCredito().getFaturaTotal();
+        }
+        if (valores) e.encerrada = conta.isEncerrada();
+    }
+
+    /** Contas do banco, para sincronizar o cadastro no motor após a recuperação. */
+    List<Account> contasDoBanco() {
+        return leitura.execute(status -> new ArrayList<>(accountRepository.buscarTodasComCartoes()));
+    }
+
+    long ultimoProjetado() {
+        Long seq = leitura.execute(status -> projecaoRepository.findById(LedgerProjecao.ID)
+                .map(LedgerProjecao::getUltimoSeq).orElse(-1L));
+        return seq != null ? seq : -1L;
+    }
+
+    void enfileirar(List<RegistroLedger> registros) {
+        fila.addAll(registros);
+    }
+
+    void iniciar() {
+        ativo = true;
+        thread = new Thread(this, "ledger-projecao");
+        thread.start();
+    }
+
+    void parar() throws InterruptedException {
+        ativo = false;
+        if (thread != null) thread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    @Override
+    public void run() {
+        List<RegistroLedger> lote = new ArrayList<>(tamanhoLote);
+        int falhas = 0;
+        while (ativo || !fila.isEmpty() || !lote.isEmpty()) {
+            try {
+                if (lote.isEmpty()) {
+                    RegistroLedger primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+                    if (primeiro == null) continue;
+                    lote.add(primeiro);
+                    fila.drainTo(lote, tamanhoLote - 1);
+                }
+                if (falhas >= maxTentativas) projetarIsolando(lote);
+                else projetar(lote);
+                lote.clear();
+                falhas = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Mantém o lote e tenta de novo; só erros não transitórios contam para isolar
+                if (!transitorio(e)) falhas++;
+                System.err.println("[LEDGER] Erro na projeção (" + falhas + "/" + maxTentativas
+                        + "), tentando novamente: " + e.getMessage());
+                try {
+                    TimeUnit.SECONDS.sleep(1);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Recuperação: projeta o que faltava; se o lote falhar, isola os registros com problema. */
+    void projetarNaRecuperacao(List<RegistroLedger> registros) {
+        try {
+            projetar(registros);
+        } catch (RuntimeException e) {
+            if (transitorio(e)) throw e;
+            System.err.println("[LEDGER] Erro na projeção da recuperação, projetando registro a registro: " + e.getMessage());
+            projetarIsolando(registros);
+        }
+    }
+
+    // Um registro por transação; os que falharem sem ser por erro transitório são estacionados
+    private void projetarIsolando(List<RegistroLedger> registros) {
+        for (RegistroLedger r : registros) {
+            try {
+                projetar(List.of(r));
+            } catch (RuntimeException e) {
+                if (transitorio(e)) throw e;
+                estacionar(r, e);
+            }
+        }
+    }
+
+    /**
+     * Guarda o registro em 'projecao-estacionados.log' para tratamento manual e o marca
+     * como projetado, liberando os seguintes.
+     */
+    private void estacionar(RegistroLedger r, Exception erro) {
+        Path arquivo = Path.of(diretorio).resolve("projecao-estacionados.log");
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+            LedgerJournal.escrever(buffer, r);
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) canal.write(bytes);
+            canal.force(false);
+        } catch (IOException e) {
+            // Sem onde guardar: não pode pular o registro, a projeção continua tentando
+            throw new IllegalStateException("Não foi possível estacionar o registro seq " + r.seq(), e);
+        }
+        transacao.executeWithoutResult(status -> {
+            LedgerProjecao progresso = projecaoRepository.findById(LedgerProjecao.ID).orElseGet(LedgerProjecao::new);
+            if (progresso.getUltimoSeq() < r.seq()) {
+                progresso.setUltimoSeq(r.seq());
+                projecaoRepository.save(progresso);
+            }
+        });
+        estacionados.increment();
+        System.err.println("[LEDGER] ALERTA: registro seq " + r.seq() + " (" + r.tipo() + ", CPF " + r.cpf()
+                + ") não pôde ser projetado e foi estacionado em " + arquivo + ": " + erro.getMessage());
+    }
+
+    // Banco ocupado/fora do ar, conflito de versão: passa sozinho, não é culpa do registro
+    private static boolean transitorio(Throwable e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    /** Aplica os registros no banco numa transação; registros já projetados são ignorados. */
+    void projetar(List<RegistroLedger> registros) {
+        transacao.executeWithoutResult(status -> {
+            LedgerProjecao progresso = projecaoRepository.findById(LedgerProjecao.ID).orElseGet(LedgerProjecao::new);
+            long ultimo = progresso.getUltimoSeq();
+
+            Map<String, Account> contas = new HashMap<>();
+            for (RegistroLedger r : registros) {
+                if (r.seq() <= ultimo) continue;
+                Account conta = contas.computeIfAbsent(r.cpf(), cpf -> accountRepository.findById(cpf).orElse(null));
+                if (conta == null) {
+                    System.err.println("[LEDGER] Conta " + r.cpf() + " não encontrada na projeção do seq " + r.seq());
+                } else {
+                    aplicar(conta, r);
+                }
+                ultimo = r.seq();
+            }
+            progresso.setUltimoSeq(ultimo);
+            projecaoRepository.save(progresso);
+            contaCache.invalidar(contas.keySet());
+        });
+    }
+
+    private void aplicar(Account conta, RegistroLedger r) {
+        long valor = r.valor();
+        switch (r.tipo()) {
+            case DEPOSITO, TRANSFERENCIA_CREDITO, TRANSFERENCIA_ESTORNO -> movimentar(conta, r, valor);
+            case SAQUE, DEBITO, TRANSFERENCIA_DEBITO -> movimentar(conta, r, -valor);
+            case PAGAMENTO_FATURA -> {
+                movimentar(conta, r, -valor);
+                conta.getCartaoCredito().getFaturaAtual().pagar();
+            }
+            case COMPRA_CREDITO -> conta.getCartaoCredito().getFaturaAtual().adicionarCompra(r.detalhe(), valor, r.instante());
+            case INVESTIMENTO -> {
+                movimentar(conta, r, -valor);
+                ContaPoupanca cp = (ContaPoupanca) conta;
+                long rendimento = LedgerEngine.rendimentoPoupanca(r.valor());
+                cp.setInvestimento(cp.getInvestimento() + r.valor() + rendimento);
+            }
+            case RESGATE -> {
+                movimentar(conta, r, valor);
+                ContaPoupanca cp = (ContaPoupanca) conta;
+                cp.setInvestimento(cp.getInvestimento() - r.valor());
+            }
+            case ENCERRAMENTO -> conta.encerrar(r.instante());
+        }
+
+        // Transferências identificadas também ficam registradas para a deduplicação
+        if (r.tipo() == TipoRegistro.TRANSFERENCIA_DEBITO && r.chave() != null
+                && !r.chave().startsWith(LedgerEngine.PREFIXO_CHAVE_INTERNA)
+                && !transferenciaDedupStore.jaProcessada(r.chave())) {
+            transferenciaDedupStore.registrar(r.chave());
+        }
+    }
+
+    private void movimentar(Account conta, RegistroLedger r, long valorComSinal) {
+        conta.setSaldo(r.saldoApos());
+        conta.registrar(r.movimento(), valorComSinal, r.contraparte(), r.detalhe(), r.instante());
+    }
+}
@@ -0,0 +1,85 @@
+package com.so.cloudjrb.ledger;
+
+import com.so.cloudjrb.exception.DomainException;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Um shard do motor: uma fila de tarefas e uma única thread que as executa.
+ * Todas as contas do shard só são alteradas por essa thread, então as regras
+ * de saldo rodam sem locks.
+ *
+ * Pedidos externos ocupam uma vaga de 'capacidade' (back-pressure para quem chama);
+ * créditos de transferência vindos de outros shards entram sem limite, para que
+ * dois shards cheios nunca fiquem esperando um pelo outro.
+ */
+final class LedgerShard implements Runnable {
+
+    private final int indice;
+    private final BlockingQueue<Runnable> fila = new LinkedBlockingQueue<>();
+    private final Semaphore vagas;
+    private volatile boolean ativo;
+    private Thread thread;
+
+    LedgerShard(int indice, int capacidade) {
+        this.indice = indice;
+        this.vagas = new Semaphore(capacidade);
+    }
+
+    void iniciar() {
+        ativo = true;
+        thread = new Thread(this, "ledger-shard-" + indice);
+        thread.start();
+    }
+
+    void parar() throws InterruptedException {
+        ativo = false;
+        if (thread != null) thread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /** Pedido vindo de fora do motor (HTTP, fila): espera uma vaga por até 'esperaMs'. */
+    void executarExterno(Runnable tarefa, long esperaMs) {
+        try {
+            if (!vagas.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                throw new DomainException("Sistema ocupado, tente novamente.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DomainException("Operação interrompida.");
+        }
+        fila.add(() -> {
+            try {
+                tarefa.run();
+            } finally {
+                vagas.release();
+            }
+        });
+    }
+
+    /** Tarefa interna (ex: crédito de uma transferência de outro shard). */
+    void executarInterno(Runnable tarefa) {
+        fila.add(tarefa);
+    }
+
+    int pendentes() {
+        return fila.size();
+    }
+
+    @Override
+    public void run() {
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Runnable tarefa = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (tarefa != null) tarefa.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("[LEDGER] Erro no shard " + indice + ": " + e.getMessage());
+            }
+        }
+    }
+}
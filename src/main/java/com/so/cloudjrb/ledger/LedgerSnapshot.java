@@ -0,0 +1,90 @@
+package com.so.cloudjrb.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fotografia do estado de todas as contas até um seq do journal.
+ * Gravada num arquivo temporário, sincronizada em disco e então renomeada,
+ * para nunca sobrar um snapshot pela metade.
+ */
+final class LedgerSnapshot {
+
+    private static final int MAGIC = 0x4C444752; // "LDGR"
+    private static final int VERSAO = 1;
+
+    final long ultimoSeq;
+    final Map<String, EstadoConta> contas;
+
+    LedgerSnapshot(long ultimoSeq, Map<String, EstadoConta> contas) {
+        this.ultimoSeq = ultimoSeq;
+        this.contas = contas;
+    }
+
+    /** Lê o snapshot, ou devolve null se ainda não existir. */
+    static LedgerSnapshot ler(Path arquivo) throws IOException {
+        if (!Files.exists(arquivo)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSAO) {
+                throw new IOException("Snapshot do ledger inválido: " + arquivo);
+            }
+            long ultimoSeq = in.readLong();
+            int n = in.readInt();
+            Map<String, EstadoConta> contas = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                EstadoConta e = new EstadoConta(in.readUTF());
+                e.titular = in.readUTF();
+                e.corrente = in.readBoolean();
+                e.saldo = in.readLong();
+                e.limiteCheque = in.readLong();
+                e.investimento = in.readLong();
+                e.encerrada = in.readBoolean();
+                e.temDebito = in.readBoolean();
+                e.temCredito = in.readBoolean();
+                e.limiteCredito = in.readLong();
+                e.fatura = in.readLong();
+                contas.put(e.cpf, e);
+            }
+            return new LedgerSnapshot(ultimoSeq, contas);
+        }
+    }
+
+    void gravar(Path arquivo) throws IOException {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(temporario);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSAO);
+            out.writeLong(ultimoSeq);
+            out.writeInt(contas.size());
+            for (EstadoConta e : contas.values()) {
+                out.writeUTF(e.cpf);
+                out.writeUTF(e.titular != null ? e.titular : "");
+                out.writeBoolean(e.corrente);
+                out.writeLong(e.saldo);
+                out.writeLong(e.limiteCheque);
+                out.writeLong(e.investimento);
+                out.writeBoolean(e.encerrada);
+                out.writeBoolean(e.temDebito);
+                out.writeBoolean(e.temCredito);
+                out.writeLong(e.limiteCredito);
+                out.writeLong(e.fatura);
+            }
+        }
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
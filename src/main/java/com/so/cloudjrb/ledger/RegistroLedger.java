@@ -0,0 +1,30 @@
+package com.so.cloudjrb.ledger;
+
+import com.so.cloudjrb.model.TipoMovimentacao;
+
+/**
+ * Uma operação aplicada pelo motor, como gravada no journal.
+ *
+ * 'valor' é sempre positivo (centavos) e 'saldoApos' é o saldo da conta depois da
+ * operação, para a projeção no banco não depender de recalcular nada.
+ * 'movimento', 'contraparte' e 'detalhe' vão como estão para a movimentação no banco
+ * (o texto do extrato é montado na leitura, ver TipoMovimentacao.descrever).
+ * 'chave' liga os registros de uma mesma transferência (débito, crédito/estorno).
+ * 'seq' é a posição no journal, atribuída na gravação.
+ */
+public record RegistroLedger(
+        long seq,
+        TipoRegistro tipo,
+        long instante,
+        String cpf,
+        String contraparte,
+        long valor,
+        long saldoApos,
+        TipoMovimentacao movimento,
+        String detalhe,
+        String chave
+) {
+    public RegistroLedger comSeq(long novoSeq) {
+        return new RegistroLedger(novoSeq, tipo, instante, cpf, contraparte, valor, saldoApos, movimento, detalhe, chave);
+    }
+}
@@ -0,0 +1,36 @@
+package com.so.cloudjrb.ledger;
+
+/**
+ * Tipos de registro do journal. O código (byte) é o que vai para o arquivo,
+ * então os valores existentes nunca devem mudar.
+ */
+public enum TipoRegistro {
+    DEPOSITO(1),
+    SAQUE(2),
+    DEBITO(3),               // boleto, compra no débito
+    PAGAMENTO_FATURA(4),
+    TRANSFERENCIA_DEBITO(5),
+    TRANSFERENCIA_CREDITO(6),
+    TRANSFERENCIA_ESTORNO(7), // destino encerrado/inexistente: devolve à origem
+    COMPRA_CREDITO(8),
+    INVESTIMENTO(9),
+    RESGATE(10),
+    ENCERRAMENTO(11);
+
+    private final byte codigo;
+
+    TipoRegistro(int codigo) {
+        this.codigo = (byte) codigo;
+    }
+
+    public byte codigo() {
+        return codigo;
+    }
+
+    public static TipoRegistro deCodigo(byte codigo) {
+        for (TipoRegistro t : values()) {
+            if (t.codigo == codigo) return t;
+        }
+        throw new IllegalArgumentException("Tipo de registro desconhecido: " + codigo);
+    }
+}
@@ -3,7 +3,9 @@ package com.so.cloudjrb.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.so.cloudjrb.exception.DomainException;
 import jakarta.persistence.*;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,8 +16,33 @@ import java.util.List;
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 // Nome da coluna que identifica o tipo (ex: "CORRENTE" ou "POUPANCA")
 @DiscriminatorColumn(name = "tipo_conta", discriminatorType = DiscriminatorType.STRING)
+// Planos de carga por caso de uso (ver AccountRepository). Todas as relações são LAZY;
+// cada plano diz exatamente o que vem junto no SELECT da conta.
+@NamedEntityGraph(name = Account.PLANO_SALDO) // depósito, saque, boleto, transferência, extrato
+@NamedEntityGraph(name = Account.PLANO_DEBITO, attributeNodes = @NamedAttributeNode("cartaoDebito"))
+@NamedEntityGraph(name = Account.PLANO_CREDITO,
+        attributeNodes = @NamedAttributeNode(value = "cartaoCredito", subgraph = "fatura"),
+        subgraphs = @NamedSubgraph(name = "fatura", attributeNodes = @NamedAttributeNode("faturaAtual")))
+@NamedEntityGraph(name = Account.PLANO_PAGAR_FATURA,
+        attributeNodes = @NamedAttributeNode(value = "cartaoCredito", subgraph = "fatura"),
+        subgraphs = {
+                @NamedSubgraph(name = "fatura", attributeNodes = @NamedAttributeNode(value = "faturaAtual", subgraph = "compras")),
+                @NamedSubgraph(name = "compras", attributeNodes = @NamedAttributeNode("compras"))
+        })
+@NamedEntityGraph(name = Account.PLANO_CARTOES,
+        attributeNodes = {
+                @NamedAttributeNode(value = "cartaoCredito", subgraph = "fatura"),
+                @NamedAttributeNode("cartaoDebito")
+        },
+        subgraphs = @NamedSubgraph(name = "fatura", attributeNodes = @NamedAttributeNode("faturaAtual")))
 public abstract class Account {
 
+    public static final String PLANO_SALDO = "Account.saldo";
+    public static final String PLANO_DEBITO = "Account.compraDebito";
+    public static final String PLANO_CREDITO = "Account.compraCredito";
+    public static final String PLANO_PAGAR_FATURA = "Account.pagamentoFatura";
+    public static final String PLANO_CARTOES = "Account.cartoes";
+
     @Id // Define o CPF como Chave Primária
     @Column(length = 14)
     private String cpf;
@@ -28,115 +55,111 @@ public abstract class Account {
     @JsonIgnore // Impede que a senha seja enviada no JSON de resposta
     protected String senha;
 
-    protected Double saldo;
+    @Convert(converter = CentavosConverter.class) // Em centavos (ver Dinheiro)
+    protected long saldo;
+
+    // Controle de concorrência otimista: dois updates concorrentes na mesma conta
+    // não se sobrescrevem; o segundo falha e é repetido (ver @RetryOnConflict)
+    @Version
+    private Long versao;
     protected boolean encerrada = false;
     protected String dataEncerramento = null;
 
     // Relação: Uma Conta tem Muitas Movimentações
     // CascadeType.ALL: Salva/deleta movimentações junto com a conta
     // OrphanRemoval: Remove do DB se for removida da lista
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
-    @JoinColumn(name = "account_cpf") // Chave estrangeira na tabela 'movimentacoes'
+    // mappedBy: a chave estrangeira é gravada pela Movimentacao, então incluir um
+    // item na lista não carrega as movimentações antigas (o Hibernate só enfileira)
+    @OneToMany(mappedBy = "conta", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     protected List<Movimentacao> movimentacoes = new ArrayList<>();
 
     // Relação: Uma Conta tem Um Cartão de Crédito
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    // LAZY: só vem junto quando o plano de carga da operação pede
+    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JoinColumn(name = "cartao_credito_id", referencedColumnName = "id")
     protected CartaoCredito cartaoCredito;
 
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JoinColumn(name = "cartao_debito_id", referencedColumnName = "id")
     protected CartaoDebito cartaoDebito;
 
-    // @Transient: Indica ao JPA para NÃO salvar estes campos no DB
-    @Transient
-    protected int tentativasSenha = 0;
-    @Transient
-    protected long bloqueioAte = 0L;
-
     // Construtor padrão obrigatório para JPA
     public Account() {}
 
-    public Account(String cpf, Integer numero, String titular, String senha, Double saldo) {
+    public Account(String cpf, Integer numero, String titular, String senha, long saldo) {
         this.cpf = cpf;
         this.numero = numero;
         this.titular = titular;
         this.senha = senha;
-        this.saldo = saldo != null ? saldo : 0.0;
+        this.saldo = saldo;
         if (saldo > 0) {
-            registrar("Depósito Inicial", saldo);
+            registrar(TipoMovimentacao.DEPOSITO_INICIAL, saldo);
         }
     }
 
     // --- Métodos de Negócio (Lógica original) ---
 
-    public void depositar(Double valor) {
-        if (valor == null || valor <= 0) throw new DomainException("Valor inválido para depósito.");
+    public void depositar(long valor) {
+        if (valor <= 0) throw new DomainException("Valor inválido para depósito.");
         if (this.isEncerrada()) throw new DomainException("Conta encerrada.");
         saldo += valor;
-        registrar("Depósito", valor);
+        registrar(TipoMovimentacao.DEPOSITO, valor);
     }
 
     // Implementação padrão de saque
-    public void sacar(Double valor) {
-        if (valor == null || valor <= 0) throw new DomainException("Valor inválido para saque.");
+    public void sacar(long valor) {
+        if (valor <= 0) throw new DomainException("Valor inválido para saque.");
         if (this.isEncerrada()) throw new DomainException("Conta encerrada.");
         if (valor > saldo) throw new DomainException("Saldo insuficiente.");
         saldo -= valor;
-        registrar("Saque", -valor);
+        registrar(TipoMovimentacao.SAQUE, -valor);
     }
 
-    public void debitarInterno(Double valor, String descricao) {
-        if (valor == null || valor <= 0) throw new DomainException("Valor inválido.");
+    // 'detalhe': código do boleto, estabelecimento... (ver TipoMovimentacao)
+    public void debitarInterno(long valor, TipoMovimentacao tipo, String detalhe) {
+        if (valor <= 0) throw new DomainException("Valor inválido.");
         if (this.isEncerrada()) throw new DomainException("Conta encerrada.");
         if (valor > saldo) throw new DomainException("Saldo insuficiente.");
         saldo -= valor;
-        registrar(descricao, -valor);
+        registrar(tipo, -valor, null, detalhe);
     }
 
-    protected void registrar(String tipo, Double valor) {
-        if (movimentacoes == null) {
-            movimentacoes = new ArrayList<>();
-        }
-        movimentacoes.add(Movimentacao.of(tipo, valor));
-    }
-
-    // --- Lógica de Senha e Bloqueio ---
-
-    public boolean validarSenha(String senhaDigitada) {
-        return senha.equals(senhaDigitada);
+    public void registrar(TipoMovimentacao tipo, long valor) {
+        registrar(tipo, valor, null, null);
     }
 
-    public boolean estaBloqueada() {
-        return System.currentTimeMillis() < bloqueioAte;
+    public void registrar(TipoMovimentacao tipo, long valor, String contraparte, String detalhe) {
+        registrar(tipo, valor, contraparte, detalhe, System.currentTimeMillis());
     }
 
-    public void registrarTentativaSenha(boolean sucesso) {
-        if (sucesso) {
-            tentativasSenha = 0;
-            bloqueioAte = 0L;
-        } else {
-            tentativasSenha++;
-            if (tentativasSenha >= 3) bloquearTemporariamente();
+    // Com o instante (epoch ms) em que a operação de fato ocorreu (ex: projeção do ledger)
+    public void registrar(TipoMovimentacao tipo, long valor, String contraparte, String detalhe, long instante) {
+        if (movimentacoes == null) {
+            movimentacoes = new ArrayList<>();
         }
+        Movimentacao m = Movimentacao.of(tipo, valor, contraparte, detalhe, instante);
+        m.setConta(this);
+        movimentacoes.add(m);
     }
 
-    private void bloquearTemporariamente() {
-        tentativasSenha = 0;
-        bloqueioAte = System.currentTimeMillis() + (5 * 60 * 1000L); // 5 minutos
-    }
+    // --- Senha ---
+    // (Tentativas e bloqueio de login: ver LimitadorLogin)
 
-    public void desbloquear() {
-        tentativasSenha = 0;
-        bloqueioAte = 0L;
+    public boolean validarSenha(String senhaDigitada) {
+        return senha.equals(senhaDigitada);
     }
 
     // --- Cancelamento ---
     public void encerrar() {
+        encerrar(System.currentTimeMillis());
+    }
+
+    // Com o instante (epoch ms) do encerramento de fato (ex: projeção do ledger)
+    public void encerrar(long instante) {
         this.encerrada = true;
-        this.dataEncerramento = LocalDateTime.now()
+        this.dataEncerramento = LocalDateTime.ofInstant(Instant.ofEpochMilli(instante), ZoneId.systemDefault())
                 .format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
-        registrar("Conta encerrada em " + this.dataEncerramento, 0.0);
+        registrar(TipoMovimentacao.ENCERRAMENTO, 0L, null, null, instante);
     }
 
     // --- Getters e Setters (Necessários para JPA e Serialização) ---
@@ -144,11 +167,11 @@ public abstract class Account {
     public Integer getNumero() { return numero; }
     public String getTitular() { return titular; }
     public String getSenha() { return senha; }
-    public Double getSaldo() { return saldo; }
+    public long getSaldo() { return saldo; }
     public boolean isEncerrada() { return encerrada; }
     public String getDataEncerramento() { return dataEncerramento; }
     public List<Movimentacao> getMovimentacoes() { return movimentacoes; }
-    public void setSaldo(Double saldo) { this.saldo = saldo; }
+    public void setSaldo(long saldo) { this.saldo = saldo; }
     public CartaoCredito getCartaoCredito() { return cartaoCredito; }
     public void setCartaoCredito(CartaoCredito c) { this.cartaoCredito = c; }
     public CartaoDebito getCartaoDebito() { return cartaoDebito; }
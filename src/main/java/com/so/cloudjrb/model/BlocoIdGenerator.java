@@ -0,0 +1,65 @@
+package com.so.cloudjrb.model;
+
+import com.so.cloudjrb.service.ReservaSequencias;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gerador de ids em bloco ("pooled") que funciona no SQLite.
+ *
+ * Reserva 'tamanho' ids de uma vez pela ReservaSequencias, confirmada na hora e
+ * fora da transação atual: se ela sofrer rollback (inteiro ou até um savepoint),
+ * o bloco segue reservado e os ids não se repetem. A reserva nunca começa abaixo
+ * do maior id já gravado.
+ */
+public class BlocoIdGenerator implements IdentifierGenerator {
+
+    private final String tabela;
+    private final int tamanho;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Bloco atual: [proximo, limite)
+    private long proximo;
+    private long limite;
+
+    public BlocoIdGenerator(IdEmBloco config, Member member, CustomIdGeneratorCreationContext context) {
+        this.tabela = context.getRootClass().getTable().getName();
+        this.tamanho = config.tamanho();
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        lock.lock();
+        try {
+            if (proximo >= limite) {
+                long fim = ReservaSequencias.instancia().reservar(tabela, maiorId(session) + 1, tamanho);
+                proximo = fim - tamanho;
+                limite = fim;
+            }
+            return proximo++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Lido na conexão da transação atual (inclui o que ela já gravou)
+    private long maiorId(SharedSessionContractImplementor session) {
+        Connection con = session.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection();
+        try (PreparedStatement ps = con.prepareStatement("select coalesce(max(id), 0) from " + tabela);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper()
+                    .convert(e, "Erro ao reservar ids para " + tabela);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.so.cloudjrb.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Bloqueio de login em vigor (por CPF ou por IP). Gravado quando o limite de
+ * tentativas é atingido e lido na subida, para o bloqueio sobreviver a um restart.
+ */
+@Entity
+@Table(name = "bloqueios_login")
+public class BloqueioLogin {
+
+    // "cpf:<cpf>" ou "ip:<endereço>"
+    @Id
+    @Column(length = 80)
+    private String chave;
+
+    // Epoch em milissegundos até quando o login fica bloqueado
+    @Column(nullable = false)
+    private long bloqueadoAte;
+
+    // Construtor padrão JPA
+    public BloqueioLogin() {}
+
+    public BloqueioLogin(String chave, long bloqueadoAte) {
+        this.chave = chave;
+        this.bloqueadoAte = bloqueadoAte;
+    }
+
+    public String getChave() { return chave; }
+    public long getBloqueadoAte() { return bloqueadoAte; }
+}
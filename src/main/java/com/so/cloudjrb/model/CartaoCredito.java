@@ -11,30 +11,36 @@ import java.time.format.DateTimeFormatter;
 public class CartaoCredito {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdEmBloco
     private Long id;
 
+    @Column(unique = true) // Conferido pelo EmissorNumerosCartao antes da emissão
     private String numero;
     private String validade;
     private String cvv;
-    private double limite;
+    @Convert(converter = CentavosConverter.class)
+    private long limite;
 
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    // Mesmo controle de Account e Fatura (ver @RetryOnConflict)
+    @Version
+    private Long versao;
+
+    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JoinColumn(name = "fatura_id", referencedColumnName = "id")
     private Fatura faturaAtual;
 
     // Construtor padrão JPA
     public CartaoCredito() {}
 
-    public CartaoCredito(double limite, NumberGenerator numberGen) {
-        this.numero = numberGen.gerarNumeroCartao();
+    public CartaoCredito(long limite, NumberGenerator numberGen) {
+        this.numero = numberGen.gerarNumeroCartaoCredito();
         this.validade = LocalDate.now().plusYears(5).format(DateTimeFormatter.ofPattern("MM/yy"));
         this.cvv = numberGen.gerarCVV();
         this.limite = limite;
         this.faturaAtual = new Fatura();
     }
 
-    public void comprar(String descricao, double valor) {
+    public void comprar(String descricao, long valor) {
         if (valor <= 0) throw new DomainException("Valor inválido para compra.");
         if (valor > getLimiteDisponivel()) throw new DomainException("Limite insuficiente.");
         if (faturaAtual == null) {
@@ -49,16 +55,16 @@ public class CartaoCredito {
         }
         // A lógica de saldo (incluindo cheque especial) é tratada
         // pelo método debitarInterno da própria conta.
-        conta.debitarInterno(faturaAtual.getTotal(), "Pagamento de Fatura do Cartão");
+        conta.debitarInterno(faturaAtual.getTotal(), TipoMovimentacao.PAGAMENTO_FATURA, null);
         faturaAtual.pagar();
     }
 
     // --- Getters ---
     public Long getId() { return id; }
-    public double getLimite() { return limite; }
-    public double getFaturaTotal() { return faturaAtual != null ? faturaAtual.getTotal() : 0.0; }
+    public long getLimite() { return limite; }
+    public long getFaturaTotal() { return faturaAtual != null ? faturaAtual.getTotal() : 0L; }
     public Fatura getFaturaAtual() { return faturaAtual; }
-    public double getLimiteDisponivel() { return limite - getFaturaTotal(); }
+    public long getLimiteDisponivel() { return limite - getFaturaTotal(); }
     public String getNumero() { return numero; }
     public String getValidade() { return validade; }
     public String getCvv() { return cvv; }
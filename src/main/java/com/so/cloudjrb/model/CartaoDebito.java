@@ -11,9 +11,10 @@ import java.time.format.DateTimeFormatter;
 public class CartaoDebito {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdEmBloco
     private Long id;
 
+    @Column(unique = true) // Conferido pelo EmissorNumerosCartao antes da emissão
     private String numero;
     private String validade;
     private String cvv;
@@ -22,16 +23,16 @@ public class CartaoDebito {
     public CartaoDebito() {}
 
     public CartaoDebito(NumberGenerator numberGen) {
-        this.numero = numberGen.gerarNumeroCartao();
+        this.numero = numberGen.gerarNumeroCartaoDebito();
         this.validade = LocalDate.now().plusYears(5).format(DateTimeFormatter.ofPattern("MM/yy"));
         this.cvv = numberGen.gerarCVV();
     }
 
-    public void comprar(Account conta, double valor, String descricao) {
+    public void comprar(Account conta, long valor, String descricao) {
         if (valor <= 0) throw new DomainException("Valor inválido para compra.");
         // A lógica de saldo (incluindo cheque especial) é tratada
         // pelo método debitarInterno da própria conta.
-        conta.debitarInterno(valor, "Compra Débito: " + descricao);
+        conta.debitarInterno(valor, TipoMovimentacao.COMPRA_DEBITO, descricao);
     }
 
     // --- Getters ---
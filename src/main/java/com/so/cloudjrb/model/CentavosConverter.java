@@ -0,0 +1,22 @@
+package com.so.cloudjrb.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Campo em centavos (long) <-> coluna em reais (REAL), o formato já existente no banco.
+ * A conversão só acontece ao ler/gravar; as operações trabalham sempre em centavos.
+ */
+@Converter
+public class CentavosConverter implements AttributeConverter<Long, Double> {
+
+    @Override
+    public Double convertToDatabaseColumn(Long centavos) {
+        return centavos == null ? null : Dinheiro.reais(centavos);
+    }
+
+    @Override
+    public Long convertToEntityAttribute(Double reais) {
+        return reais == null ? null : Dinheiro.centavos(reais);
+    }
+}
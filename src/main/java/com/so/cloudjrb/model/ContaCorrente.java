@@ -1,6 +1,7 @@
 package com.so.cloudjrb.model;
 
 import com.so.cloudjrb.exception.DomainException;
+import jakarta.persistence.Convert;
 import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 
@@ -8,55 +9,56 @@ import jakarta.persistence.Entity;
 @DiscriminatorValue("CORRENTE") // Valor que vai na coluna 'tipo_conta'
 public class ContaCorrente extends Account {
 
-    private double limiteChequeEspecial = 500.0;
+    @Convert(converter = CentavosConverter.class)
+    private long limiteChequeEspecial = 50_000; // R$ 500,00
 
     // Construtor padrão JPA
     public ContaCorrente() {
         super();
     }
 
-    public ContaCorrente(String cpf, Integer numero, String titular, String senha, Double saldo) {
+    public ContaCorrente(String cpf, Integer numero, String titular, String senha, long saldo) {
         super(cpf, numero, titular, senha, saldo);
     }
 
     @Override
-    public void sacar(Double valor) {
-        if (valor == null || valor <= 0)
+    public void sacar(long valor) {
+        if (valor <= 0)
             throw new DomainException("Valor inválido para saque.");
         if (this.isEncerrada()) throw new DomainException("Conta encerrada.");
 
-        double limiteDisponivel = saldo + limiteChequeEspecial;
+        long limiteDisponivel = saldo + limiteChequeEspecial;
         if (valor > limiteDisponivel)
             throw new DomainException("Saldo insuficiente (limite de cheque especial excedido).");
 
         saldo -= valor;
-        registrar("Saque (Conta Corrente)", -valor);
+        registrar(TipoMovimentacao.SAQUE_CORRENTE, -valor);
     }
 
     // Sobrescreve debitarInterno para permitir cheque especial
     @Override
-    public void debitarInterno(Double valor, String descricao) {
-        if (valor == null || valor <= 0) throw new DomainException("Valor inválido.");
+    public void debitarInterno(long valor, TipoMovimentacao tipo, String detalhe) {
+        if (valor <= 0) throw new DomainException("Valor inválido.");
         if (this.isEncerrada()) throw new DomainException("Conta encerrada.");
 
-        double limiteDisponivel = saldo + limiteChequeEspecial;
+        long limiteDisponivel = saldo + limiteChequeEspecial;
         if (valor > limiteDisponivel)
             throw new DomainException("Saldo insuficiente (limite de cheque especial excedido).");
 
         saldo -= valor;
-        registrar(descricao, -valor);
+        registrar(tipo, -valor, null, detalhe);
     }
 
-    public double getLimiteChequeEspecial() {
+    public long getLimiteChequeEspecial() {
         return limiteChequeEspecial;
     }
 
-    public void setLimiteChequeEspecial(double limiteChequeEspecial) {
+    public void setLimiteChequeEspecial(long limiteChequeEspecial) {
         this.limiteChequeEspecial = limiteChequeEspecial;
     }
 
-    public double getValorUsadoChequeEspecial() {
-        return saldo < 0 ? Math.abs(saldo) : 0.0;
+    public long getValorUsadoChequeEspecial() {
+        return saldo < 0 ? -saldo : 0L;
     }
 
     @Override
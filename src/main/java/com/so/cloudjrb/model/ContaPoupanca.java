@@ -1,6 +1,7 @@
 package com.so.cloudjrb.model;
 
 import com.so.cloudjrb.exception.DomainException;
+import jakarta.persistence.Convert;
 import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import java.time.LocalDate;
@@ -9,8 +10,11 @@ import java.time.LocalDate;
 @DiscriminatorValue("POUPANCA") // Valor que vai na coluna 'tipo_conta'
 public class ContaPoupanca extends Account {
 
-    private final double taxaRendimento = 0.005; // 0,5%
-    private double investimento = 0.0;
+    public static final double TAXA_RENDIMENTO = 0.005; // 0,5%
+
+    private final double taxaRendimento = TAXA_RENDIMENTO;
+    @Convert(converter = CentavosConverter.class)
+    private long investimento = 0L;
     private LocalDate ultimaAplicacao = LocalDate.now();
 
     // Construtor padrão JPA
@@ -18,47 +22,46 @@ public class ContaPoupanca extends Account {
         super();
     }
 
-    public ContaPoupanca(String cpf, Integer numero, String titular, String senha, Double saldo) {
+    public ContaPoupanca(String cpf, Integer numero, String titular, String senha, long saldo) {
         super(cpf, numero, titular, senha, saldo);
     }
 
     @Override
-    public void sacar(Double valor) {
-        if (valor == null || valor <= 0)
+    public void sacar(long valor) {
+        if (valor <= 0)
             throw new DomainException("Valor inválido para saque.");
         if (this.isEncerrada()) throw new DomainException("Conta encerrada.");
         if (valor > saldo)
             throw new DomainException("Saldo insuficiente (sem cheque especial).");
         saldo -= valor;
-        registrar("Saque (Conta Poupança)", -valor);
+        registrar(TipoMovimentacao.SAQUE_POUPANCA, -valor);
     }
 
-    public void investir(double valor) {
+    public void investir(long valor) {
         if (valor <= 0) throw new DomainException("Valor inválido para investir.");
         if (this.isEncerrada()) throw new DomainException("Conta encerrada.");
         if (valor > saldo) throw new DomainException("Saldo insuficiente para investir.");
 
-        double rendimento = valor * taxaRendimento;
-        double totalAplicado = valor + rendimento;
+        long rendimento = Dinheiro.aplicarTaxa(valor, taxaRendimento);
 
         saldo -= valor;
-        investimento = Math.round((investimento + totalAplicado) * 100.0) / 100.0;
+        investimento += valor + rendimento;
         ultimaAplicacao = LocalDate.now();
-        registrar(String.format("Aplicação em Poupança (Rendimento R$ %.2f)", rendimento), -valor);
+        registrar(TipoMovimentacao.APLICACAO_POUPANCA, -valor, null, Dinheiro.formatar(rendimento));
     }
 
-    public void resgatar(double valor) {
+    public void resgatar(long valor) {
         if (valor <= 0) throw new DomainException("Valor inválido para resgate.");
         if (this.isEncerrada()) throw new DomainException("Conta encerrada.");
         if (valor > investimento) throw new DomainException("Valor supera o montante investido.");
-        investimento = Math.round((investimento - valor) * 100.0) / 100.0;
+        investimento -= valor;
         saldo += valor;
-        registrar("Resgate de Poupança", valor);
+        registrar(TipoMovimentacao.RESGATE_POUPANCA, valor);
     }
 
     // --- Getters e Setters ---
-    public double getInvestimento() { return investimento; }
-    public void setInvestimento(double investimento) { this.investimento = investimento; }
+    public long getInvestimento() { return investimento; }
+    public void setInvestimento(long investimento) { this.investimento = investimento; }
     public LocalDate getUltimaAplicacao() { return ultimaAplicacao; }
     public void setUltimaAplicacao(LocalDate ultimaAplicacao) { this.ultimaAplicacao = ultimaAplicacao; }
 
@@ -0,0 +1,40 @@
+package com.so.cloudjrb.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valores monetários são 'long' em centavos em todo o modelo: a aritmética é exata
+ * e não cria objetos. Esta classe concentra as conversões de/para reais, usadas
+ * apenas nas bordas (banco, JSON, PDF e mensagens).
+ */
+public final class Dinheiro {
+
+    private Dinheiro() {}
+
+    public static long centavos(double reais) {
+        return Math.round(reais * 100.0);
+    }
+
+    public static long centavos(BigDecimal reais) {
+        return reais.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static double reais(long centavos) {
+        return centavos / 100.0;
+    }
+
+    public static BigDecimal decimal(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    /** Aplica uma taxa (ex: 0.005 = 0,5%) e arredonda para o centavo. */
+    public static long aplicarTaxa(long centavos, double taxa) {
+        return Math.round(centavos * taxa);
+    }
+
+    /** "R$ 10,50" (no formato local, como nos comprovantes e extratos). */
+    public static String formatar(long centavos) {
+        return String.format("R$ %.2f", reais(centavos));
+    }
+}
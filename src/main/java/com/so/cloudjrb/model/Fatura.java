@@ -10,16 +10,23 @@ import java.util.List;
 public class Fatura {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdEmBloco
     private Long id;
 
     private String mesReferencia;
     private LocalDate dataFechamento;
     private LocalDate dataVencimento;
-    private double total;
+    @Convert(converter = CentavosConverter.class)
+    private long total;
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
-    @JoinColumn(name = "fatura_id") // Chave estrangeira na tabela 'movimentacoes'
+    // Compras e pagamento concorrentes alteram o total: o segundo commit falha
+    // por conflito e é repetido (@RetryOnConflict), em vez de sobrescrever o primeiro
+    @Version
+    private Long versao;
+
+    // mappedBy: a chave estrangeira ('fatura_id') é gravada pela Movimentacao,
+    // então uma nova compra não carrega as anteriores
+    @OneToMany(mappedBy = "fatura", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<Movimentacao> compras = new ArrayList<>();
 
     // Construtor padrão JPA
@@ -27,20 +34,27 @@ public class Fatura {
         this.mesReferencia = LocalDate.now().getMonthValue() + "/" + LocalDate.now().getYear();
         this.dataFechamento = LocalDate.now().withDayOfMonth(25);
         this.dataVencimento = dataFechamento.plusDays(10);
-        this.total = 0.0;
+        this.total = 0L;
+    }
+
+    public void adicionarCompra(String descricao, long valor) {
+        adicionarCompra(descricao, valor, System.currentTimeMillis());
     }
 
-    public void adicionarCompra(String descricao, double valor) {
+    // 'instante' da compra (a projeção do ledger passa o do registro, não o da projeção)
+    public void adicionarCompra(String descricao, long valor, long instante) {
         if (compras == null) {
             compras = new ArrayList<>();
         }
-        compras.add(Movimentacao.of("Compra Crédito: " + descricao, valor));
+        Movimentacao compra = Movimentacao.of(TipoMovimentacao.COMPRA_CREDITO, valor, null, descricao, instante);
+        compra.setFatura(this);
+        compras.add(compra);
         total += valor;
     }
 
     public void pagar() {
         compras.clear();
-        total = 0.0;
+        total = 0L;
         // Reinicia datas para o próximo mês (ou lógica de fechamento)
         this.mesReferencia = LocalDate.now().plusMonths(1).getMonthValue() + "/" + LocalDate.now().plusMonths(1).getYear();
         this.dataFechamento = LocalDate.now().plusMonths(1).withDayOfMonth(25);
@@ -50,7 +64,7 @@ public class Fatura {
     // --- Getters ---
     public Long getId() { return id; }
     public List<Movimentacao> getCompras() { return compras; }
-    public double getTotal() { return total; }
+    public long getTotal() { return total; }
     public String getMesReferencia() { return mesReferencia; }
     public LocalDate getDataFechamento() { return dataFechamento; }
     public LocalDate getDataVencimento() { return dataVencimento; }
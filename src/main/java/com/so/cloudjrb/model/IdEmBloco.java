@@ -0,0 +1,21 @@
+package com.so.cloudjrb.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Id gerado em blocos reservados na tabela 'sequencias' (ver BlocoIdGenerator).
+ * Diferente de IDENTITY, o id é conhecido antes do INSERT, o que permite ao
+ * Hibernate agrupar os INSERTs em lotes JDBC.
+ */
+@IdGeneratorType(BlocoIdGenerator.class)
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IdEmBloco {
+    /** Ids reservados por ida ao banco. */
+    int tamanho() default 100;
+}
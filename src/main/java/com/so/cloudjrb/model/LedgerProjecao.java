@@ -0,0 +1,27 @@
+package com.so.cloudjrb.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Progresso da projeção do ledger em memória para as tabelas 'accounts' e
+ * 'movimentacoes': último seq do journal já aplicado no banco.
+ * Atualizado na mesma transação que aplica os registros.
+ */
+@Entity
+@Table(name = "ledger_projecao")
+public class LedgerProjecao {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id = ID;
+
+    // -1: nada projetado ainda (o primeiro seq do journal é 0)
+    private long ultimoSeq = -1L;
+
+    // Construtor padrão JPA
+    public LedgerProjecao() {}
+
+    public long getUltimoSeq() { return ultimoSeq; }
+    public void setUltimoSeq(long ultimoSeq) { this.ultimoSeq = ultimoSeq; }
+}
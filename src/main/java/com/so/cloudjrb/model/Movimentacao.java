@@ -1,43 +1,115 @@
 package com.so.cloudjrb.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * Lançamento do extrato em formato compacto: código do tipo, instante em epoch
+ * (ms), valor em centavos e, quando houver, a contraparte (CPF da outra conta) e
+ * um detalhe curto (código do boleto, estabelecimento...). O texto exibido
+ * ("Transferência enviada para CPF ...", data "dd/MM/yyyy HH:mm") é montado só na
+ * saída, na API e no PDF (ver TipoMovimentacao.descrever).
+ *
+ * Linhas gravadas no formato antigo (texto livre) são convertidas na subida
+ * por MigracaoMovimentacoes.
+ */
 @Entity
-@Table(name = "movimentacoes")
+@Table(name = "movimentacoes", indexes = {
+        // Índices usados pelo extrato paginado (cursor por id e filtro por data)
+        @Index(name = "idx_mov_conta_id", columnList = "account_cpf, id"),
+        @Index(name = "idx_mov_conta_instante_ms", columnList = "account_cpf, instante_ms"),
+        // Compras da fatura atual (consulta do cartão de crédito)
+        @Index(name = "idx_mov_fatura_id", columnList = "fatura_id, id")
+})
 public class Movimentacao {
 
+    private static final DateTimeFormatter DATA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdEmBloco(tamanho = 1000)
     private Long id; // Chave primária da tabela
 
-    private String tipo;
-    private Double valor;
-    private String dataHora;
+    @Convert(converter = TipoMovimentacaoConverter.class)
+    @Column(name = "codigo", nullable = false)
+    private TipoMovimentacao tipo;
+
+    @Column(name = "valor_centavos")
+    private long valor; // Em centavos, com sinal
+
+    // Epoch em milissegundos: ordenável, usado nos filtros 'inicio'/'fim' do extrato
+    @Column(name = "instante_ms")
+    private long instante;
+
+    @Column(length = 14)
+    private String contraparte;
+
+    private String detalhe;
+
+    // Dono da chave estrangeira: grava 'account_cpf' no próprio INSERT
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_cpf")
+    private Account conta;
+
+    // Idem para as compras de uma fatura ('fatura_id')
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "fatura_id")
+    private Fatura fatura;
+
+    // Mesmas colunas, só leitura: permitem consultar as movimentações pelo valor
+    // da chave, sem carregar a conta nem a coleção
+    @Column(name = "account_cpf", insertable = false, updatable = false)
+    private String accountCpf;
+
+    @Column(name = "fatura_id", insertable = false, updatable = false)
+    private Long faturaId;
 
     // Construtor padrão JPA
     public Movimentacao() {}
 
-    public Movimentacao(String tipo, Double valor, String dataHora) {
+    public Movimentacao(TipoMovimentacao tipo, long valor, String contraparte, String detalhe, long instante) {
         this.tipo = tipo;
         this.valor = valor;
-        this.dataHora = dataHora;
+        this.contraparte = contraparte;
+        this.detalhe = detalhe;
+        this.instante = instante;
+    }
+
+    public static Movimentacao of(TipoMovimentacao tipo, long valor) {
+        return new Movimentacao(tipo, valor, null, null, System.currentTimeMillis());
     }
 
-    public static Movimentacao of(String tipo, Double valor) {
-        String dt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
-        return new Movimentacao(tipo, valor, dt);
+    // Com a data/hora em que a operação de fato ocorreu (ex: projeção do ledger)
+    public static Movimentacao of(TipoMovimentacao tipo, long valor, String contraparte, String detalhe, long instante) {
+        return new Movimentacao(tipo, valor, contraparte, detalhe, instante);
     }
 
+    /** Instante (epoch ms) no formato do extrato, no fuso do servidor. */
+    public static String formatarDataHora(long instante) {
+        return DATA_HORA.format(Instant.ofEpochMilli(instante).atZone(ZoneId.systemDefault()));
+    }
+
+    void setConta(Account conta) { this.conta = conta; }
+    void setFatura(Fatura fatura) { this.fatura = fatura; }
+
     // --- Getters ---
     public Long getId() { return id; }
-    public String getTipo() { return tipo; }
-    public Double getValor() { return valor; }
-    public String getDataHora() { return dataHora; }
+    public TipoMovimentacao getTipo() { return tipo; }
+    public long getValor() { return valor; }
+    public long getInstante() { return instante; }
+    public String getContraparte() { return contraparte; }
+    public String getDetalhe() { return detalhe; }
+
+    // Textos exibidos (API/PDF)
+    public String getDescricao() { return tipo.descrever(contraparte, detalhe); }
+    public String getDataHora() { return formatarDataHora(instante); }
 
     @Override
     public String toString() {
-        return String.format("%s | %s de R$ %.2f", dataHora, tipo, valor);
+        return String.format("%s | %s de R$ %.2f", getDataHora(), getDescricao(), Dinheiro.reais(valor));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package com.so.cloudjrb.model;
+
+/**
+ * Tipo de uma movimentação. No banco vai só o código (nunca mude os existentes);
+ * o texto exibido no extrato e no PDF é montado na hora a partir do tipo, da
+ * contraparte (CPF da outra conta) ou do detalhe (boleto, estabelecimento...).
+ */
+public enum TipoMovimentacao {
+    OUTRO(0, "", "", false), // Texto antigo não reconhecido na migração, guardado inteiro no detalhe
+    DEPOSITO_INICIAL(1, "Depósito Inicial"),
+    DEPOSITO(2, "Depósito"),
+    SAQUE(3, "Saque"),
+    SAQUE_CORRENTE(4, "Saque (Conta Corrente)"),
+    SAQUE_POUPANCA(5, "Saque (Conta Poupança)"),
+    PAGAMENTO_BOLETO(6, "Pagamento de boleto ", "", false),
+    COMPRA_DEBITO(7, "Compra Débito: ", "", false),
+    COMPRA_CREDITO(8, "Compra Crédito: ", "", false),
+    PAGAMENTO_FATURA(9, "Pagamento de Fatura do Cartão"),
+    TRANSFERENCIA_ENVIADA(10, "Transferência enviada para CPF ", "", true),
+    TRANSFERENCIA_RECEBIDA(11, "Transferência recebida de CPF ", "", true),
+    TRANSFERENCIA_ESTORNO(12, "Estorno de transferência para CPF ", "", true),
+    APLICACAO_POUPANCA(13, "Aplicação em Poupança (Rendimento ", ")", false),
+    RESGATE_POUPANCA(14, "Resgate de Poupança"),
+    ENCERRAMENTO(15, "Conta encerrada");
+
+    private static final TipoMovimentacao[] POR_CODIGO = new TipoMovimentacao[16];
+
+    static {
+        for (TipoMovimentacao t : values()) POR_CODIGO[t.codigo] = t;
+    }
+
+    private final int codigo;
+    private final String prefixo;
+    private final String sufixo;
+    private final boolean variavel;     // Tem uma parte variável entre prefixo e sufixo
+    private final boolean contraparte;  // A parte variável é a contraparte (senão, o detalhe)
+
+    // Texto fixo
+    TipoMovimentacao(int codigo, String texto) {
+        this(codigo, texto, "", false, false);
+    }
+
+    TipoMovimentacao(int codigo, String prefixo, String sufixo, boolean contraparte) {
+        this(codigo, prefixo, sufixo, true, contraparte);
+    }
+
+    TipoMovimentacao(int codigo, String prefixo, String sufixo, boolean variavel, boolean contraparte) {
+        this.codigo = codigo;
+        this.prefixo = prefixo;
+        this.sufixo = sufixo;
+        this.variavel = variavel;
+        this.contraparte = contraparte;
+    }
+
+    public int codigo() {
+        return codigo;
+    }
+
+    public static TipoMovimentacao deCodigo(int codigo) {
+        TipoMovimentacao t = codigo >= 0 && codigo < POR_CODIGO.length ? POR_CODIGO[codigo] : null;
+        if (t == null) throw new IllegalArgumentException("Tipo de movimentação desconhecido: " + codigo);
+        return t;
+    }
+
+    /** Texto exibido ao cliente (ex: "Transferência enviada para CPF 123"). */
+    public String descrever(String contraparte, String detalhe) {
+        if (!variavel) return prefixo;
+        String parte = this.contraparte ? contraparte : detalhe;
+        return prefixo + (parte != null ? parte : "") + sufixo;
+    }
+
+    /** Tipo, contraparte e detalhe contidos num texto no formato antigo. */
+    public record Decomposto(TipoMovimentacao tipo, String contraparte, String detalhe) {}
+
+    /**
+     * Inverso de descrever: usado na migração das linhas antigas (tipo em texto livre)
+     * e na leitura de journals do ledger gravados antes do código do tipo.
+     */
+    public static Decomposto decompor(String texto) {
+        if (texto == null) return new Decomposto(OUTRO, null, null);
+        for (TipoMovimentacao t : values()) {
+            if (!t.variavel && t.prefixo.equals(texto)) return new Decomposto(t, null, null);
+        }
+        // "Conta encerrada em dd/MM/yyyy HH:mm": a data já é a da própria movimentação
+        if (texto.startsWith(ENCERRAMENTO.prefixo)) return new Decomposto(ENCERRAMENTO, null, null);
+        for (TipoMovimentacao t : values()) {
+            if (t.variavel && t != OUTRO && texto.startsWith(t.prefixo) && texto.endsWith(t.sufixo)
+                    && texto.length() >= t.prefixo.length() + t.sufixo.length()) {
+                String parte = texto.substring(t.prefixo.length(), texto.length() - t.sufixo.length());
+                return t.contraparte ? new Decomposto(t, parte, null) : new Decomposto(t, null, parte);
+            }
+        }
+        return new Decomposto(OUTRO, null, texto);
+    }
+}
@@ -0,0 +1,21 @@
+package com.so.cloudjrb.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * TipoMovimentacao <-> código inteiro na coluna (em vez do nome ou do texto exibido).
+ */
+@Converter
+public class TipoMovimentacaoConverter implements AttributeConverter<TipoMovimentacao, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(TipoMovimentacao tipo) {
+        return tipo == null ? null : tipo.codigo();
+    }
+
+    @Override
+    public TipoMovimentacao convertToEntityAttribute(Integer codigo) {
+        return codigo == null ? null : TipoMovimentacao.deCodigo(codigo);
+    }
+}
@@ -0,0 +1,37 @@
+package com.so.cloudjrb.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Registro de uma transferência já aplicada. A chave primária (o id da
+ * transferência) garante no banco que o mesmo id nunca é aplicado duas vezes.
+ */
+@Entity
+@Table(name = "transferencias_processadas")
+public class TransferenciaProcessada implements Persistable<String> {
+
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    // Epoch em milissegundos, usado para a limpeza dos registros antigos
+    @Column(nullable = false)
+    private long processadaEm;
+
+    // Construtor padrão JPA
+    public TransferenciaProcessada() {}
+
+    public TransferenciaProcessada(String id, long processadaEm) {
+        this.id = id;
+        this.processadaEm = processadaEm;
+    }
+
+    @Override
+    public String getId() { return id; }
+    public long getProcessadaEm() { return processadaEm; }
+
+    // Sempre um INSERT: um id repetido deve falhar na constraint, não virar UPDATE
+    @Override
+    public boolean isNew() { return true; }
+}
@@ -1,9 +1,14 @@
 package com.so.cloudjrb.repository;
 
 import com.so.cloudjrb.model.Account;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -20,4 +25,112 @@ public interface AccountRepository extends JpaRepository<Account, String> {
 
     // Podemos adicionar consultas customizadas se necessário
     Optional<Account> findByNumero(Integer numero);
-}
\ No newline at end of file
+
+    // --- Planos de carga por caso de uso (grafos nomeados em Account) ---
+    // Cada operação busca a conta com um único SELECT trazendo só as relações que usa;
+    // o que ficar de fora continua LAZY e não é tocado pela operação.
+
+    /** Só a linha da conta: depósito, saque, boleto, transferência, poupança e extrato. */
+    @Override
+    @EntityGraph(Account.PLANO_SALDO)
+    Optional<Account> findById(String cpf);
+
+    /** Conta + cartão de débito: compra no débito. */
+    @EntityGraph(Account.PLANO_DEBITO)
+    @Query("select a from Account a where a.cpf = :cpf")
+    Optional<Account> buscarComCartaoDebito(@Param("cpf") String cpf);
+
+    /** Conta + cartão de crédito + fatura atual: compra no crédito e encerramento. */
+    @EntityGraph(Account.PLANO_CREDITO)
+    @Query("select a from Account a where a.cpf = :cpf")
+    Optional<Account> buscarComCartaoCredito(@Param("cpf") String cpf);
+
+    /** Conta + cartão de crédito + fatura atual com as compras (que são apagadas no pagamento). */
+    @EntityGraph(Account.PLANO_PAGAR_FATURA)
+    @Query("select a from Account a where a.cpf = :cpf")
+    Optional<Account> buscarComComprasDaFatura(@Param("cpf") String cpf);
+
+    /** Conta + os dois cartões (e a fatura): emissão de cartões. */
+    @EntityGraph(Account.PLANO_CARTOES)
+    @Query("select a from Account a where a.cpf = :cpf")
+    Optional<Account> buscarComCartoes(@Param("cpf") String cpf);
+
+    /** Todas as contas com os cartões, sem N+1 (sincronização do motor do ledger). */
+    @EntityGraph(Account.PLANO_CARTOES)
+    @Query("select a from Account a")
+    List<Account> buscarTodasComCartoes();
+
+    // --- Projeções de leitura: só as colunas necessárias, nunca as movimentações ---
+    // Os campos das subclasses vêm de joins com ContaCorrente/ContaPoupanca (na mesma
+    // tabela, pela chave): a coluna fica nula quando a conta é do outro tipo.
+
+    /** Dados para o login: credenciais e identificação da conta. */
+    interface LoginView {
+        String getCpf();
+        String getSenha();
+        Boolean getEncerrada();
+        Integer getNumero();
+        String getTitular();
+        Long getLimiteChequeEspecial(); // não nulo = Conta Corrente
+    }
+
+    @Query("""
+            select a.cpf as cpf, a.senha as senha, a.encerrada as encerrada,
+                   a.numero as numero, a.titular as titular,
+                   cc.limiteChequeEspecial as limiteChequeEspecial
+            from Account a
+            left join ContaCorrente cc on cc.cpf = a.cpf
+            where a.cpf = :cpf
+            """)
+    Optional<LoginView> buscarLogin(@Param("cpf") String cpf);
+
+    /** Conta, saldo e cartões (com o resumo da fatura) numa única linha. */
+    interface ContaView {
+        String getCpf();
+        Integer getNumero();
+        String getTitular();
+        Long getSaldo(); // valores em centavos (CentavosConverter)
+        Boolean getEncerrada();
+        String getDataEncerramento();
+        Long getLimiteChequeEspecial();
+        Long getInvestimento();
+
+        Long getCreditoId();
+        String getCreditoNumero();
+        String getCreditoValidade();
+        String getCreditoCvv();
+        Long getCreditoLimite();
+
+        Long getFaturaId();
+        String getFaturaMesReferencia();
+        LocalDate getFaturaDataFechamento();
+        LocalDate getFaturaDataVencimento();
+        Long getFaturaTotal();
+
+        Long getDebitoId();
+        String getDebitoNumero();
+        String getDebitoValidade();
+        String getDebitoCvv();
+    }
+
+    @Query("""
+            select a.cpf as cpf, a.numero as numero, a.titular as titular, a.saldo as saldo,
+                   a.encerrada as encerrada, a.dataEncerramento as dataEncerramento,
+                   cc.limiteChequeEspecial as limiteChequeEspecial, cp.investimento as investimento,
+                   cred.id as creditoId, cred.numero as creditoNumero, cred.validade as creditoValidade,
+                   cred.cvv as creditoCvv, cred.limite as creditoLimite,
+                   f.id as faturaId, f.mesReferencia as faturaMesReferencia,
+                   f.dataFechamento as faturaDataFechamento, f.dataVencimento as faturaDataVencimento,
+                   f.total as faturaTotal,
+                   deb.id as debitoId, deb.numero as debitoNumero, deb.validade as debitoValidade,
+                   deb.cvv as debitoCvv
+            from Account a
+            left join ContaCorrente cc on cc.cpf = a.cpf
+            left join ContaPoupanca cp on cp.cpf = a.cpf
+            left join a.cartaoCredito cred
+            left join cred.faturaAtual f
+            left join a.cartaoDebito deb
+            where a.cpf = :cpf
+            """)
+    Optional<ContaView> buscarResumo(@Param("cpf") String cpf);
+}
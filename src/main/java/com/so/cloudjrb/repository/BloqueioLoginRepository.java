@@ -0,0 +1,23 @@
+package com.so.cloudjrb.repository;
+
+import com.so.cloudjrb.model.BloqueioLogin;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface BloqueioLoginRepository extends JpaRepository<BloqueioLogin, String> {
+
+    // Bloqueios ainda em vigor (carregados na subida)
+    List<BloqueioLogin> findByBloqueadoAteGreaterThan(long agora);
+
+    @Modifying
+    @Transactional
+    @Query("delete from BloqueioLogin b where b.bloqueadoAte <= :agora")
+    int apagarVencidos(@Param("agora") long agora);
+}
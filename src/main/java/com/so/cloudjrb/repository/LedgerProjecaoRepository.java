@@ -0,0 +1,9 @@
+package com.so.cloudjrb.repository;
+
+import com.so.cloudjrb.model.LedgerProjecao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LedgerProjecaoRepository extends JpaRepository<LedgerProjecao, Integer> {
+}
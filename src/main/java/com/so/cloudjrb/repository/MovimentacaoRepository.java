@@ -0,0 +1,50 @@
+package com.so.cloudjrb.repository;
+
+import com.so.cloudjrb.dto.MovimentacaoResponse;
+import com.so.cloudjrb.model.Movimentacao;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MovimentacaoRepository extends JpaRepository<Movimentacao, Long> {
+
+    // Paginação por cursor (keyset): devolve as movimentações com id > cursor,
+    // lendo diretamente da tabela pelo índice (account_cpf, id).
+    @Query("""
+            select new com.so.cloudjrb.dto.MovimentacaoResponse(m.id, m.instante, m.tipo, m.contraparte, m.detalhe, m.valor)
+            from Movimentacao m
+            where m.accountCpf = :cpf and m.id > :cursor
+            order by m.id
+            """)
+    List<MovimentacaoResponse> buscarPagina(@Param("cpf") String cpf,
+                                            @Param("cursor") long cursor,
+                                            Limit limite);
+
+    // Mesma consulta, restrita ao intervalo [inicio, fim] (epoch ms)
+    @Query("""
+            select new com.so.cloudjrb.dto.MovimentacaoResponse(m.id, m.instante, m.tipo, m.contraparte, m.detalhe, m.valor)
+            from Movimentacao m
+            where m.accountCpf = :cpf and m.id > :cursor
+              and m.instante >= :inicio and m.instante <= :fim
+            order by m.id
+            """)
+    List<MovimentacaoResponse> buscarPaginaNoPeriodo(@Param("cpf") String cpf,
+                                                     @Param("cursor") long cursor,
+                                                     @Param("inicio") long inicio,
+                                                     @Param("fim") long fim,
+                                                     Limit limite);
+
+    // Compras da fatura, na ordem em que foram feitas
+    @Query("""
+            select new com.so.cloudjrb.dto.MovimentacaoResponse(m.id, m.instante, m.tipo, m.contraparte, m.detalhe, m.valor)
+            from Movimentacao m
+            where m.faturaId = :faturaId
+            order by m.id
+            """)
+    List<MovimentacaoResponse> buscarComprasDaFatura(@Param("faturaId") long faturaId);
+}
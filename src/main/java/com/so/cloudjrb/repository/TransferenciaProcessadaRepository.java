@@ -0,0 +1,18 @@
+package com.so.cloudjrb.repository;
+
+import com.so.cloudjrb.model.TransferenciaProcessada;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface TransferenciaProcessadaRepository extends JpaRepository<TransferenciaProcessada, String> {
+
+    @Modifying
+    @Transactional
+    @Query("delete from TransferenciaProcessada t where t.processadaEm < :limite")
+    int apagarAnterioresA(@Param("limite") long limite);
+}
@@ -1,22 +1,27 @@
 package com.so.cloudjrb.service;
 
+import com.so.cloudjrb.config.EscritaAgrupada;
+import com.so.cloudjrb.config.RetryOnConflict;
+import com.so.cloudjrb.dto.ContaResponse;
 import com.so.cloudjrb.dto.CreateAccountRequest;
+import com.so.cloudjrb.dto.LoginResponse;
+import com.so.cloudjrb.dto.ResultadoTransferencia;
+import com.so.cloudjrb.dto.TransferRequest;
 import com.so.cloudjrb.exception.DomainException;
 import com.so.cloudjrb.exception.ResourceNotFoundException;
+import com.so.cloudjrb.ledger.LedgerEngine;
 import com.so.cloudjrb.model.*;
 import com.so.cloudjrb.repository.AccountRepository;
-import com.itextpdf.text.Document;
-import com.itextpdf.text.Paragraph;
-import com.itextpdf.text.pdf.PdfWriter;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service // Marca como Serviço do Spring
 public class BankService {
@@ -27,8 +32,23 @@ public class BankService {
     @Autowired // Injeção de Dependência: O Spring fornece o gerador de número
     private NumberGenerator numberGenerator;
 
-    @Value("${app.pdf.storage-path}") // Pega o valor do application.properties
-    private String pdfStoragePath;
+    @Autowired // Ids de transferências já aplicadas (idempotência)
+    private TransferenciaDedupStore transferenciaDedupStore;
+
+    @Autowired // Comprovantes em PDF são gerados em segundo plano, após o commit
+    private ComprovanteService comprovanteService;
+
+    @Autowired // Cache de leitura das contas, invalidado após cada alteração
+    private ContaCache contaCache;
+
+    @Autowired // Tentativas de login por CPF/IP (bloqueio persistido)
+    private LimitadorLogin limitadorLogin;
+
+    @Autowired // Tokens de sessão (emitidos no login, revogados no encerramento)
+    private TokenService tokenService;
+
+    @Autowired(required = false) // Motor em memória: só existe com app.ledger.habilitado=true
+    private LedgerEngine ledger;
 
     // Removemos o HashMap 'contas' e os métodos 'salvar()' e 'carregar()'.
     // O JPA cuida de toda a persistência.
@@ -36,32 +56,45 @@ public class BankService {
     // Busca e validação
 
     // @Transactional(readOnly = true) é uma otimização para consultas
+    // Só a linha da conta (plano Account.saldo): cartões e movimentações ficam LAZY
     @Transactional(readOnly = true)
     public Account buscarConta(String cpf) {
         return accountRepository.findById(cpf)
                 .orElseThrow(() -> new ResourceNotFoundException("Conta não encontrada."));
     }
 
-    @Transactional(readOnly = true)
-    public Account login(String cpf, String senha) {
-        Account conta = buscarConta(cpf);
+    /** Dados da conta para os GETs da API (passa pelo cache de leitura). */
+    public ContaResponse consultarConta(String cpf) {
+        return contaCache.buscar(cpf);
+    }
 
-        if (conta.isEncerrada()) {
-            throw new DomainException("Conta encerrada.");
+    /**
+     * Login com uma consulta só (credenciais e identificação), sem carregar a entidade.
+     * CPF ou IP com tentativas demais é recusado antes de ir ao banco (LimitadorLogin).
+     */
+    public LoginResponse login(String cpf, String senha, String ip) {
+        limitadorLogin.verificar(cpf, ip);
+
+        AccountRepository.LoginView conta = accountRepository.buscarLogin(cpf).orElse(null);
+        if (conta == null) {
+            // Conta só para o IP: CPFs inventados não criam chaves no limitador
+            limitadorLogin.registrarFalha(null, ip);
+            throw new ResourceNotFoundException("Conta não encontrada.");
         }
 
-        // Lógica de bloqueio (ainda funciona, mas reseta a cada login)
-        if (conta.estaBloqueada()) {
-            throw new DomainException("Conta temporariamente bloqueada.");
+        if (Boolean.TRUE.equals(conta.getEncerrada())) {
+            throw new DomainException("Conta encerrada.");
         }
 
-        if (conta.validarSenha(senha)) {
-            conta.registrarTentativaSenha(true);
-            return conta;
-        } else {
-            conta.registrarTentativaSenha(false);
+        if (!conta.getSenha().equals(senha)) {
+            limitadorLogin.registrarFalha(cpf, ip);
             throw new DomainException("CPF ou senha incorretos.");
         }
+        limitadorLogin.registrarSucesso(cpf);
+        TokenService.Token token = tokenService.emitir(conta.getCpf());
+        return new LoginResponse(conta.getCpf(), conta.getNumero(), conta.getTitular(),
+                ContaResponse.tipoConta(conta.getLimiteChequeEspecial() != null),
+                token.valor(), token.expiraEm());
     }
 
     // --- Operações ---
@@ -69,21 +102,45 @@ public class BankService {
     // @Transactional: Se ocorrer um erro, o DB faz rollback.
     // O Spring salva as mudanças no objeto 'c' automaticamente no fim do método.
     @Transactional
-    public void depositar(String cpf, double valor) {
+    @RetryOnConflict
+    @EscritaAgrupada
+    public void depositar(String cpf, long valor) {
+        contaCache.invalidar(cpf);
+        if (ledger != null) {
+            ledger.depositar(cpf, valor);
+            return;
+        }
         Account c = buscarConta(cpf);
         c.depositar(valor);
         // Não é preciso chamar accountRepository.save(c)
     }
 
     @Transactional
-    public void sacar(String cpf, double valor) {
+    @RetryOnConflict
+    @EscritaAgrupada
+    public void sacar(String cpf, long valor) {
+        contaCache.invalidar(cpf);
+        if (ledger != null) {
+            ledger.sacar(cpf, valor);
+            return;
+        }
         Account c = buscarConta(cpf);
         c.sacar(valor);
     }
 
     @Transactional
+    @RetryOnConflict
+    @EscritaAgrupada
     public void encerrarConta(String cpf) {
-        Account conta = buscarConta(cpf);
+        contaCache.invalidar(cpf);
+        if (ledger != null) {
+            ledger.encerrarConta(cpf);
+            tokenService.revogar(cpf); // Vale só se a transação for confirmada
+            return;
+        }
+        // Plano de carga com o cartão de crédito e a fatura (para checar fatura pendente)
+        Account conta = accountRepository.buscarComCartaoCredito(cpf)
+                .orElseThrow(() -> new ResourceNotFoundException("Conta não encontrada."));
         // ... (lógica de validação copiada do seu BankService original) ...
         if (conta.getSaldo() > 0)
             throw new DomainException("Conta não pode ser encerrada com saldo disponível.");
@@ -95,25 +152,115 @@ public class BankService {
             throw new DomainException("Conta não pode ser encerrada com dinheiro investido na poupança.");
 
         conta.encerrar();
+        tokenService.revogar(cpf); // Depois das validações; vale só se a transação for confirmada
     }
 
     @Transactional
-    public void pagarBoleto(String cpf, String codigo, double valor, String dataVencimento) {
+    @RetryOnConflict
+    @EscritaAgrupada
+    public void pagarBoleto(String cpf, String codigo, long valor, String dataVencimento) {
+        contaCache.invalidar(cpf);
+        if (ledger != null) {
+            ledger.pagarBoleto(cpf, codigo, valor, dataVencimento);
+            return;
+        }
         Account conta = buscarConta(cpf);
         // debita da conta (já trata saldo/cheque especial)
-        conta.debitarInterno(valor, "Pagamento de boleto " + codigo +
+        conta.debitarInterno(valor, TipoMovimentacao.PAGAMENTO_BOLETO, codigo +
                 (dataVencimento != null && !dataVencimento.isBlank()
                         ? " (Venc.: " + dataVencimento + ")" : ""));
 
-        // Gera o comprovante em PDF no servidor
-        gerarComprovantePagamento(conta, codigo, valor, dataVencimento);
+        // Agenda o comprovante em PDF (gerado fora da transação, após o commit)
+        comprovanteService.agendarComprovantePagamento(conta, codigo, valor, dataVencimento);
     }
 
     @Transactional
-    public void transferir(String cpfOrigem, String cpfDestino, double valor) {
-        Account origem = buscarConta(cpfOrigem);
-        Account destino = buscarConta(cpfDestino);
+    @RetryOnConflict
+    @EscritaAgrupada
+    public void transferir(String cpfOrigem, String cpfDestino, long valor) {
+        transferir(new TransferRequest(null, cpfOrigem, cpfDestino, valor));
+    }
+
+    /**
+     * Transferência identificada: se o id já foi aplicado, não faz nada
+     * (reentrega da fila ou clique duplo do cliente).
+     */
+    @Transactional
+    @RetryOnConflict
+    @EscritaAgrupada
+    public void transferir(TransferRequest req) {
+        contaCache.invalidar(List.of(req.cpfOrigem(), req.cpfDestino()));
+        if (ledger != null) {
+            ledger.transferir(req);
+            return;
+        }
+        String id = req.idTransferencia();
+        if (id != null && transferenciaDedupStore.jaProcessada(id)) {
+            System.out.println("[TRANSFERÊNCIA] " + id + " já processada, ignorando.");
+            return;
+        }
 
+        Account origem = buscarConta(req.cpfOrigem());
+        Account destino = buscarConta(req.cpfDestino());
+        aplicarTransferencia(origem, destino, req.valor());
+
+        if (id != null) transferenciaDedupStore.registrar(id);
+    }
+
+    /**
+     * Aplica várias transferências, em ordem, numa única transação.
+     * As contas envolvidas são carregadas com uma só consulta. Uma falha de negócio
+     * (ex: saldo insuficiente) afeta apenas a transferência em questão: as validações
+     * acontecem antes de qualquer alteração, então as vizinhas seguem normalmente.
+     */
+    @Transactional
+    @RetryOnConflict
+    @EscritaAgrupada
+    public List<ResultadoTransferencia> transferirEmLote(List<TransferRequest> lote) {
+        Set<String> envolvidas = new HashSet<>();
+        for (TransferRequest req : lote) {
+            envolvidas.add(req.cpfOrigem());
+            envolvidas.add(req.cpfDestino());
+        }
+        contaCache.invalidar(envolvidas);
+        if (ledger != null) return ledger.transferirEmLote(lote);
+
+        Set<String> cpfs = new HashSet<>();
+        Set<String> ids = new HashSet<>();
+        for (TransferRequest req : lote) {
+            cpfs.add(req.cpfOrigem());
+            cpfs.add(req.cpfDestino());
+            if (req.idTransferencia() != null) ids.add(req.idTransferencia());
+        }
+        // Ids já aplicados antes (uma consulta) e ids vistos neste lote
+        Set<String> processadas = ids.isEmpty() ? new HashSet<>() : transferenciaDedupStore.filtrarProcessadas(ids);
+        Map<String, Account> contas = new HashMap<>();
+        for (Account conta : accountRepository.findAllById(cpfs)) {
+            contas.put(conta.getCpf(), conta);
+        }
+
+        List<ResultadoTransferencia> resultados = new ArrayList<>(lote.size());
+        for (TransferRequest req : lote) {
+            String id = req.idTransferencia();
+            if (id != null && !processadas.add(id)) {
+                resultados.add(new ResultadoTransferencia(req, false, "Transferência já processada."));
+                continue;
+            }
+            try {
+                Account origem = contas.get(req.cpfOrigem());
+                Account destino = contas.get(req.cpfDestino());
+                if (origem == null || destino == null) throw new ResourceNotFoundException("Conta não encontrada.");
+                aplicarTransferencia(origem, destino, req.valor());
+                if (id != null) transferenciaDedupStore.registrar(id);
+                resultados.add(new ResultadoTransferencia(req, true, null));
+            } catch (DomainException | ResourceNotFoundException e) {
+                resultados.add(new ResultadoTransferencia(req, false, e.getMessage()));
+            }
+        }
+        return resultados;
+    }
+
+    private void aplicarTransferencia(Account origem, Account destino, long valor) {
         if (origem.isEncerrada()) throw new DomainException("Conta de origem encerrada.");
         if (destino.isEncerrada()) throw new DomainException("Conta de destino encerrada.");
         if (valor <= 0) throw new DomainException("Valor inválido para transferência.");
@@ -124,13 +271,14 @@ public class BankService {
         destino.depositar(valor);
 
         // Registra a movimentação de forma mais específica
-        origem.getMovimentacoes().add(Movimentacao.of("Transferência enviada para CPF " + cpfDestino, -valor));
-        destino.getMovimentacoes().add(Movimentacao.of("Transferência recebida de CPF " + cpfOrigem, valor));
+        origem.registrar(TipoMovimentacao.TRANSFERENCIA_ENVIADA, -valor, destino.getCpf(), null);
+        destino.registrar(TipoMovimentacao.TRANSFERENCIA_RECEBIDA, valor, origem.getCpf(), null);
 
-        gerarComprovanteTransferencia(origem, destino, valor);
+        comprovanteService.agendarComprovanteTransferencia(origem, destino, valor);
     }
 
     @Transactional
+    @EscritaAgrupada
     public Account criarConta(CreateAccountRequest req) {
         if (req.cpf() == null || req.cpf().isBlank()) throw new DomainException("CPF inválido");
         if (accountRepository.existsById(req.cpf())) {
@@ -138,52 +286,20 @@ public class BankService {
         }
         // ... (outras validações) ...
 
-        int numero = numberGenerator.gerarNumeroConta();
-        Account conta;
-
-        switch (req.tipo().toLowerCase()) {
-            case "corrente" -> conta = new ContaCorrente(req.cpf(), numero, req.titular(), req.senha(), req.saldoInicial());
-            case "poupanca" -> conta = new ContaPoupanca(req.cpf(), numero, req.titular(), req.senha(), req.saldoInicial());
-            default -> throw new DomainException("Tipo de conta inválido (use: corrente/poupanca)");
-        }
-
-        return accountRepository.save(conta); // Salva a nova conta no DB
-    }
-
-    // --- Lógica de PDF (movida do seu BankService antigo) ---
-    // Esta lógica é privada e gera o PDF no sistema de arquivos do servidor
-
-    private void gerarComprovantePagamento(Account conta, String codigo, double valor, String dataVencimento) {
-        try {
-            File pasta = new File(pdfStoragePath);
-            if (!pasta.exists()) pasta.mkdirs();
-
-            String nomeArquivo = pdfStoragePath + "comprovante_boleto_" + codigo + ".pdf";
-            Document doc = new Document();
-            PdfWriter.getInstance(doc, new FileOutputStream(nomeArquivo));
-            doc.open();
-            // ... (lógica do iText copiada do seu BankService.java) ...
-            doc.add(new Paragraph("Comprovante de Pagamento de Boleto"));
-            doc.add(new Paragraph("Titular: " + conta.getTitular()));
-            // ... etc ...
-            doc.close();
-        } catch (Exception e) {
-            System.err.println("Erro ao gerar comprovante de pagamento: " + e.getMessage());
+        String tipo = req.tipo() != null ? req.tipo().toLowerCase() : "";
+        if (!tipo.equals("corrente") && !tipo.equals("poupanca")) {
+            throw new DomainException("Tipo de conta inválido (use: corrente/poupanca)");
         }
-    }
 
-    private void gerarComprovanteTransferencia(Account origem, Account destino, double valor) {
-        try {
-            File pasta = new File(pdfStoragePath);
-            if (!pasta.exists()) pasta.mkdirs();
-
-            String codigo = java.util.UUID.randomUUID().toString().substring(0, 8);
-            String nomeArquivo = pdfStoragePath + "comprovante_transferencia_" + codigo + ".pdf";
-            Document doc = new Document();
-            // ... (lógica do iText copiada do seu BankService.java) ...
-            doc.close();
-        } catch (Exception e) {
-            System.err.println("Erro ao gerar comprovante de transferência: " + e.getMessage());
-        }
+        // Reservado só depois das validações: um número nunca é gasto por uma conta recusada
+        int numero = numberGenerator.gerarNumeroConta();
+        long saldoInicial = req.saldoInicial() != null ? req.saldoInicial() : 0L;
+        Account conta = tipo.equals("corrente")
+                ? new ContaCorrente(req.cpf(), numero, req.titular(), req.senha(), saldoInicial)
+                : new ContaPoupanca(req.cpf(), numero, req.titular(), req.senha(), saldoInicial);
+
+        Account salva = accountRepository.save(conta); // Salva a nova conta no DB
+        if (ledger != null) ledger.registrarConta(salva);
+        return salva;
     }
 }
\ No newline at end of file
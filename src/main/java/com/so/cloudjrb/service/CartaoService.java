@@ -1,11 +1,20 @@
 package com.so.cloudjrb.service;
 
+import com.so.cloudjrb.config.EscritaAgrupada;
+import com.so.cloudjrb.config.RetryOnConflict;
+import com.so.cloudjrb.dto.CartaoCreditoResponse;
 import com.so.cloudjrb.exception.DomainException;
+import com.so.cloudjrb.exception.ResourceNotFoundException;
+import com.so.cloudjrb.ledger.LedgerEngine;
 import com.so.cloudjrb.model.*;
+import com.so.cloudjrb.repository.AccountRepository;
+import com.so.cloudjrb.repository.MovimentacaoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
+
 @Service
 public class CartaoService {
 
@@ -15,9 +24,32 @@ public class CartaoService {
     @Autowired
     private NumberGenerator numberGenerator; // Injeta o gerador de números
 
+    @Autowired // Busca a conta com o plano de carga de cada operação
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private ContaCache contaCache;
+
+    @Autowired
+    private MovimentacaoRepository movimentacaoRepository;
+
+    @Autowired(required = false) // Motor em memória: só existe com app.ledger.habilitado=true
+    private LedgerEngine ledger;
+
+    /** Cartão de crédito da conta (do cache) com as compras da fatura atual. */
+    public CartaoCreditoResponse consultarCartaoCredito(String cpf) {
+        CartaoCreditoResponse cartao = contaCache.buscar(cpf).cartaoCredito();
+        if (cartao == null) throw new ResourceNotFoundException("Cartão de crédito não encontrado.");
+        if (cartao.faturaAtual() == null) return cartao;
+        return cartao.comCompras(movimentacaoRepository.buscarComprasDaFatura(cartao.faturaAtual().id()));
+    }
+
     @Transactional
-    public void solicitarCartaoCredito(String cpf, double limite) {
-        Account conta = bankService.buscarConta(cpf);
+    @RetryOnConflict
+    @EscritaAgrupada
+    public void solicitarCartaoCredito(String cpf, long limite) {
+        contaCache.invalidar(cpf);
+        Account conta = encontrada(accountRepository.buscarComCartoes(cpf));
         if (conta instanceof ContaPoupanca) {
             throw new DomainException("Contas poupança não podem possuir cartão de crédito.");
         }
@@ -27,22 +59,34 @@ public class CartaoService {
 
         CartaoCredito novo = new CartaoCredito(limite, numberGenerator);
         conta.setCartaoCredito(novo);
+        if (ledger != null) ledger.atualizarCadastro(conta);
         // @Transactional salva a mudança na 'conta'
     }
 
     @Transactional
+    @RetryOnConflict
+    @EscritaAgrupada
     public void solicitarCartaoDebito(String cpf) {
-        Account conta = bankService.buscarConta(cpf);
+        contaCache.invalidar(cpf);
+        Account conta = encontrada(accountRepository.buscarComCartoes(cpf));
         if (conta.isEncerrada()) throw new DomainException("Conta encerrada.");
         if (conta.getCartaoDebito() != null) throw new DomainException("Conta já possui cartão de débito.");
 
         CartaoDebito novo = new CartaoDebito(numberGenerator);
         conta.setCartaoDebito(novo);
+        if (ledger != null) ledger.atualizarCadastro(conta);
     }
 
     @Transactional
-    public void comprarDebito(String cpf, double valor, String descricao) {
-        Account conta = bankService.buscarConta(cpf);
+    @RetryOnConflict
+    @EscritaAgrupada
+    public void comprarDebito(String cpf, long valor, String descricao) {
+        contaCache.invalidar(cpf);
+        if (ledger != null) {
+            ledger.comprarDebito(cpf, valor, descricao);
+            return;
+        }
+        Account conta = encontrada(accountRepository.buscarComCartaoDebito(cpf));
         if (conta.isEncerrada()) throw new DomainException("Conta encerrada.");
         if (conta.getCartaoDebito() == null) throw new DomainException("Conta não possui cartão de débito.");
 
@@ -50,8 +94,15 @@ public class CartaoService {
     }
 
     @Transactional
-    public void comprarCredito(String cpf, double valor, String descricao) {
-        Account conta = bankService.buscarConta(cpf);
+    @RetryOnConflict
+    @EscritaAgrupada
+    public void comprarCredito(String cpf, long valor, String descricao) {
+        contaCache.invalidar(cpf);
+        if (ledger != null) {
+            ledger.comprarCredito(cpf, valor, descricao);
+            return;
+        }
+        Account conta = encontrada(accountRepository.buscarComCartaoCredito(cpf));
         if (conta.isEncerrada()) throw new DomainException("Conta encerrada.");
         if (conta.getCartaoCredito() == null) throw new DomainException("Conta não possui cartão de crédito.");
 
@@ -59,8 +110,15 @@ public class CartaoService {
     }
 
     @Transactional
+    @RetryOnConflict
+    @EscritaAgrupada
     public void pagarFatura(String cpf) {
-        Account conta = bankService.buscarConta(cpf);
+        contaCache.invalidar(cpf);
+        if (ledger != null) {
+            ledger.pagarFatura(cpf);
+            return;
+        }
+        Account conta = encontrada(accountRepository.buscarComComprasDaFatura(cpf));
         if (conta.isEncerrada()) throw new DomainException("Conta encerrada.");
         if (conta.getCartaoCredito() == null) throw new DomainException("Conta não possui cartão de crédito.");
 
@@ -69,7 +127,14 @@ public class CartaoService {
 
     // Métodos para poupança
     @Transactional
-    public void investirPoupanca(String cpf, double valor) {
+    @RetryOnConflict
+    @EscritaAgrupada
+    public void investirPoupanca(String cpf, long valor) {
+        contaCache.invalidar(cpf);
+        if (ledger != null) {
+            ledger.investir(cpf, valor);
+            return;
+        }
         Account conta = bankService.buscarConta(cpf);
         if (conta instanceof ContaPoupanca cp) {
             cp.investir(valor);
@@ -79,7 +144,14 @@ public class CartaoService {
     }
 
     @Transactional
-    public void resgatarPoupanca(String cpf, double valor) {
+    @RetryOnConflict
+    @EscritaAgrupada
+    public void resgatarPoupanca(String cpf, long valor) {
+        contaCache.invalidar(cpf);
+        if (ledger != null) {
+            ledger.resgatar(cpf, valor);
+            return;
+        }
         Account conta = bankService.buscarConta(cpf);
         if (conta instanceof ContaPoupanca cp) {
             cp.resgatar(valor);
@@ -87,4 +159,8 @@ public class CartaoService {
             throw new DomainException("Esta operação é exclusiva para Conta Poupança.");
         }
     }
-}
\ No newline at end of file
+
+    private static Account encontrada(Optional<Account> conta) {
+        return conta.orElseThrow(() -> new ResourceNotFoundException("Conta não encontrada."));
+    }
+}
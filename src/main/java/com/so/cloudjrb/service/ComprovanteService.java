@@ -0,0 +1,182 @@
+package com.so.cloudjrb.service;
+
+import com.so.cloudjrb.model.Account;
+import com.so.cloudjrb.model.Dinheiro;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Geração dos comprovantes em PDF (boleto e transferência) fora da transação.
+ * Os PDFs são preenchidos a partir dos modelos do PdfTemplateService.
+ *
+ * As operações do BankService apenas agendam o comprovante: os dados são copiados
+ * na hora e o trabalho entra numa fila limitada depois do commit. Um pool fixo de
+ * workers renderiza os PDFs; com a fila cheia, quem agendou executa o trabalho
+ * (back-pressure) em vez de acumular memória.
+ */
+@Service
+public class ComprovanteService {
+
+    @Value("${app.pdf.storage-path}") // Pega o valor do application.properties
+    private String pdfStoragePath;
+
+    @Value("${app.comprovantes.workers:2}")
+    private int workers;
+
+    @Value("${app.comprovantes.fila-capacidade:1000}")
+    private int capacidadeFila;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean threadsVirtuais;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PdfTemplateService pdfTemplateService;
+
+    private ThreadPoolExecutor executor;
+    private Timer tempoRenderizacao;
+    private Counter falhas;
+    private Counter executadosNoChamador;
+
+    @PostConstruct
+    void iniciar() {
+        AtomicInteger seq = new AtomicInteger();
+        // Com threads virtuais os workers também são virtuais: o pool continua
+        // limitando quantos PDFs são gerados ao mesmo tempo, mas a escrita do
+        // arquivo não ocupa uma thread da plataforma
+        ThreadFactory fabrica = threadsVirtuais
+                ? Thread.ofVirtual().name("comprovantes-", 1).factory()
+                : r -> {
+                    Thread t = new Thread(r, "comprovantes-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                };
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila),
+                fabrica,
+                (tarefa, pool) -> {
+                    if (pool.isShutdown()) {
+                        // Aplicação encerrando: o comprovante não é gerado
+                        falhas.increment();
+                        System.err.println("Comprovante descartado no encerramento: "
+                                + (tarefa instanceof Tarefa t ? t.nomeArquivo() : tarefa));
+                        return;
+                    }
+                    // Fila cheia: o próprio chamador renderiza (já fora da transação)
+                    executadosNoChamador.increment();
+                    tarefa.run();
+                });
+
+        meterRegistry.gauge("comprovantes.fila.tamanho", executor, e -> e.getQueue().size());
+        tempoRenderizacao = meterRegistry.timer("comprovantes.renderizacao");
+        falhas = meterRegistry.counter("comprovantes.falhas");
+        executadosNoChamador = meterRegistry.counter("comprovantes.executados.no.chamador");
+    }
+
+    @PreDestroy
+    void encerrar() throws InterruptedException {
+        // Deixa os comprovantes já enfileirados terminarem
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    public void agendarComprovantePagamento(Account conta, String codigo, long valor, String dataVencimento) {
+        agendarComprovantePagamento(conta.getTitular(), conta.getCpf(), codigo, valor, dataVencimento);
+    }
+
+    public void agendarComprovantePagamento(String titular, String cpf, String codigo, long valor, String dataVencimento) {
+        String[] valores = {
+                titular,
+                cpf,
+                codigo,
+                Dinheiro.formatar(valor),
+                dataVencimento != null && !dataVencimento.isBlank() ? dataVencimento : null,
+                agora()
+        };
+        agendar("comprovante_boleto_" + codigo + ".pdf", PdfTemplateService.Modelo.COMPROVANTE_BOLETO, valores);
+    }
+
+    public void agendarComprovanteTransferencia(Account origem, Account destino, long valor) {
+        agendarComprovanteTransferencia(origem.getTitular(), origem.getCpf(), destino.getTitular(), destino.getCpf(), valor);
+    }
+
+    public void agendarComprovanteTransferencia(String titularOrigem, String cpfOrigem,
+                                                String titularDestino, String cpfDestino, long valor) {
+        String codigo = java.util.UUID.randomUUID().toString().substring(0, 8);
+        String[] valores = {
+                codigo,
+                titularOrigem + " (CPF " + cpfOrigem + ")",
+                titularDestino + " (CPF " + cpfDestino + ")",
+                Dinheiro.formatar(valor),
+                agora()
+        };
+        agendar("comprovante_transferencia_" + codigo + ".pdf", PdfTemplateService.Modelo.COMPROVANTE_TRANSFERENCIA, valores);
+    }
+
+    private void agendar(String nomeArquivo, PdfTemplateService.Modelo modelo, String[] valores) {
+        Tarefa tarefa = new Tarefa(nomeArquivo, () -> tempoRenderizacao.record(() -> gerar(nomeArquivo, modelo, valores)));
+
+        // Dentro de uma transação, só enfileira depois do commit
+        // (um rollback não deve gerar comprovante)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    executor.execute(tarefa);
+                }
+            });
+        } else {
+            executor.execute(tarefa);
+        }
+    }
+
+    private void gerar(String nomeArquivo, PdfTemplateService.Modelo modelo, String[] valores) {
+        try {
+            Path pasta = Path.of(pdfStoragePath);
+            Files.createDirectories(pasta);
+
+            // Monta o PDF no buffer do worker e grava o arquivo de uma vez
+            ByteArrayOutputStream pdf = pdfTemplateService.preencherEmBuffer(modelo, valores);
+            try (OutputStream out = Files.newOutputStream(pasta.resolve(nomeArquivo))) {
+                pdf.writeTo(out);
+            }
+        } catch (Exception e) {
+            falhas.increment();
+            System.err.println("Erro ao gerar comprovante " + nomeArquivo + ": " + e.getMessage());
+        }
+    }
+
+    // Guarda o nome do arquivo para o log de um comprovante descartado
+    private record Tarefa(String nomeArquivo, Runnable trabalho) implements Runnable {
+        @Override
+        public void run() {
+            trabalho.run();
+        }
+    }
+
+    private static String agora() {
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
+    }
+}
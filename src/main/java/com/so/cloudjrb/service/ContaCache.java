@@ -0,0 +1,184 @@
+package com.so.cloudjrb.service;
+
+import com.so.cloudjrb.dto.ContaResponse;
+import com.so.cloudjrb.exception.ResourceNotFoundException;
+import com.so.cloudjrb.repository.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache de leitura das contas (GET de conta, saldo e cartões), por CPF.
+ *
+ * Limitado em tamanho (sai a menos usada) e com expiração (TTL). Toda operação
+ * que altera uma conta a invalida depois do commit. Várias consultas simultâneas
+ * ao mesmo CPF ausente esperam uma única ida ao banco.
+ */
+@Component
+public class ContaCache {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.contas.cache.max-entradas:10000}")
+    private int maxEntradas;
+
+    @Value("${app.contas.cache.ttl-segundos:30}")
+    private long ttlSegundos;
+
+    private record Entrada(ContaResponse conta, long expiraEm) {}
+
+    // Ordem de acesso: o primeiro item é o menos usado recentemente
+    private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    // Cargas em andamento (single-flight)
+    private final Map<String, CompletableFuture<ContaResponse>> emCarga = new ConcurrentHashMap<>();
+
+    private TransactionTemplate leitura;
+    private Counter acertos;
+    private Counter faltas;
+    private Counter removidasPorTamanho;
+    private Counter removidasPorExpiracao;
+    private Counter invalidacoes;
+
+    @PostConstruct
+    void configurar() {
+        leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+        acertos = meterRegistry.counter("contas.cache.acertos");
+        faltas = meterRegistry.counter("contas.cache.faltas");
+        removidasPorTamanho = meterRegistry.counter("contas.cache.remocoes", "motivo", "tamanho");
+        removidasPorExpiracao = meterRegistry.counter("contas.cache.remocoes", "motivo", "expiracao");
+        invalidacoes = meterRegistry.counter("contas.cache.remocoes", "motivo", "invalidacao");
+        meterRegistry.gauge("contas.cache.tamanho", this, ContaCache::tamanho);
+    }
+
+    /** Conta pelo CPF, do cache ou do banco. */
+    public ContaResponse buscar(String cpf) {
+        long agora = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Entrada e = entradas.get(cpf);
+            if (e != null) {
+                if (e.expiraEm() > agora) {
+                    acertos.increment();
+                    return e.conta();
+                }
+                entradas.remove(cpf);
+                removidasPorExpiracao.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+        faltas.increment();
+
+        CompletableFuture<ContaResponse> nova = new CompletableFuture<>();
+        CompletableFuture<ContaResponse> existente = emCarga.putIfAbsent(cpf, nova);
+        if (existente != null) {
+            return aguardar(existente);
+        }
+        try {
+            // Uma consulta só com as colunas da conta e dos cartões (sem movimentações)
+            ContaResponse conta = leitura.execute(status -> accountRepository.buscarResumo(cpf)
+                    .map(ContaResponse::de)
+                    .orElseThrow(() -> new ResourceNotFoundException("Conta não encontrada.")));
+            guardar(cpf, nova, conta);
+            nova.complete(conta);
+            return conta;
+        } catch (RuntimeException e) {
+            emCarga.remove(cpf, nova);
+            nova.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Remove a conta do cache após o commit da transação atual (ou já, se não houver). */
+    public void invalidar(String cpf) {
+        invalidar(List.of(cpf));
+    }
+
+    public void invalidar(Collection<String> cpfs) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remover(cpfs);
+                }
+            });
+        } else {
+            remover(cpfs);
+        }
+    }
+
+    private void remover(Collection<String> cpfs) {
+        lock.lock();
+        try {
+            for (String cpf : cpfs) {
+                emCarga.remove(cpf);
+                if (entradas.remove(cpf) != null) invalidacoes.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Se a conta foi invalidada durante a carga, 'carga' já saiu de 'emCarga' e o valor lido não entra
+    private void guardar(String cpf, CompletableFuture<ContaResponse> carga, ContaResponse conta) {
+        long expiraEm = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSegundos);
+        lock.lock();
+        try {
+            if (!emCarga.remove(cpf, carga)) return;
+            entradas.put(cpf, new Entrada(conta, expiraEm));
+            Iterator<String> it = entradas.keySet().iterator();
+            while (entradas.size() > maxEntradas && it.hasNext()) {
+                it.next();
+                it.remove();
+                removidasPorTamanho.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double tamanho() {
+        lock.lock();
+        try {
+            return entradas.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ContaResponse aguardar(CompletableFuture<ContaResponse> carga) {
+        try {
+            return carga.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+}
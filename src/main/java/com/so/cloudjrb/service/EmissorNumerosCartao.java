@@ -0,0 +1,234 @@
+package com.so.cloudjrb.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Números de cartão (16 dígitos, com dígito de Luhn) gerados de antemão.
+ *
+ * Uma thread mantém, por tipo de cartão, uma fila de números já conferidos contra
+ * os cartões gravados (índice único em 'numero'). A emissão só retira um número
+ * da fila (sem lock); quando ela baixa de 'minimo', a thread é acordada para
+ * completar até 'capacidade'. Com a fila vazia, o número é gerado e conferido na hora.
+ *
+ * Os BINs (prefixos) de cada tipo são configuráveis: um prefixo ("411111") ou uma
+ * faixa de prefixos do mesmo tamanho ("222100-272099").
+ */
+@Component
+public class EmissorNumerosCartao implements Runnable {
+
+    public enum Tipo { CREDITO, DEBITO }
+
+    private static final int DIGITOS = 16;
+    // Candidatos conferidos por consulta (o SQLite limita os parâmetros por comando)
+    private static final int LOTE_CONSULTA = 400;
+
+    private static final String EXISTENTES = """
+            select numero from cartoes_credito where numero in (:numeros)
+            union all
+            select numero from cartoes_debito where numero in (:numeros)
+            """;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cartoes.bins.credito:411111,222100-272099}")
+    private List<String> binsCredito;
+
+    @Value("${app.cartoes.bins.debito:438935,504175}")
+    private List<String> binsDebito;
+
+    @Value("${app.cartoes.pool.capacidade:1000}")
+    private int capacidade;
+
+    @Value("${app.cartoes.pool.minimo:250}")
+    private int minimo;
+
+    // Faixa de BINs: prefixos de 'digitos' dígitos entre 'inicio' e 'fim'
+    private record Faixa(long inicio, long fim, int digitos) {}
+
+    private static final class Pool {
+        final List<Faixa> faixas;
+        final ConcurrentLinkedQueue<String> numeros = new ConcurrentLinkedQueue<>();
+        final Set<String> naFila = ConcurrentHashMap.newKeySet();
+        final AtomicInteger tamanho = new AtomicInteger();
+        Counter vazio;
+
+        Pool(List<Faixa> faixas) {
+            this.faixas = faixas;
+        }
+    }
+
+    private final Map<Tipo, Pool> pools = new EnumMap<>(Tipo.class);
+    private final Random aleatorio = new SecureRandom(); // Só a thread de reabastecimento usa
+    private TransactionTemplate leitura;
+    private Counter colisoes;
+    private volatile boolean ativo;
+    private Thread thread;
+
+    @PostConstruct
+    void iniciar() {
+        pools.put(Tipo.CREDITO, new Pool(faixas(binsCredito)));
+        pools.put(Tipo.DEBITO, new Pool(faixas(binsDebito)));
+        leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+
+        colisoes = meterRegistry.counter("cartoes.numeros.colisoes");
+        for (Map.Entry<Tipo, Pool> e : pools.entrySet()) {
+            String tipo = e.getKey().name().toLowerCase();
+            Pool pool = e.getValue();
+            meterRegistry.gauge("cartoes.numeros.disponiveis", List.of(Tag.of("tipo", tipo)),
+                    pool.tamanho, AtomicInteger::get);
+            pool.vazio = meterRegistry.counter("cartoes.numeros.pool.vazio", "tipo", tipo);
+        }
+
+        ativo = true;
+        thread = new Thread(this, "cartoes-numeros");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    void parar() throws InterruptedException {
+        ativo = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /** Número formatado ("1234 5678 9012 3456") que ainda não pertence a nenhum cartão. */
+    public String emitir(Tipo tipo) {
+        Pool pool = pools.get(tipo);
+        String numero = pool.numeros.poll();
+        if (numero != null) {
+            pool.naFila.remove(numero);
+            if (pool.tamanho.decrementAndGet() < minimo) LockSupport.unpark(thread);
+            return numero;
+        }
+
+        // Fila vazia: gera aqui, conferindo um a um (na transação de quem chama)
+        pool.vazio.increment();
+        LockSupport.unpark(thread);
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        while (true) {
+            numero = gerar(pool.faixas, rnd);
+            // A thread pode estar enchendo a fila agora: não devolve um número que está nela
+            if (!pool.naFila.contains(numero) && existentes(List.of(numero)).isEmpty()) return numero;
+            colisoes.increment();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (ativo) {
+            try {
+                boolean completou = false;
+                for (Pool pool : pools.values()) {
+                    if (pool.tamanho.get() < minimo) {
+                        while (ativo && pool.tamanho.get() < capacidade) reabastecer(pool);
+                        completou = true;
+                    }
+                }
+                if (!completou) LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            } catch (RuntimeException e) {
+                // Ex: tabelas ainda não criadas na subida, banco ocupado
+                System.err.println("[CARTÕES] Erro ao gerar números, tentando novamente: " + e.getMessage());
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+    }
+
+    private void reabastecer(Pool pool) {
+        int quantos = Math.min(LOTE_CONSULTA, capacidade - pool.tamanho.get());
+        Set<String> candidatos = new LinkedHashSet<>(quantos * 2);
+        while (candidatos.size() < quantos) {
+            String numero = gerar(pool.faixas, aleatorio);
+            if (!pool.naFila.contains(numero)) candidatos.add(numero);
+        }
+        Set<String> existentes = existentes(candidatos);
+        colisoes.increment(existentes.size());
+        for (String numero : candidatos) {
+            if (existentes.contains(numero) || !pool.naFila.add(numero)) continue;
+            pool.numeros.add(numero);
+            pool.tamanho.incrementAndGet();
+        }
+    }
+
+    private Set<String> existentes(Collection<String> numeros) {
+        List<String> encontrados = leitura.execute(status ->
+                jdbcTemplate.queryForList(EXISTENTES, Map.of("numeros", numeros), String.class));
+        return encontrados == null ? Set.of() : new HashSet<>(encontrados);
+    }
+
+    /** BIN sorteado + dígitos aleatórios + dígito de Luhn, em grupos de 4. */
+    private static String gerar(List<Faixa> faixas, Random rnd) {
+        Faixa faixa = faixas.get(faixas.size() == 1 ? 0 : rnd.nextInt(faixas.size()));
+        long numero = faixa.inicio() + (long) (rnd.nextDouble() * (faixa.fim() - faixa.inicio() + 1));
+        for (int i = faixa.digitos(); i < DIGITOS - 1; i++) {
+            numero = numero * 10 + rnd.nextInt(10);
+        }
+        numero = numero * 10 + NumberGenerator.digitoLuhn(numero);
+
+        String digitos = Long.toString(numero);
+        StringBuilder sb = new StringBuilder(DIGITOS + 3);
+        for (int i = 0; i < DIGITOS; i++) {
+            if (i > 0 && i % 4 == 0) sb.append(' ');
+            sb.append(digitos.charAt(i));
+        }
+        return sb.toString();
+    }
+
+    private static List<Faixa> faixas(List<String> bins) {
+        List<Faixa> faixas = new ArrayList<>();
+        for (String bin : bins) {
+            String[] partes = bin.trim().split("-");
+            String inicio = partes[0].trim();
+            String fim = partes.length > 1 ? partes[1].trim() : inicio;
+            if (inicio.length() != fim.length() || inicio.length() < 6 || inicio.length() > 8
+                    || inicio.charAt(0) == '0' || !inicio.chars().allMatch(Character::isDigit)
+                    || !fim.chars().allMatch(Character::isDigit)) {
+                throw new IllegalStateException("BIN inválido em app.cartoes.bins: " + bin);
+            }
+            // Faixa invertida geraria números fora dela (ex: "272099-222100")
+            if (Long.parseLong(fim) < Long.parseLong(inicio)) {
+                throw new IllegalStateException("Faixa de BIN invertida em app.cartoes.bins: " + bin);
+            }
+            faixas.add(new Faixa(Long.parseLong(inicio), Long.parseLong(fim), inicio.length()));
+        }
+        if (faixas.isEmpty()) throw new IllegalStateException("Nenhum BIN configurado em app.cartoes.bins");
+        return faixas;
+    }
+}
@@ -0,0 +1,341 @@
+package com.so.cloudjrb.service;
+
+import com.so.cloudjrb.exception.DomainException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Escritor único com commit em grupo. O SQLite aceita um escritor por vez; em vez
+ * de cada operação disputar o lock do arquivo e pagar o próprio commit (fsync),
+ * as operações entram numa fila e uma só thread as aplica em grupos de até
+ * 'max-operacoes' (ou o que chegar em 'max-espera-ms'), com um commit por grupo.
+ *
+ * Cada operação roda entre um savepoint e um flush: se falhar, só ela é desfeita
+ * (rollback até o savepoint, e os callbacks de commit que ela registrou são
+ * descartados) e as vizinhas seguem. Se o commit do grupo falhar, nada foi gravado
+ * nem disparado e as operações são refeitas uma a uma, cada uma na sua transação.
+ * O resultado (ou a exceção) só chega a quem chamou depois do commit.
+ *
+ * Quem chama espera no máximo 'resultado-ms'. Uma operação que ainda não começou
+ * sai da fila sem efeito; uma que já está no grupo pode ainda ser gravada.
+ *
+ * Os métodos marcados com @EscritaAgrupada passam por aqui (EscritaAgrupadaAspect).
+ * Com o ledger ligado o banco já não está no caminho das operações: desligado.
+ */
+@Service
+@ConditionalOnExpression(EscritorAgrupado.CONDICAO)
+public class EscritorAgrupado implements Runnable {
+
+    public static final String CONDICAO = "${app.escrita.agrupada.habilitado:true} and !${app.ledger.habilitado:false}";
+
+    /** Uma operação de escrita (normalmente o restante de uma chamada interceptada). */
+    @FunctionalInterface
+    public interface Operacao<T> {
+        T executar() throws Throwable;
+    }
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.escrita.agrupada.max-operacoes:64}")
+    private int maxOperacoes;
+
+    @Value("${app.escrita.agrupada.max-espera-ms:2}")
+    private long maxEsperaMs;
+
+    @Value("${app.escrita.agrupada.fila-capacidade:10000}")
+    private int capacidadeFila;
+
+    // Quanto tempo quem chama espera por uma vaga na fila
+    @Value("${app.escrita.agrupada.espera-ms:5000}")
+    private long esperaMs;
+
+    // Quanto tempo quem chama espera pelo commit da operação
+    @Value("${app.escrita.agrupada.resultado-ms:30000}")
+    private long resultadoMs;
+
+    // 'reservada': o escritor a pegou para um grupo, ou quem chamou desistiu dela
+    private record Pendente(Operacao<?> operacao, CompletableFuture<Object> resultado, long enfileiradaEm,
+                            AtomicBoolean reservada) {}
+
+    // Resultado de uma operação dentro do grupo, entregue só após o commit
+    private record Desfecho(Object valor, Throwable erro) {}
+
+    private BlockingQueue<Pendente> fila;
+    private TransactionTemplate transacao;
+    private volatile boolean ativo;
+    private Thread thread;
+
+    private DistributionSummary tamanhoGrupo;
+    private Timer tempoCommit;
+    private Timer esperaNaFila;
+    private Counter gruposRefeitos;
+
+    // Operação do grupo em curso na thread do escritor
+    private static final ThreadLocal<Escopo> ESCOPO = new ThreadLocal<>();
+
+    private static final class Escopo {
+        boolean rollbackPedido;
+    }
+
+    // Traduz também as exceções do Hibernate (ex: violação de constraint no flush)
+    private static final HibernateJpaDialect DIALETO = new HibernateJpaDialect();
+
+    /**
+     * Um participante pediu rollback. Dentro de uma operação do grupo quem desfaz é
+     * o savepoint dela (a transação do grupo não é marcada): devolve true.
+     * Chamado pelo gerenciador de transações da aplicação (TransacaoConfig).
+     */
+    public static boolean absorverRollback() {
+        Escopo escopo = ESCOPO.get();
+        if (escopo == null) return false;
+        escopo.rollbackPedido = true;
+        return true;
+    }
+
+    @PostConstruct
+    void iniciar() {
+        fila = new LinkedBlockingQueue<>(capacidadeFila);
+        transacao = new TransactionTemplate(transactionManager);
+
+        tamanhoGrupo = DistributionSummary.builder("escrita.grupo.operacoes")
+                .description("Operações por commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        tempoCommit = Timer.builder("escrita.grupo.duracao")
+                .description("Tempo de um grupo, da primeira operação ao commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        esperaNaFila = Timer.builder("escrita.operacao.espera")
+                .description("Tempo entre o envio da operação e o início do seu grupo")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        gruposRefeitos = meterRegistry.counter("escrita.grupo.refeitos");
+        meterRegistry.gauge("escrita.fila.pendentes", fila, BlockingQueue::size);
+
+        ativo = true;
+        thread = new Thread(this, "escrita-agrupada");
+        thread.start();
+    }
+
+    @PreDestroy
+    void parar() throws InterruptedException {
+        ativo = false;
+        if (thread != null) thread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /** Se a thread atual é a do escritor (chamadas aninhadas rodam direto). */
+    public boolean naThreadDeEscrita() {
+        return Thread.currentThread() == thread;
+    }
+
+    /** Envia a operação e devolve um futuro, completado após o commit do grupo. */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submeter(Operacao<T> operacao) {
+        return (CompletableFuture<T>) enfileirar(operacao).resultado();
+    }
+
+    /** Envia a operação e espera o resultado (ou relança a exceção dela), até 'resultado-ms'. */
+    @SuppressWarnings("unchecked")
+    public <T> T executar(Operacao<T> operacao) throws Throwable {
+        Pendente p = enfileirar(operacao);
+        try {
+            return (T) p.resultado().get(resultadoMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() != null ? e.getCause() : e;
+        } catch (TimeoutException e) {
+            throw desistir(p, new DomainException("Sistema ocupado, tente novamente."));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw desistir(p, new DomainException("Operação interrompida."));
+        }
+    }
+
+    private Pendente enfileirar(Operacao<?> operacao) {
+        Pendente p = new Pendente(operacao, new CompletableFuture<>(), System.nanoTime(), new AtomicBoolean());
+        try {
+            if (!ativo || !fila.offer(p, esperaMs, TimeUnit.MILLISECONDS)) {
+                throw new DomainException("Sistema ocupado, tente novamente.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DomainException("Operação interrompida.");
+        }
+        return p;
+    }
+
+    // Se o escritor ainda não pegou a operação, ela fica na fila mas não roda mais.
+    // Se já pegou, pode ser gravada: quem chamou não deve repetir sem conferir.
+    private static DomainException desistir(Pendente p, DomainException semEfeito) {
+        if (p.reservada().compareAndSet(false, true)) {
+            p.resultado().completeExceptionally(semEfeito);
+            return semEfeito;
+        }
+        return new DomainException("Operação ainda em processamento; confira o resultado antes de repetir.");
+    }
+
+    @Override
+    public void run() {
+        List<Pendente> grupo = new ArrayList<>(maxOperacoes);
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pendente primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (primeiro == null) continue;
+                grupo.add(primeiro);
+                // Junta o que chegar até encher o grupo ou vencer o prazo
+                long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxEsperaMs);
+                while (grupo.size() < maxOperacoes) {
+                    fila.drainTo(grupo, maxOperacoes - grupo.size());
+                    long resta = prazo - System.nanoTime();
+                    if (grupo.size() >= maxOperacoes || resta <= 0) break;
+                    Pendente proxima = fila.poll(resta, TimeUnit.NANOSECONDS);
+                    if (proxima == null) break;
+                    grupo.add(proxima);
+                }
+                aplicar(grupo);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                falharTodas(grupo, e);
+                return;
+            } catch (RuntimeException | Error e) {
+                System.err.println("[ESCRITA] Erro inesperado no grupo: " + e.getMessage());
+                falharTodas(grupo, e);
+            } finally {
+                grupo.clear();
+            }
+        }
+    }
+
+    private void aplicar(List<Pendente> grupo) {
+        // Deixa de fora as que quem chamou já desistiu de esperar
+        grupo.removeIf(p -> !p.reservada().compareAndSet(false, true));
+        if (grupo.isEmpty()) return;
+        long agora = System.nanoTime();
+        for (Pendente p : grupo) esperaNaFila.record(agora - p.enfileiradaEm(), TimeUnit.NANOSECONDS);
+        tamanhoGrupo.record(grupo.size());
+
+        List<Desfecho> desfechos = new ArrayList<>(grupo.size());
+        try {
+            tempoCommit.record(() -> transacao.executeWithoutResult(status -> {
+                for (Pendente p : grupo) desfechos.add(aplicarComSavepoint(p.operacao()));
+            }));
+        } catch (RuntimeException e) {
+            // Nada do grupo foi gravado e nenhum afterCommit disparou: refaz cada operação
+            // sozinha (efeitos fora do banco das operações ficam em afterCommit, ver @EscritaAgrupada)
+            gruposRefeitos.increment();
+            System.err.println("[ESCRITA] Commit do grupo falhou (" + e.getMessage() + "), refazendo "
+                    + grupo.size() + " operações individualmente.");
+            for (Pendente p : grupo) concluir(p, aplicarSozinha(p.operacao()));
+            return;
+        }
+        for (int i = 0; i < grupo.size(); i++) concluir(grupo.get(i), desfechos.get(i));
+    }
+
+    private Desfecho aplicarComSavepoint(Operacao<?> operacao) {
+        Session sessao = entityManager.unwrap(Session.class);
+        Savepoint savepoint = sessao.doReturningWork(con -> con.setSavepoint());
+        // Callbacks de commit já registrados pelas operações anteriores do grupo
+        List<TransactionSynchronization> anteriores = TransactionSynchronizationManager.getSynchronizations();
+        Escopo escopo = new Escopo();
+        ESCOPO.set(escopo);
+        try {
+            Object valor = operacao.executar();
+            entityManager.flush(); // Erros de banco aparecem aqui, ainda dentro do savepoint
+            // Um participante falhou e a operação seguiu: fora do grupo o commit também falharia
+            if (escopo.rollbackPedido) {
+                throw new UnexpectedRollbackException("Transação marcada para rollback durante a operação");
+            }
+            sessao.doWork(con -> con.releaseSavepoint(savepoint));
+            return new Desfecho(valor, null);
+        } catch (Throwable erro) {
+            sessao.doWork(con -> con.rollback(savepoint));
+            // Alterações da operação desfeita ainda estariam no contexto de persistência;
+            // as das anteriores já foram gravadas pelo flush
+            entityManager.clear();
+            // Os callbacks dela (cache, dedup, comprovantes) não podem disparar no commit do grupo
+            descartarSincronizacoesDesde(anteriores);
+            return new Desfecho(null, traduzir(erro));
+        } finally {
+            ESCOPO.remove();
+        }
+    }
+
+    private static void descartarSincronizacoesDesde(List<TransactionSynchronization> anteriores) {
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        for (TransactionSynchronization s : anteriores) TransactionSynchronizationManager.registerSynchronization(s);
+    }
+
+    private Desfecho aplicarSozinha(Operacao<?> operacao) {
+        try {
+            return new Desfecho(transacao.execute(status -> {
+                try {
+                    return operacao.executar();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new CompletionException(e);
+                }
+            }), null);
+        } catch (CompletionException e) {
+            return new Desfecho(null, e.getCause());
+        } catch (Throwable erro) {
+            return new Desfecho(null, traduzir(erro));
+        }
+    }
+
+    // Exceções do JPA lançadas no flush viram as do Spring (ex: DataIntegrityViolationException),
+    // como no @Repository: o flush daqui não passa pela tradução dos repositórios
+    private static Throwable traduzir(Throwable erro) {
+        if (erro instanceof RuntimeException re) {
+            // null: não é exceção do JPA (ex: DomainException), segue como está
+            RuntimeException traduzida = DIALETO.translateExceptionIfPossible(re);
+            return traduzida != null ? traduzida : re;
+        }
+        return erro;
+    }
+
+    private static void concluir(Pendente p, Desfecho d) {
+        if (d.erro() != null) p.resultado().completeExceptionally(d.erro());
+        else p.resultado().complete(d.valor());
+    }
+
+    private static void falharTodas(List<Pendente> grupo, Throwable erro) {
+        for (Pendente p : grupo) p.resultado().completeExceptionally(erro);
+    }
+}
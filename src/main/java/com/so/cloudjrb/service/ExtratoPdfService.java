@@ -1,64 +1,138 @@
 package com.so.cloudjrb.service;
 
+import com.so.cloudjrb.dto.MovimentacaoResponse;
 import com.so.cloudjrb.model.Account;
 import com.so.cloudjrb.model.ContaCorrente;
-import com.so.cloudjrb.model.Movimentacao;
+import com.so.cloudjrb.model.Dinheiro;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * Serviço dedicado a gerar PDFs de Extrato e Fatura.
  * Isso limpa os Controllers.
+ *
+ * A tabela de movimentações é escrita em blocos: a cada 'linhasPorBloco' linhas
+ * o bloco é enviado ao documento e descartado, em vez de montar a tabela inteira
+ * em memória antes do document.add.
  */
 @Service
 public class ExtratoPdfService {
 
-    private static final Font TITULO_FONT = new Font(Font.FontFamily.HELVETICA, 18, Font.BOLD);
-    private static final Font INFO_FONT = new Font(Font.FontFamily.HELVETICA, 12, Font.NORMAL);
+    private static final Font INFO_FONT = new Font(PdfTemplateService.FONTE_NORMAL, 12, Font.NORMAL);
+    private static final float MARGEM = 36f;
+
+    @Autowired
+    private ExtratoService extratoService;
+
+    @Autowired
+    private PdfTemplateService pdfTemplateService;
+
+    @Value("${app.extrato.pdf.linhas-por-bloco:200}")
+    private int linhasPorBloco = 200;
+
+    // Teto de linhas por PDF, para uma requisição não prender a thread e o heap
+    @Value("${app.extrato.pdf.max-linhas:10000}")
+    private int maxLinhas = 10000;
 
     /**
-     * Gera o extrato da conta e escreve diretamente no OutputStream da resposta HTTP.
+     * Gera o extrato lendo as movimentações do banco página a página (cursor por id),
+     * opcionalmente restrito ao período [inicio, fim]. No máximo 'maxLinhas' linhas.
      */
-    public void gerarExtratoPDF(Account conta, OutputStream outputStream) throws DocumentException {
+    public void gerarExtratoPDF(Account conta, String inicio, String fim, OutputStream outputStream) throws DocumentException {
+        Document document = abrirDocumento(conta, outputStream);
+
+        PdfPTable table = novaTabela();
+        long cursor = 0L;
+        int linhas = 0;
+        boolean truncado = false;
+        while (true) {
+            int restante = maxLinhas - linhas;
+            // Pede um registro a mais para saber se o teto cortou o extrato
+            List<MovimentacaoResponse> pagina = extratoService.buscarMovimentacoes(
+                    conta.getCpf(), cursor, (int) Math.min(linhasPorBloco, restante + 1L), inicio, fim);
+            if (pagina.isEmpty()) break;
+
+            for (MovimentacaoResponse m : pagina) {
+                if (linhas == maxLinhas) {
+                    truncado = true;
+                    break;
+                }
+                adicionarLinha(table, m.dataHora(), m.tipo(), m.valor());
+                linhas++;
+            }
+            document.add(table);
+
+            if (truncado || pagina.size() < linhasPorBloco) break;
+            cursor = pagina.get(pagina.size() - 1).id();
+        }
+
+        fecharDocumento(document, table, conta, truncado);
+    }
+
+    private Document abrirDocumento(Account conta, OutputStream outputStream) throws DocumentException {
+        // A primeira página reserva o espaço do cabeçalho pré-renderizado
         Document document = new Document(PageSize.A4);
-        PdfWriter.getInstance(document, outputStream);
+        document.setMargins(MARGEM, MARGEM, PdfTemplateService.Modelo.CABECALHO_EXTRATO.altura(), MARGEM);
+        PdfWriter writer = PdfWriter.getInstance(document, outputStream);
         document.open();
 
-        document.add(new Paragraph("Extrato da conta\n\n", TITULO_FONT));
-        document.add(new Paragraph("CPF: " + conta.getCpf(), INFO_FONT));
-        document.add(new Paragraph("Titular: " + conta.getTitular(), INFO_FONT));
-        document.add(new Paragraph("Emitido em: " +
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")), INFO_FONT));
-        document.add(new Paragraph("\n"));
+        try {
+            pdfTemplateService.aplicar(PdfTemplateService.Modelo.CABECALHO_EXTRATO, writer,
+                    conta.getCpf(),
+                    conta.getTitular(),
+                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+        } catch (IOException e) {
+            throw new DocumentException(e);
+        }
 
+        // Margens normais a partir da segunda página
+        document.setMargins(MARGEM, MARGEM, MARGEM, MARGEM);
+        return document;
+    }
+
+    // Tabela "incompleta": cada document.add escreve as linhas pendentes e as remove
+    private PdfPTable novaTabela() {
         PdfPTable table = new PdfPTable(3);
         table.setWidthPercentage(100);
+        table.setComplete(false);
+        table.setHeaderRows(1); // Repete o cabeçalho em cada página
         table.addCell("Data/Hora");
         table.addCell("Tipo");
         table.addCell("Valor (R$)");
+        return table;
+    }
 
-        List<Movimentacao> movs = conta.getMovimentacoes() != null ? conta.getMovimentacoes() : List.of();
-        for (Movimentacao m : movs) {
-            table.addCell(m.getDataHora());
-            table.addCell(m.getTipo());
-            table.addCell(String.format(Locale.US, "%.2f", m.getValor()));
-        }
+    private void adicionarLinha(PdfPTable table, String dataHora, String tipo, long valor) {
+        table.addCell(dataHora);
+        table.addCell(tipo);
+        table.addCell(Dinheiro.decimal(valor).toPlainString());
+    }
+
+    private void fecharDocumento(Document document, PdfPTable table, Account conta, boolean truncado) throws DocumentException {
+        table.setComplete(true);
         document.add(table);
 
-        document.add(new Paragraph("\nSaldo atual: R$ " + String.format(Locale.US, "%.2f", conta.getSaldo()), INFO_FONT));
+        if (truncado) {
+            document.add(new Paragraph("\nExtrato limitado às primeiras " + maxLinhas +
+                    " movimentações. Informe um período (inicio/fim) para ver as demais.", INFO_FONT));
+        }
+
+        document.add(new Paragraph("\nSaldo atual: R$ " + Dinheiro.decimal(conta.getSaldo()).toPlainString(), INFO_FONT));
 
         if (conta instanceof ContaCorrente cc) {
-            double limite = cc.getLimiteChequeEspecial();
-            document.add(new Paragraph("Cheque especial: R$ " + String.format(Locale.US, "%.2f", limite), INFO_FONT));
-            document.add(new Paragraph("Saldo disponível: R$ " + String.format(Locale.US, "%.2f", conta.getSaldo() + limite), INFO_FONT));
+            long limite = cc.getLimiteChequeEspecial();
+            document.add(new Paragraph("Cheque especial: R$ " + Dinheiro.decimal(limite).toPlainString(), INFO_FONT));
+            document.add(new Paragraph("Saldo disponível: R$ " + Dinheiro.decimal(conta.getSaldo() + limite).toPlainString(), INFO_FONT));
         }
 
         document.close();
@@ -66,4 +140,4 @@ public class ExtratoPdfService {
 
     // Você pode adicionar 'gerarFaturaPDF' aqui também,
     // copiando a lógica do seu ApiServer.java
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+package com.so.cloudjrb.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.so.cloudjrb.dto.ExtratoResponse;
+import com.so.cloudjrb.dto.MovimentacaoResponse;
+import com.so.cloudjrb.exception.DomainException;
+import com.so.cloudjrb.exception.ResourceNotFoundException;
+import com.so.cloudjrb.model.Account;
+import com.so.cloudjrb.repository.AccountRepository;
+import com.so.cloudjrb.repository.MovimentacaoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Consulta do extrato paginado.
+ * As movimentações são lidas direto da tabela 'movimentacoes' (nunca pela
+ * coleção Account.movimentacoes), uma página por vez.
+ */
+@Service
+public class ExtratoService {
+
+    private static final DateTimeFormatter DATA_BR = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    @Autowired
+    private BankService bankService;
+
+    @Autowired
+    private MovimentacaoRepository movimentacaoRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.extrato.pagina.padrao:50}")
+    private int tamanhoPadrao;
+
+    @Value("${app.extrato.pagina.maximo:200}")
+    private int tamanhoMaximo;
+
+    // Quantas linhas o driver traz por ida ao banco durante a exportação
+    @Value("${app.extrato.exportacao.fetch-size:500}")
+    private int fetchSize;
+
+    @Transactional(readOnly = true)
+    public ExtratoResponse buscarPagina(String cpf, Long cursor, Integer limite, String inicio, String fim) {
+        Account conta = bankService.buscarConta(cpf);
+
+        int tamanho = limite == null || limite <= 0 ? tamanhoPadrao : Math.min(limite, tamanhoMaximo);
+        List<MovimentacaoResponse> movs = buscarMovimentacoes(cpf, cursor == null ? 0L : cursor,
+                tamanho + 1, inicio, fim);
+
+        // Buscamos um registro a mais só para saber se existe uma próxima página
+        Long proximoCursor = null;
+        if (movs.size() > tamanho) {
+            movs = movs.subList(0, tamanho);
+            proximoCursor = movs.get(tamanho - 1).id();
+        }
+
+        return new ExtratoResponse(cpf, conta.getSaldo(), movs, proximoCursor);
+    }
+
+    /**
+     * Lê uma página de movimentações (id > cursor), aplicando o período apenas
+     * quando 'inicio' ou 'fim' forem informados.
+     */
+    public List<MovimentacaoResponse> buscarMovimentacoes(String cpf, long cursor, int quantidade,
+                                                          String inicio, String fim) {
+        if (inicio == null && fim == null) {
+            return movimentacaoRepository.buscarPagina(cpf, cursor, Limit.of(quantidade));
+        }
+        long[] periodo = periodo(inicio, fim);
+        return movimentacaoRepository.buscarPaginaNoPeriodo(cpf, cursor, periodo[0], periodo[1], Limit.of(quantidade));
+    }
+
+    // Converte 'inicio'/'fim' em limites inclusivos (epoch ms, fuso do servidor);
+    // o lado não informado fica em aberto
+    private long[] periodo(String inicio, String fim) {
+        ZoneId fuso = ZoneId.systemDefault();
+        long de = inicio != null ? parseData(inicio).atStartOfDay(fuso).toInstant().toEpochMilli() : Long.MIN_VALUE;
+        long ate = fim != null ? parseData(fim).plusDays(1).atStartOfDay(fuso).toInstant().toEpochMilli() - 1 : Long.MAX_VALUE;
+        if (de > ate) throw new DomainException("Período inválido: 'inicio' posterior a 'fim'.");
+        return new long[] { de, ate };
+    }
+
+    /**
+     * Confere 'inicio'/'fim' sem consultar nada. Os endpoints de streaming chamam antes
+     * de abrir a resposta: um erro dentro do stream chegaria com o 200 já enviado.
+     */
+    public void validarPeriodo(String inicio, String fim) {
+        if (inicio != null || fim != null) periodo(inicio, fim);
+    }
+
+    // Usado pelos endpoints de streaming para devolver 404 antes de abrir a resposta
+    @Transactional(readOnly = true)
+    public void verificarConta(String cpf) {
+        if (!accountRepository.existsById(cpf)) {
+            throw new ResourceNotFoundException("Conta não encontrada.");
+        }
+    }
+
+    /**
+     * Exporta todo o histórico da conta em NDJSON (um objeto JSON por linha).
+     * As linhas são lidas com um cursor forward-only e escritas à medida que chegam,
+     * então a memória usada não depende do tamanho da conta.
+     */
+    @Transactional(readOnly = true)
+    public void exportarNdjson(String cpf, String inicio, String fim, OutputStream outputStream) throws IOException {
+        String hql = "select new com.so.cloudjrb.dto.MovimentacaoResponse(m.id, m.instante, m.tipo, m.contraparte, m.detalhe, m.valor) " +
+                "from Movimentacao m where m.accountCpf = :cpf";
+        boolean comPeriodo = inicio != null || fim != null;
+        if (comPeriodo) {
+            hql += " and m.instante >= :inicio and m.instante <= :fim";
+        }
+        hql += " order by m.id";
+
+        Query<MovimentacaoResponse> query = entityManager.unwrap(Session.class)
+                .createQuery(hql, MovimentacaoResponse.class)
+                .setParameter("cpf", cpf)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true);
+        if (comPeriodo) {
+            long[] periodo = periodo(inicio, fim);
+            query.setParameter("inicio", periodo[0]).setParameter("fim", periodo[1]);
+        }
+
+        // Sem flush a cada objeto: o buffer do gerador é descarregado a cada 'fetchSize' linhas
+        ObjectWriter writer = objectMapper.writerFor(MovimentacaoResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(outputStream)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+             ScrollableResults<MovimentacaoResponse> linhas = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            long escritas = 0;
+            while (linhas.next()) {
+                writer.writeValue(gen, linhas.get());
+                gen.writeRaw('\n');
+                if (++escritas % fetchSize == 0) {
+                    gen.flush();
+                }
+            }
+            gen.flush();
+        }
+    }
+
+    // Aceita tanto yyyy-MM-dd (input type="date") quanto dd/MM/yyyy
+    private LocalDate parseData(String valor) {
+        try {
+            return valor.contains("/") ? LocalDate.parse(valor, DATA_BR) : LocalDate.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new DomainException("Data inválida: " + valor + " (use yyyy-MM-dd ou dd/MM/yyyy).");
+        }
+    }
+}
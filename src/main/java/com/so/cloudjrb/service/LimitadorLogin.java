@@ -0,0 +1,237 @@
+package com.so.cloudjrb.service;
+
+import com.so.cloudjrb.exception.LoginBloqueadoException;
+import com.so.cloudjrb.model.BloqueioLogin;
+import com.so.cloudjrb.repository.BloqueioLoginRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Limite de tentativas de login por CPF e por IP.
+ *
+ * Cada chave tem um contador de falhas em janela deslizante (a janela atual mais
+ * uma fração da anterior), atualizado por CAS, sem locks. Ao passar do limite a
+ * chave fica bloqueada por 'bloqueio-segundos'; o bloqueio é gravado no banco
+ * (e recarregado na subida), então sobrevive a um restart.
+ *
+ * Tentativas de uma chave bloqueada são recusadas só com a memória, antes de
+ * qualquer consulta ao banco.
+ *
+ * O número de chaves em memória tem teto ('max-chaves'): sem ele, falhas com CPFs
+ * ou IPs sempre novos encheriam a memória. Cheio, as chaves sem bloqueio em vigor
+ * são descartadas (primeiro as sem falhas recentes) até sobrar uma folga de 10%;
+ * um bloqueio nunca é descartado. Se só houver bloqueios, a falha de uma chave
+ * nova não é contada.
+ */
+@Component
+public class LimitadorLogin {
+
+    @Autowired
+    private BloqueioLoginRepository repository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired // CPF bloqueado: as sessões já abertas também deixam de valer
+    private TokenService tokenService;
+
+    @Value("${app.login.janela-segundos:300}")
+    private long janelaSegundos;
+
+    @Value("${app.login.max-falhas-cpf:5}")
+    private int maxFalhasCpf;
+
+    @Value("${app.login.max-falhas-ip:20}")
+    private int maxFalhasIp;
+
+    @Value("${app.login.bloqueio-segundos:300}")
+    private long bloqueioSegundos;
+
+    @Value("${app.login.max-chaves:100000}")
+    private int maxChaves;
+
+    /**
+     * Estado imutável de uma chave: falhas na janela atual e na anterior,
+     * e até quando está bloqueada (epoch ms).
+     */
+    private record Estado(long janela, int atual, int anterior, long bloqueadoAte) {
+
+        Estado naJanela(long janela) {
+            if (janela == this.janela) return this;
+            int anterior = janela == this.janela + 1 ? atual : 0;
+            return new Estado(janela, 0, anterior, bloqueadoAte);
+        }
+
+        // Falhas na janela deslizante: a anterior pesa o quanto ainda se sobrepõe
+        double falhas(double decorrido) {
+            return anterior * (1.0 - decorrido) + atual;
+        }
+    }
+
+    private final Map<String, AtomicReference<Estado>> chaves = new ConcurrentHashMap<>();
+
+    // Só para o descarte com o mapa cheio (o caminho comum não usa lock)
+    private final ReentrantLock descarte = new ReentrantLock();
+
+    private Counter recusados;
+    private Counter bloqueiosCpf;
+    private Counter bloqueiosIp;
+    private Counter descartadas;
+
+    @PostConstruct
+    void iniciar() {
+        recusados = meterRegistry.counter("login.recusados");
+        bloqueiosCpf = meterRegistry.counter("login.bloqueios", "tipo", "cpf");
+        bloqueiosIp = meterRegistry.counter("login.bloqueios", "tipo", "ip");
+        descartadas = meterRegistry.counter("login.limitador.descartadas");
+        meterRegistry.gauge("login.limitador.chaves", chaves, Map::size);
+        meterRegistry.gauge("login.limitador.chaves.max", this, l -> l.maxChaves);
+
+        // Bloqueios ainda em vigor gravados antes do restart
+        long agora = System.currentTimeMillis();
+        for (BloqueioLogin b : repository.findByBloqueadoAteGreaterThan(agora)) {
+            chaves.put(b.getChave(), new AtomicReference<>(new Estado(janela(agora), 0, 0, b.getBloqueadoAte())));
+        }
+    }
+
+    /** Recusa (LoginBloqueadoException) se o CPF ou o IP estiver bloqueado. Não acessa o banco. */
+    public void verificar(String cpf, String ip) {
+        long agora = System.currentTimeMillis();
+        long ate = Math.max(bloqueadoAte(chaveCpf(cpf)), bloqueadoAte(chaveIp(ip)));
+        if (ate > agora) {
+            recusados.increment();
+            throw new LoginBloqueadoException(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(ate - agora + 999)));
+        }
+    }
+
+    /** Conta uma falha para o CPF e para o IP (null: não conta, ex: CPF sem conta). */
+    public void registrarFalha(String cpf, String ip) {
+        if (cpf != null && falhar(chaveCpf(cpf), maxFalhasCpf, bloqueiosCpf)) tokenService.revogar(cpf);
+        if (ip != null) falhar(chaveIp(ip), maxFalhasIp, bloqueiosIp);
+    }
+
+    /** Login correto: zera as falhas do CPF (as do IP continuam valendo). */
+    public void registrarSucesso(String cpf) {
+        if (cpf != null) chaves.remove(chaveCpf(cpf));
+    }
+
+    // Devolve true se esta falha bloqueou a chave
+    private boolean falhar(String chave, int maxFalhas, Counter bloqueios) {
+        AtomicReference<Estado> ref = estado(chave);
+        if (ref == null) return false;
+        long agora = System.currentTimeMillis();
+        long janela = janela(agora);
+        double decorrido = (agora % janelaMs()) / (double) janelaMs();
+
+        Estado antes;
+        Estado depois;
+        do {
+            antes = ref.get();
+            Estado e = antes.naJanela(janela);
+            depois = new Estado(janela, e.atual() + 1, e.anterior(), e.bloqueadoAte());
+            if (depois.bloqueadoAte() <= agora && depois.falhas(decorrido) >= maxFalhas) {
+                // Bloqueia e recomeça a contagem
+                depois = new Estado(janela, 0, 0, agora + TimeUnit.SECONDS.toMillis(bloqueioSegundos));
+            }
+        } while (!ref.compareAndSet(antes, depois));
+
+        if (depois.bloqueadoAte() > agora && depois.bloqueadoAte() != antes.bloqueadoAte()) {
+            bloqueios.increment();
+            persistir(chave, depois.bloqueadoAte());
+            return true;
+        }
+        return false;
+    }
+
+    // null: mapa cheio só de bloqueios, a chave nova não é contada
+    private AtomicReference<Estado> estado(String chave) {
+        AtomicReference<Estado> ref = chaves.get(chave);
+        if (ref != null) return ref;
+        if (chaves.size() >= maxChaves && !abrirEspaco()) return null;
+        return chaves.computeIfAbsent(chave, k -> new AtomicReference<>(new Estado(0, 0, 0, 0)));
+    }
+
+    // Descarta chaves sem bloqueio até a folga; devolve false se não couber mais nenhuma
+    private boolean abrirEspaco() {
+        descarte.lock();
+        try {
+            if (chaves.size() < maxChaves) return true; // Outra thread já abriu espaço
+            long agora = System.currentTimeMillis();
+            long janela = janela(agora);
+            int alvo = maxChaves - Math.max(1, maxChaves / 10);
+            // Primeiro as que o limpar() removeria; depois qualquer uma sem bloqueio
+            descartar(alvo, e -> e.bloqueadoAte() <= agora && e.janela() < janela - 1);
+            descartar(alvo, e -> e.bloqueadoAte() <= agora);
+            return chaves.size() < maxChaves;
+        } finally {
+            descarte.unlock();
+        }
+    }
+
+    private void descartar(int alvo, Predicate<Estado> descartavel) {
+        Iterator<AtomicReference<Estado>> it = chaves.values().iterator();
+        while (chaves.size() > alvo && it.hasNext()) {
+            if (descartavel.test(it.next().get())) {
+                it.remove();
+                descartadas.increment();
+            }
+        }
+    }
+
+    // Grava o bloqueio no banco; se falhar, ele continua valendo em memória
+    private void persistir(String chave, long bloqueadoAte) {
+        try {
+            repository.save(new BloqueioLogin(chave, bloqueadoAte));
+            System.out.println("[LOGIN] " + chave + " bloqueado por " + bloqueioSegundos + "s.");
+        } catch (RuntimeException e) {
+            System.err.println("[LOGIN] Falha ao gravar bloqueio de " + chave + ": " + e.getMessage());
+        }
+    }
+
+    private long bloqueadoAte(String chave) {
+        if (chave == null) return 0L;
+        AtomicReference<Estado> ref = chaves.get(chave);
+        return ref != null ? ref.get().bloqueadoAte() : 0L;
+    }
+
+    // Remove as chaves sem falhas recentes nem bloqueio, e os bloqueios vencidos do banco
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void limpar() {
+        long agora = System.currentTimeMillis();
+        long janela = janela(agora);
+        chaves.entrySet().removeIf(e -> {
+            Estado estado = e.getValue().get();
+            return estado.bloqueadoAte() <= agora && estado.janela() < janela - 1;
+        });
+        repository.apagarVencidos(agora);
+    }
+
+    private long janelaMs() {
+        return TimeUnit.SECONDS.toMillis(janelaSegundos);
+    }
+
+    private long janela(long agora) {
+        return agora / janelaMs();
+    }
+
+    private static String chaveCpf(String cpf) {
+        return cpf != null ? "cpf:" + cpf : null;
+    }
+
+    private static String chaveIp(String ip) {
+        return ip != null ? "ip:" + ip : null;
+    }
+}
@@ -1,27 +1,95 @@
 package com.so.cloudjrb.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import java.util.Random;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component // Marca como um "Bean" do Spring, para que possa ser injetado
 public class NumberGenerator {
 
-    private static final Random random = new Random();
+    // Sequência (ReservaSequencias) com o próximo número de conta livre
+    private static final String SEQUENCIA_CONTAS = "contas.numero";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReservaSequencias reservaSequencias;
+
+    @Autowired // Números de cartão pré-gerados e conferidos
+    private EmissorNumerosCartao emissorNumerosCartao;
+
+    // Primeiro número (sem o dígito): acima dos números aleatórios antigos (10000-99999)
+    @Value("${app.contas.numero.inicio:100000}")
+    private long inicio;
+
+    // Números reservados por ida ao banco
+    @Value("${app.contas.numero.bloco:100}")
+    private int bloco;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Bloco atual: [proximo, limite)
+    private long proximo;
+    private long limite;
 
+    /**
+     * Próximo número de conta: sequencial, com dígito verificador (Luhn) no final.
+     * Os números vêm de blocos reservados pela ReservaSequencias; cada instância da
+     * aplicação reserva os seus, então não há colisão entre elas.
+     *
+     * A reserva é confirmada fora da transação de quem chama: um rollback (mesmo só
+     * até um savepoint) não a desfaz, e o número usado pela conta desfeita fica vago.
+     */
     public int gerarNumeroConta() {
-        return 10000 + random.nextInt(90000);
+        long base;
+        lock.lock();
+        try {
+            if (proximo >= limite) reservarBloco();
+            base = proximo++;
+        } finally {
+            lock.unlock();
+        }
+        return Math.toIntExact(base * 10 + digitoLuhn(base));
     }
 
-    public String gerarNumeroCartao() {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < 16; i++) {
-            sb.append(random.nextInt(10));
-            if ((i + 1) % 4 == 0 && i < 15) sb.append(" ");
+    /** Dígito que, colocado no final, torna o número válido pelo algoritmo de Luhn. */
+    public static int digitoLuhn(long numero) {
+        int soma = 0;
+        boolean dobrar = true; // Da direita para a esquerda, a partir do futuro dígito
+        for (long n = numero; n > 0; n /= 10) {
+            int d = (int) (n % 10);
+            if (dobrar) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            soma += d;
+            dobrar = !dobrar;
         }
-        return sb.toString();
+        return (10 - soma % 10) % 10;
+    }
+
+    private void reservarBloco() {
+        // Nunca abaixo do maior número já gravado (ex: arquivo de sequências perdido)
+        Long gravado = jdbcTemplate.queryForObject(
+                "select coalesce(max(numero), 0) / 10 + 1 from accounts", Long.class);
+        long fim = reservaSequencias.reservar(SEQUENCIA_CONTAS, Math.max(inicio, gravado), bloco);
+        limite = fim;
+        proximo = fim - bloco;
+    }
+
+    public String gerarNumeroCartaoCredito() {
+        return emissorNumerosCartao.emitir(EmissorNumerosCartao.Tipo.CREDITO);
+    }
+
+    public String gerarNumeroCartaoDebito() {
+        return emissorNumerosCartao.emitir(EmissorNumerosCartao.Tipo.DEBITO);
     }
 
     public String gerarCVV() {
-        return String.format("%03d", random.nextInt(1000));
+        return String.format("%03d", ThreadLocalRandom.current().nextInt(1000));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+package com.so.cloudjrb.service;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfImportedPage;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStamper;
+import com.itextpdf.text.pdf.PdfWriter;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Modelos de PDF pré-renderizados.
+ *
+ * A parte fixa de cada documento (título, rótulos, linha separadora) é desenhada
+ * uma única vez, na inicialização, e guardada como bytes. Em cada requisição só
+ * os valores são "carimbados" por cima do modelo, nas posições dos rótulos,
+ * usando as fontes compartilhadas abaixo.
+ */
+@Service
+public class PdfTemplateService {
+
+    /** Documentos com modelo: título e rótulos, na ordem em que os valores são informados. */
+    public enum Modelo {
+        COMPROVANTE_BOLETO("Comprovante de Pagamento de Boleto",
+                "Titular:", "CPF:", "Código:", "Valor:", "Vencimento:", "Pago em:"),
+        COMPROVANTE_TRANSFERENCIA("Comprovante de Transferência",
+                "Código:", "Origem:", "Destino:", "Valor:", "Realizada em:"),
+        CABECALHO_EXTRATO("Extrato da conta",
+                "CPF:", "Titular:", "Emitido em:");
+
+        private final String titulo;
+        private final String[] rotulos;
+
+        Modelo(String titulo, String... rotulos) {
+            this.titulo = titulo;
+            this.rotulos = rotulos;
+        }
+
+        /** Altura ocupada pelo modelo a partir do topo da página (para empurrar o conteúdo abaixo dele). */
+        public float altura() {
+            return PageSize.A4.getHeight() - yLinha(rotulos.length) + ESPACO_LINHA;
+        }
+    }
+
+    // --- Layout (coordenadas em pontos, A4 = 595 x 842) ---
+    private static final float MARGEM_X = 50f;
+    private static final float VALOR_X = 150f;
+    private static final float TITULO_Y = 790f;
+    private static final float PRIMEIRA_LINHA_Y = 755f;
+    private static final float ESPACO_LINHA = 20f;
+
+    // Fontes compartilhadas por todos os documentos (BaseFont é imutável e thread-safe)
+    public static final BaseFont FONTE_NORMAL = criarFonte(BaseFont.HELVETICA);
+    public static final BaseFont FONTE_NEGRITO = criarFonte(BaseFont.HELVETICA_BOLD);
+
+    // Buffer reaproveitado por thread para montar o PDF antes de gravá-lo
+    private static final ThreadLocal<ByteArrayOutputStream> BUFFER =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(16 * 1024));
+
+    private final Map<Modelo, byte[]> modelos = new EnumMap<>(Modelo.class);
+
+    public PdfTemplateService() {
+        for (Modelo modelo : Modelo.values()) {
+            modelos.put(modelo, renderizarModelo(modelo));
+        }
+    }
+
+    /**
+     * Gera um documento de uma página a partir do modelo, preenchendo os valores
+     * na ordem dos rótulos (valores nulos ficam em branco).
+     */
+    public void preencher(Modelo modelo, OutputStream out, String... valores) throws IOException, DocumentException {
+        PdfReader reader = new PdfReader(modelos.get(modelo));
+        PdfStamper stamper = new PdfStamper(reader, out);
+        escreverValores(stamper.getOverContent(1), valores);
+        stamper.close();
+        reader.close();
+    }
+
+    /**
+     * Preenche o modelo num buffer reutilizado da thread atual e devolve esse buffer.
+     * O conteúdo só é válido até a próxima chamada na mesma thread.
+     */
+    public ByteArrayOutputStream preencherEmBuffer(Modelo modelo, String... valores) throws IOException, DocumentException {
+        ByteArrayOutputStream buffer = BUFFER.get();
+        buffer.reset();
+        preencher(modelo, buffer, valores);
+        return buffer;
+    }
+
+    /**
+     * Desenha o modelo na página atual de um documento que está sendo escrito
+     * (usado no cabeçalho do extrato) e carimba os valores.
+     */
+    public void aplicar(Modelo modelo, PdfWriter writer, String... valores) throws IOException {
+        PdfReader reader = new PdfReader(modelos.get(modelo));
+        PdfImportedPage pagina = writer.getImportedPage(reader, 1);
+        writer.getDirectContentUnder().addTemplate(pagina, 0, 0);
+        escreverValores(writer.getDirectContent(), valores);
+        writer.freeReader(reader);
+        reader.close();
+    }
+
+    private void escreverValores(PdfContentByte cb, String... valores) {
+        cb.beginText();
+        cb.setFontAndSize(FONTE_NORMAL, 12);
+        for (int i = 0; i < valores.length; i++) {
+            if (valores[i] == null) continue;
+            cb.setTextMatrix(VALOR_X, yLinha(i));
+            cb.showText(valores[i]);
+        }
+        cb.endText();
+    }
+
+    private static byte[] renderizarModelo(Modelo modelo) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Document doc = new Document(PageSize.A4);
+            PdfWriter writer = PdfWriter.getInstance(doc, out);
+            doc.open();
+
+            PdfContentByte cb = writer.getDirectContent();
+            cb.beginText();
+            cb.setFontAndSize(FONTE_NEGRITO, 18);
+            cb.setTextMatrix(MARGEM_X, TITULO_Y);
+            cb.showText(modelo.titulo);
+            cb.setFontAndSize(FONTE_NEGRITO, 12);
+            for (int i = 0; i < modelo.rotulos.length; i++) {
+                cb.setTextMatrix(MARGEM_X, yLinha(i));
+                cb.showText(modelo.rotulos[i]);
+            }
+            cb.endText();
+
+            float linhaY = yLinha(modelo.rotulos.length) + ESPACO_LINHA / 2;
+            cb.moveTo(MARGEM_X, linhaY);
+            cb.lineTo(PageSize.A4.getWidth() - MARGEM_X, linhaY);
+            cb.stroke();
+
+            doc.close();
+            return out.toByteArray();
+        } catch (DocumentException e) {
+            throw new IllegalStateException("Erro ao pré-renderizar o modelo " + modelo, e);
+        }
+    }
+
+    private static float yLinha(int indice) {
+        return PRIMEIRA_LINHA_Y - indice * ESPACO_LINHA;
+    }
+
+    private static BaseFont criarFonte(String nome) {
+        try {
+            return BaseFont.createFont(nome, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+        } catch (DocumentException | IOException e) {
+            throw new IllegalStateException("Erro ao carregar a fonte " + nome, e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.so.cloudjrb.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Reserva de blocos das sequências (ids em bloco e números de conta), fora da
+ * transação de negócio.
+ *
+ * A reserva é confirmada na hora, numa conexão em autocommit: um rollback de quem
+ * reservou (inteiro ou só até um savepoint, como no EscritorAgrupado) não a desfaz,
+ * então um bloco em memória nunca volta a ser entregue. O preço é perder o resto do
+ * bloco quando a aplicação para.
+ *
+ * As sequências ficam num arquivo SQLite próprio: no arquivo principal, o lock de
+ * escrita fica com a transação de negócio até o commit, e uma segunda conexão
+ * esperaria por ela.
+ */
+@Component
+public class ReservaSequencias {
+
+    // O BlocoIdGenerator é criado pelo Hibernate, fora do Spring
+    private static volatile ReservaSequencias instancia;
+
+    @Autowired
+    @Qualifier("sequenciasDataSource")
+    private DataSource dataSource;
+
+    public static ReservaSequencias instancia() {
+        ReservaSequencias r = instancia;
+        if (r == null) throw new IllegalStateException("Reserva de sequências ainda não iniciada.");
+        return r;
+    }
+
+    @PostConstruct
+    void iniciar() throws SQLException {
+        try (Connection con = dataSource.getConnection(); Statement st = con.createStatement()) {
+            st.executeUpdate("create table if not exists sequencias (nome text primary key, proximo integer not null)");
+        }
+        instancia = this;
+    }
+
+    /**
+     * Avança a sequência 'nome' em 'quantidade', partindo de 'piso' se ele estiver à
+     * frente, e devolve o fim do bloco reservado: [fim - quantidade, fim).
+     */
+    public long reservar(String nome, long piso, int quantidade) {
+        // Uma instrução só: atômica também entre instâncias que usam o mesmo arquivo
+        String sql = "insert into sequencias (nome, proximo) values (?, ? + ?) "
+                + "on conflict (nome) do update set proximo = max(proximo, ?) + ? returning proximo";
+        try (Connection con = dataSource.getConnection(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, nome);
+            ps.setLong(2, piso);
+            ps.setLong(3, quantidade);
+            ps.setLong(4, piso);
+            ps.setLong(5, quantidade);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Erro ao reservar a sequência " + nome, e);
+        }
+    }
+}
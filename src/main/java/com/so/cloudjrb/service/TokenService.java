@@ -0,0 +1,173 @@
+package com.so.cloudjrb.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens de sessão assinados (HMAC-SHA256), validados só em memória.
+ *
+ * Formato: base64url("época|cpf|emitidoEm|expiraEm") + "." + base64url(assinatura).
+ * A chave de assinatura troca a cada 'rotacao-horas': a de cada época é derivada do
+ * segredo mestre (HMAC do número da época), então nada precisa ser guardado e as
+ * instâncias com o mesmo segredo geram as mesmas chaves. Tokens da época anterior
+ * continuam válidos até expirarem.
+ *
+ * Contas encerradas ou bloqueadas têm os tokens revogados: tokens do CPF emitidos
+ * até o instante da revogação deixam de valer. A revogação só precisa ser lembrada
+ * enquanto esses tokens ainda poderiam estar no prazo.
+ */
+@Component
+public class TokenService {
+
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64_DEC = Base64.getUrlDecoder();
+
+    // Vazio: segredo aleatório, e os tokens deixam de valer num restart
+    @Value("${app.token.segredo:}")
+    private String segredo;
+
+    @Value("${app.token.validade-minutos:30}")
+    private long validadeMinutos;
+
+    @Value("${app.token.rotacao-horas:24}")
+    private long rotacaoHoras;
+
+    /** Token emitido no login. */
+    public record Token(String valor, long expiraEm) {}
+
+    /** Dados de um token válido. */
+    public record Sessao(String cpf, long expiraEm) {}
+
+    private byte[] mestre;
+    private final Map<Long, SecretKeySpec> chaves = new ConcurrentHashMap<>();
+    // cpf -> instante da revogação (epoch ms)
+    private final Map<String, Long> revogados = new ConcurrentHashMap<>();
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(ALGORITMO);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    @PostConstruct
+    void iniciar() {
+        if (segredo == null || segredo.isBlank()) {
+            mestre = new byte[32];
+            new SecureRandom().nextBytes(mestre);
+            System.out.println("[TOKEN] app.token.segredo não definido: usando um segredo aleatório.");
+        } else {
+            mestre = segredo.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    public Token emitir(String cpf) {
+        long agora = System.currentTimeMillis();
+        long expiraEm = agora + TimeUnit.MINUTES.toMillis(validadeMinutos);
+        long epoca = epoca(agora);
+        String dados = epoca + "|" + cpf + "|" + agora + "|" + expiraEm;
+        byte[] payload = dados.getBytes(StandardCharsets.UTF_8);
+        return new Token(B64.encodeToString(payload) + "." + B64.encodeToString(assinar(epoca, payload)), expiraEm);
+    }
+
+    /** Sessão do token, ou null se ele for inválido, expirado ou revogado. */
+    public Sessao validar(String token) {
+        if (token == null) return null;
+        int ponto = token.indexOf('.');
+        if (ponto <= 0 || ponto == token.length() - 1) return null;
+        try {
+            byte[] payload = B64_DEC.decode(token.substring(0, ponto));
+            byte[] assinatura = B64_DEC.decode(token.substring(ponto + 1));
+            String[] campos = new String(payload, StandardCharsets.UTF_8).split("\\|");
+            if (campos.length != 4) return null;
+
+            long epoca = Long.parseLong(campos[0]);
+            String cpf = campos[1];
+            long emitidoEm = Long.parseLong(campos[2]);
+            long expiraEm = Long.parseLong(campos[3]);
+
+            long agora = System.currentTimeMillis();
+            long atual = epoca(agora);
+            // Só a época atual e as que ainda podem ter tokens no prazo
+            if (epoca > atual || atual - epoca > 1 + TimeUnit.MINUTES.toMillis(validadeMinutos) / rotacaoMs()) return null;
+            if (!MessageDigest.isEqual(assinar(epoca, payload), assinatura)) return null;
+            if (expiraEm <= agora) return null;
+
+            Long revogadoEm = revogados.get(cpf);
+            if (revogadoEm != null && emitidoEm <= revogadoEm) return null;
+            return new Sessao(cpf, expiraEm);
+        } catch (IllegalArgumentException e) {
+            return null; // Base64 ou números malformados
+        }
+    }
+
+    /** Invalida os tokens já emitidos para o CPF (após o commit da transação atual, se houver). */
+    public void revogar(String cpf) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    revogados.put(cpf, System.currentTimeMillis());
+                }
+            });
+        } else {
+            revogados.put(cpf, System.currentTimeMillis());
+        }
+    }
+
+    // Esquece revogações mais antigas que a validade (os tokens afetados já expiraram)
+    // e as chaves de épocas que não são mais aceitas
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void limpar() {
+        long agora = System.currentTimeMillis();
+        long limite = agora - TimeUnit.MINUTES.toMillis(validadeMinutos);
+        revogados.values().removeIf(instante -> instante < limite);
+        long atual = epoca(agora);
+        chaves.keySet().removeIf(epoca -> atual - epoca > 1 + TimeUnit.MINUTES.toMillis(validadeMinutos) / rotacaoMs());
+    }
+
+    private byte[] assinar(long epoca, byte[] payload) {
+        try {
+            Mac mac = macs.get();
+            mac.init(chaves.computeIfAbsent(epoca, this::derivarChave));
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Chave da época = HMAC(segredo mestre, "sessao:" + época)
+    private SecretKeySpec derivarChave(long epoca) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(new SecretKeySpec(mestre, ALGORITMO));
+            return new SecretKeySpec(mac.doFinal(("sessao:" + epoca).getBytes(StandardCharsets.UTF_8)), ALGORITMO);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long rotacaoMs() {
+        return TimeUnit.HOURS.toMillis(rotacaoHoras);
+    }
+
+    private long epoca(long instante) {
+        return instante / rotacaoMs();
+    }
+}
@@ -6,9 +6,13 @@ import com.so.cloudjrb.exception.DomainException;
 import com.so.cloudjrb.exception.ResourceNotFoundException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+// Consumidor padrão (uma mensagem por transação); desligado no modo em lote
 @Service
+@ConditionalOnProperty(name = RabbitMQConfig.LOTE_HABILITADO, havingValue = "false", matchIfMissing = true)
 public class TransferenciaConsumer {
 
     @Autowired
@@ -26,7 +30,8 @@ public class TransferenciaConsumer {
         try {
             // 1. Executa a lógica de negócio real que estava no BankService
             // (O @Transactional dentro do bankService.transferir garante a segurança)
-            bankService.transferir(request.cpfOrigem(), request.cpfDestino(), request.valor());
+            // Transferências já aplicadas (mesmo idTransferencia) são ignoradas
+            bankService.transferir(request);
 
             System.out.println("[CONSUMIDOR RABBITMQ] Transferência processada com SUCESSO.");
 
@@ -38,6 +43,10 @@ public class TransferenciaConsumer {
             System.err.println("[CONSUMIDOR RABBITMQ] FALHA DE NEGÓCIO ao processar transferência: " + e.getMessage());
             // Aqui, numa app real, notificaríamos o utilizador da FALHA.
 
+        } catch (DataIntegrityViolationException e) {
+            // Outra entrega do mesmo id foi gravada primeiro: a transferência já foi aplicada
+            System.out.println("[CONSUMIDOR RABBITMQ] Transferência " + request.idTransferencia() + " já processada por outra entrega.");
+
         } catch (Exception e) {
             // 4. Apanha erros inesperados (ex: DB offline)
             System.err.println("[CONSUMIDOR RABBITMQ] ERRO INESPERADO: " + e.getMessage());
@@ -0,0 +1,143 @@
+package com.so.cloudjrb.service;
+
+import com.so.cloudjrb.model.TransferenciaProcessada;
+import com.so.cloudjrb.repository.TransferenciaProcessadaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Controle de transferências já processadas (idempotência).
+ *
+ * Os ids recentes ficam num mapa em memória, limitado em tamanho e com expiração
+ * (TTL), que responde a maior parte das consultas sem ir ao banco. A garantia
+ * definitiva é a chave primária de 'transferencias_processadas', gravada na mesma
+ * transação da transferência.
+ */
+@Component
+public class TransferenciaDedupStore {
+
+    @Autowired
+    private TransferenciaProcessadaRepository repository;
+
+    @Value("${app.transferencias.dedup.max-entradas:100000}")
+    private int maxEntradas;
+
+    @Value("${app.transferencias.dedup.ttl-minutos:60}")
+    private long ttlMinutos;
+
+    @Value("${app.transferencias.dedup.retencao-dias:7}")
+    private long retencaoDias;
+
+    // id -> instante em que foi registrado. Ordem de inserção = ordem de expiração.
+    private final LinkedHashMap<String, Long> recentes = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Verifica se o id já foi aplicado: primeiro na memória, depois no banco. */
+    public boolean jaProcessada(String id) {
+        long agora = System.currentTimeMillis();
+        lock.lock();
+        try {
+            expirar(agora);
+            if (recentes.containsKey(id)) return true;
+        } finally {
+            lock.unlock();
+        }
+        if (repository.existsById(id)) {
+            lembrar(id, agora);
+            return true;
+        }
+        return false;
+    }
+
+    /** Versão em lote: devolve quais dos ids já foram aplicados, com uma só consulta ao banco. */
+    public Set<String> filtrarProcessadas(Collection<String> ids) {
+        long agora = System.currentTimeMillis();
+        Set<String> processadas = new HashSet<>();
+        List<String> consultar = new ArrayList<>();
+        lock.lock();
+        try {
+            expirar(agora);
+            for (String id : ids) {
+                if (recentes.containsKey(id)) processadas.add(id);
+                else consultar.add(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!consultar.isEmpty()) {
+            for (TransferenciaProcessada t : repository.findAllById(consultar)) {
+                processadas.add(t.getId());
+                lembrar(t.getId(), agora);
+            }
+        }
+        return processadas;
+    }
+
+    /**
+     * Grava o id na transação atual. Se outra execução gravar o mesmo id antes,
+     * o commit falha na chave primária. Após o commit, o id passa a ser lembrado em memória.
+     */
+    public void registrar(String id) {
+        long agora = System.currentTimeMillis();
+        repository.save(new TransferenciaProcessada(id, agora));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    lembrar(id, agora);
+                }
+            });
+        } else {
+            lembrar(id, agora);
+        }
+    }
+
+    private void lembrar(String id, long instante) {
+        lock.lock();
+        try {
+            recentes.put(id, instante);
+            while (recentes.size() > maxEntradas) {
+                Iterator<String> it = recentes.keySet().iterator();
+                it.next();
+                it.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Remove do início do mapa tudo o que passou do TTL (chamado com o lock)
+    private void expirar(long agora) {
+        long limite = agora - TimeUnit.MINUTES.toMillis(ttlMinutos);
+        Iterator<Map.Entry<String, Long>> it = recentes.entrySet().iterator();
+        while (it.hasNext() && it.next().getValue() < limite) {
+            it.remove();
+        }
+    }
+
+    // Limpa do banco os registros mais antigos que a janela de retenção (1x por hora)
+    @Scheduled(fixedDelay = 60, timeUnit = TimeUnit.MINUTES)
+    public void limparAntigos() {
+        long limite = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retencaoDias);
+        int apagados = repository.apagarAnterioresA(limite);
+        if (apagados > 0) {
+            System.out.println("[DEDUP] " + apagados + " registro(s) de transferência removido(s).");
+        }
+    }
+}
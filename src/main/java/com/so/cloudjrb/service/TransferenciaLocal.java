@@ -0,0 +1,111 @@
+package com.so.cloudjrb.service;
+
+import com.so.cloudjrb.config.RabbitMQConfig;
+import com.so.cloudjrb.dto.TransferRequest;
+import com.so.cloudjrb.exception.DomainException;
+import com.so.cloudjrb.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Substituto local do RabbitMQ (app.transferencias.modo=local), para desenvolvimento
+ * e testes de carga sem broker: o TransferenciaPublisher entrega as transferências
+ * aqui e elas são aplicadas em segundo plano, no próprio processo.
+ *
+ * Como no modo particionado, cada CPF de origem cai sempre na mesma fila e cada
+ * fila tem uma só thread, então as transferências de uma conta saem em ordem.
+ * Diferente do RabbitMQ, nada é durável: o que estiver na fila se perde se o
+ * processo cair, e um erro inesperado não gera nova tentativa.
+ */
+@Component
+@ConditionalOnProperty(name = RabbitMQConfig.MODO, havingValue = "local")
+public class TransferenciaLocal {
+
+    @Autowired
+    private BankService bankService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.transferencias.local.filas:4}")
+    private int filas;
+
+    @Value("${app.transferencias.local.fila-capacidade:10000}")
+    private int capacidadeFila;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean threadsVirtuais;
+
+    private ThreadPoolExecutor[] executores;
+    private Counter processadas;
+    private Counter falhas;
+
+    @PostConstruct
+    void iniciar() {
+        executores = new ThreadPoolExecutor[filas];
+        for (int i = 0; i < filas; i++) {
+            String nome = "transferencias-local-" + i;
+            ThreadFactory fabrica = threadsVirtuais
+                    ? Thread.ofVirtual().name(nome).factory()
+                    : r -> {
+                        Thread t = new Thread(r, nome);
+                        t.setDaemon(true);
+                        return t;
+                    };
+            executores[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacidadeFila), fabrica);
+        }
+        processadas = meterRegistry.counter("transferencias.local.processadas");
+        falhas = meterRegistry.counter("transferencias.local.falhas");
+        meterRegistry.gauge("transferencias.local.pendentes", executores, es -> {
+            int total = 0;
+            for (ThreadPoolExecutor e : es) total += e.getQueue().size();
+            return total;
+        });
+        System.out.println("[TRANSFERENCIAS] Modo local: " + filas + " fila(s) em memória, sem RabbitMQ.");
+    }
+
+    @PreDestroy
+    void encerrar() throws InterruptedException {
+        // Deixa as transferências já aceitas terminarem
+        for (ThreadPoolExecutor e : executores) e.shutdown();
+        for (ThreadPoolExecutor e : executores) e.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    public void publicar(TransferRequest req) {
+        try {
+            executores[TransferenciaPublisher.particao(req.cpfOrigem(), filas)].execute(() -> aplicar(req));
+        } catch (RejectedExecutionException e) {
+            throw new DomainException("Sistema ocupado, tente novamente.");
+        }
+    }
+
+    // Mesmo tratamento do TransferenciaConsumer
+    private void aplicar(TransferRequest req) {
+        try {
+            bankService.transferir(req);
+            processadas.increment();
+        } catch (DomainException | ResourceNotFoundException e) {
+            falhas.increment();
+            System.err.println("[TRANSFERENCIAS] Falha de negócio na transferência " + req.idTransferencia() + ": " + e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            System.out.println("[TRANSFERENCIAS] Transferência " + req.idTransferencia() + " já processada.");
+        } catch (RuntimeException e) {
+            falhas.increment();
+            System.err.println("[TRANSFERENCIAS] Erro inesperado na transferência " + req.idTransferencia() + ": " + e.getMessage());
+        }
+    }
+}
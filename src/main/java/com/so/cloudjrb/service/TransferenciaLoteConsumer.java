@@ -0,0 +1,68 @@
+package com.so.cloudjrb.service;
+
+import com.so.cloudjrb.config.RabbitMQConfig;
+import com.so.cloudjrb.dto.ResultadoTransferencia;
+import com.so.cloudjrb.dto.TransferRequest;
+import com.so.cloudjrb.exception.DomainException;
+import com.so.cloudjrb.exception.ResourceNotFoundException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Consumidor em lote da fila de transferências (app.transferencias.lote.habilitado=true).
+ * Cada lote é aplicado numa única transação, pagando um só commit no SQLite.
+ *
+ * Se o commit do lote bater na chave de 'transferencias_processadas' (outra entrega
+ * de algum id foi gravada antes), nada do lote foi gravado: as transferências são
+ * refeitas uma a uma, como no TransferenciaConsumer, e só a duplicada é ignorada.
+ */
+@Service
+@ConditionalOnProperty(name = RabbitMQConfig.LOTE_HABILITADO, havingValue = "true")
+public class TransferenciaLoteConsumer {
+
+    @Autowired
+    private BankService bankService;
+
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME, containerFactory = "transferenciasLoteFactory")
+    public void processarLote(List<TransferRequest> lote) {
+
+        System.out.println("[CONSUMIDOR RABBITMQ] Lote recebido com " + lote.size() + " transferência(s).");
+
+        try {
+            // Falhas de negócio voltam no resultado, sem desfazer as demais transferências
+            List<ResultadoTransferencia> resultados = bankService.transferirEmLote(lote);
+
+            for (ResultadoTransferencia r : resultados) {
+                if (!r.sucesso()) {
+                    System.err.println("[CONSUMIDOR RABBITMQ] FALHA DE NEGÓCIO ao processar " + r.request() + ": " + r.erro());
+                }
+            }
+            System.out.println("[CONSUMIDOR RABBITMQ] Lote processado.");
+
+        } catch (DataIntegrityViolationException e) {
+            System.out.println("[CONSUMIDOR RABBITMQ] Id repetido no lote, aplicando uma a uma.");
+            for (TransferRequest req : lote) processarSozinha(req);
+
+        } catch (Exception e) {
+            // Erro inesperado (ex: DB offline): o lote inteiro é desfeito e volta para a fila
+            System.err.println("[CONSUMIDOR RABBITMQ] ERRO INESPERADO no lote: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private void processarSozinha(TransferRequest req) {
+        try {
+            bankService.transferir(req);
+        } catch (DomainException | ResourceNotFoundException e) {
+            System.err.println("[CONSUMIDOR RABBITMQ] FALHA DE NEGÓCIO ao processar " + req + ": " + e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            System.out.println("[CONSUMIDOR RABBITMQ] Transferência " + req.idTransferencia() + " já processada por outra entrega.");
+        }
+        // Outros erros sobem: o lote volta para a fila, e as já aplicadas são puladas pelo id
+    }
+}
@@ -0,0 +1,52 @@
+package com.so.cloudjrb.service;
+
+import com.so.cloudjrb.config.RabbitMQConfig;
+import com.so.cloudjrb.dto.TransferRequest;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publica pedidos de transferência na fila.
+ * No modo particionado, todas as transferências de um mesmo CPF de origem vão
+ * para a mesma partição, e portanto são aplicadas em ordem por um único consumidor.
+ *
+ * A ordem vale só para os débitos. Créditos para um mesmo destino podem vir de
+ * partições diferentes e chegar ao mesmo tempo: a conta de destino é protegida
+ * pelo @Version e pelo @RetryOnConflict do BankService.transferir (a tentativa
+ * que perde relê a conta e refaz). Se as tentativas se esgotarem, o consumidor
+ * relança o erro e a mensagem volta para a fila; o idTransferencia impede que uma
+ * transferência já aplicada seja aplicada de novo.
+ * No modo local (app.transferencias.modo=local) a fila é a do TransferenciaLocal.
+ */
+@Component
+public class TransferenciaPublisher {
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired(required = false) // Só no modo local (sem RabbitMQ)
+    private TransferenciaLocal local;
+
+    @Value("${" + RabbitMQConfig.PARTICOES + ":0}")
+    private int particoes;
+
+    public void publicar(TransferRequest req) {
+        if (local != null) {
+            local.publicar(req);
+            return;
+        }
+        if (particoes > 0) {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_PARTICOES,
+                    String.valueOf(particao(req.cpfOrigem(), particoes)), req);
+        } else {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.QUEUE_NAME, req);
+        }
+    }
+
+    // Atenção: mudar o número de partições muda o destino dos CPFs; esvazie as filas antes
+    public static int particao(String cpf, int particoes) {
+        return Math.floorMod(cpf.hashCode(), particoes);
+    }
+}
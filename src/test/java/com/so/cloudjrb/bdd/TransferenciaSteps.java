@@ -2,15 +2,19 @@ package com.so.cloudjrb.bdd;
 
 import com.so.cloudjrb.model.Account;
 import com.so.cloudjrb.model.ContaCorrente;
+import com.so.cloudjrb.model.Dinheiro;
 import com.so.cloudjrb.repository.AccountRepository;
 import com.so.cloudjrb.service.BankService;
+import com.so.cloudjrb.service.ComprovanteService;
+import com.so.cloudjrb.service.ContaCache;
+import com.so.cloudjrb.service.LimitadorLogin;
 import com.so.cloudjrb.service.NumberGenerator;
+import com.so.cloudjrb.service.TokenService;
 import io.cucumber.java.pt.*;
 import org.junit.jupiter.api.Assertions;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.test.util.ReflectionTestUtils; // Importante para injetar o path do PDF
 
 import java.util.HashMap;
 import java.util.Map;
@@ -26,6 +30,19 @@ public class TransferenciaSteps {
     @Mock
     private NumberGenerator numberGenerator;
 
+    // Comprovantes são gerados em segundo plano; no teste basta um mock
+    @Mock
+    private ComprovanteService comprovanteService;
+
+    @Mock
+    private ContaCache contaCache;
+
+    @Mock
+    private LimitadorLogin limitadorLogin;
+
+    @Mock
+    private TokenService tokenService;
+
     @InjectMocks
     private BankService bankService;
 
@@ -36,13 +53,11 @@ public class TransferenciaSteps {
 
     public TransferenciaSteps() {
         MockitoAnnotations.openMocks(this);
-        // Corrige o erro de "null" no path do PDF
-        ReflectionTestUtils.setField(bankService, "pdfStoragePath", "./temp_pdf/");
     }
 
     @Dado("que existe uma conta corrente ativa {string} com CPF {string} e saldo de R$ {double}")
     public void criarConta(String nome, String cpf, Double saldo) {
-        Account conta = new ContaCorrente(cpf, 12345, nome, "123", saldo);
+        Account conta = new ContaCorrente(cpf, 12345, nome, "123", Dinheiro.centavos(saldo));
 
         // Guardamos no mapa usando o nome como chave
         contas.put(nome, conta);
@@ -54,7 +69,7 @@ public class TransferenciaSteps {
     @Quando("eu solicito uma transferência de R$ {double} da conta {string} para a conta {string}")
     public void solicitarTransferencia(Double valor, String cpfOrigem, String cpfDestino) {
         try {
-            bankService.transferir(cpfOrigem, cpfDestino, valor);
+            bankService.transferir(cpfOrigem, cpfDestino, Dinheiro.centavos(valor));
         } catch (Exception e) {
             excecaoOcorrida = e;
         }
@@ -66,7 +81,8 @@ public class TransferenciaSteps {
         Account conta = contas.get(nome);
         Assertions.assertNotNull(conta, "Conta '" + nome + "' não foi encontrada no teste.");
 
-        Assertions.assertEquals(saldoEsperado, conta.getSaldo(), 0.001);
+        // Valores em centavos: a comparação é exata
+        Assertions.assertEquals(Dinheiro.centavos(saldoEsperado), conta.getSaldo());
     }
 
     @Então("a transferência deve ser processada com sucesso")
@@ -0,0 +1,62 @@
+package com.so.cloudjrb.benchmark;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.so.cloudjrb.service.PdfTemplateService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o custo de um comprovante de transferência montado do zero
+ * (Document + Paragraphs, como era antes) com o preenchimento do modelo pré-renderizado.
+ *
+ * Rodar com: ./mvnw -Pbenchmark verify -DskipTests (ver pom.xml), ou a classe main abaixo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComprovanteBenchmark {
+
+    private PdfTemplateService templates;
+
+    @Setup
+    public void setup() {
+        templates = new PdfTemplateService();
+    }
+
+    @Benchmark
+    public int documentoNovo() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Document doc = new Document();
+        PdfWriter.getInstance(doc, out);
+        doc.open();
+        doc.add(new Paragraph("Comprovante de Transferência"));
+        doc.add(new Paragraph("Código: 1a2b3c4d"));
+        doc.add(new Paragraph("Origem: Maria (CPF 111)"));
+        doc.add(new Paragraph("Destino: João (CPF 222)"));
+        doc.add(new Paragraph("Valor: R$ 150,00"));
+        doc.add(new Paragraph("Realizada em: 01/01/2025 10:00"));
+        doc.close();
+        return out.size();
+    }
+
+    @Benchmark
+    public int modelo() throws Exception {
+        return templates.preencherEmBuffer(PdfTemplateService.Modelo.COMPROVANTE_TRANSFERENCIA,
+                "1a2b3c4d", "Maria (CPF 111)", "João (CPF 222)", "R$ 150,00", "01/01/2025 10:00").size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ComprovanteBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,107 @@
+package com.so.cloudjrb.benchmark;
+
+import com.so.cloudjrb.model.Account;
+import com.so.cloudjrb.model.CartaoCredito;
+import com.so.cloudjrb.model.ContaCorrente;
+import com.so.cloudjrb.model.ContaPoupanca;
+import com.so.cloudjrb.model.Movimentacao;
+import com.so.cloudjrb.model.TipoMovimentacao;
+import com.so.cloudjrb.service.NumberGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operações de domínio em memória (sem banco): depósito, saque e débito interno
+ * nos dois tipos de conta, criação de movimentação e compra no crédito.
+ *
+ * Cada operação registra uma movimentação; as listas são esvaziadas a cada
+ * LIMITE_LISTA itens para o heap não crescer durante a medição.
+ *
+ * Rodar com: ./mvnw -Pbenchmark verify -DskipTests (ver pom.xml), ou a classe main abaixo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContaBenchmark {
+
+    private static final int LIMITE_LISTA = 1024;
+    // Saldo e limite que não se esgotam durante a medição
+    private static final long MUITO = Long.MAX_VALUE / 4;
+
+    @Param({"CORRENTE", "POUPANCA"})
+    public String tipo;
+
+    private Account conta;
+    private CartaoCredito cartao;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        conta = tipo.equals("CORRENTE")
+                ? new ContaCorrente("11111111111", 1000007, "Maria", "senha", MUITO)
+                : new ContaPoupanca("11111111111", 1000007, "Maria", "senha", MUITO);
+
+        // Número e CVV fixos: o EmissorNumerosCartao precisa do banco
+        cartao = new CartaoCredito(MUITO, new NumberGenerator() {
+            @Override
+            public String gerarNumeroCartaoCredito() {
+                return "4111 1111 1111 1111";
+            }
+
+            @Override
+            public String gerarCVV() {
+                return "123";
+            }
+        });
+    }
+
+    @Benchmark
+    public long depositar() {
+        conta.depositar(15_000);
+        return limpar();
+    }
+
+    @Benchmark
+    public long sacar() {
+        conta.sacar(15_000);
+        return limpar();
+    }
+
+    @Benchmark
+    public long debitarInterno() {
+        conta.debitarInterno(15_000, TipoMovimentacao.PAGAMENTO_BOLETO, "34191.79001 01043.510047");
+        return limpar();
+    }
+
+    @Benchmark
+    public Movimentacao movimentacaoOf() {
+        return Movimentacao.of(TipoMovimentacao.DEPOSITO, 15_000);
+    }
+
+    @Benchmark
+    public long comprarCredito() {
+        cartao.comprar("Mercado", 15_000);
+        if (cartao.getFaturaAtual().getCompras().size() >= LIMITE_LISTA) {
+            cartao.getFaturaAtual().pagar();
+        }
+        return cartao.getFaturaTotal();
+    }
+
+    private long limpar() {
+        if (conta.getMovimentacoes().size() >= LIMITE_LISTA) {
+            conta.getMovimentacoes().clear();
+        }
+        return conta.getSaldo();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ContaBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
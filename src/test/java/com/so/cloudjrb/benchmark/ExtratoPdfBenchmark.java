@@ -0,0 +1,117 @@
+package com.so.cloudjrb.benchmark;
+
+import com.so.cloudjrb.dto.MovimentacaoResponse;
+import com.so.cloudjrb.model.Account;
+import com.so.cloudjrb.model.ContaCorrente;
+import com.so.cloudjrb.model.TipoMovimentacao;
+import com.so.cloudjrb.service.ExtratoPdfService;
+import com.so.cloudjrb.service.ExtratoService;
+import com.so.cloudjrb.service.PdfTemplateService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extrato em PDF como o do GET /api/contas/{cpf}/extrato/pdf
+ * (ExtratoPdfService.gerarExtratoPDF com período), escrito num stream que só
+ * conta os bytes. As páginas vêm de um ExtratoService sem banco: cada linha é
+ * montada como na consulta (construtor de MovimentacaoResponse), então a medida
+ * inclui a formatação das linhas mas não o SQLite.
+ *
+ * O teto de linhas por PDF (app.extrato.pdf.max-linhas) é desligado aqui para
+ * medir o documento inteiro também com 100 mil movimentações.
+ *
+ * Rodar com: ./mvnw -Pbenchmark verify -DskipTests (ver pom.xml), ou a classe main abaixo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExtratoPdfBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int movimentacoes;
+
+    private ExtratoPdfService servico;
+    private Account conta;
+
+    @Setup
+    public void setup() {
+        servico = new ExtratoPdfService();
+        ReflectionTestUtils.setField(servico, "extratoService", new ExtratoEmMemoria(movimentacoes));
+        ReflectionTestUtils.setField(servico, "pdfTemplateService", new PdfTemplateService());
+        ReflectionTestUtils.setField(servico, "maxLinhas", Integer.MAX_VALUE);
+
+        conta = new ContaCorrente("11111111111", 1000007, "Maria da Silva", "senha", 0L);
+    }
+
+    @Benchmark
+    public long gerarExtratoPDF() throws Exception {
+        ContadorBytes out = new ContadorBytes();
+        servico.gerarExtratoPDF(conta, null, null, out);
+        return out.bytes;
+    }
+
+    // Movimentações da conta, entregues em páginas por id como o MovimentacaoRepository
+    private static final class ExtratoEmMemoria extends ExtratoService {
+
+        private record Linha(long instante, TipoMovimentacao tipo, String contraparte, long valor) {}
+
+        private final List<Linha> linhas = new ArrayList<>();
+
+        ExtratoEmMemoria(int quantidade) {
+            long inicio = LocalDateTime.of(2025, 1, 1, 10, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            for (int i = 0; i < quantidade; i++) {
+                long instante = inicio + TimeUnit.MINUTES.toMillis(i);
+                linhas.add(i % 2 == 0
+                        ? new Linha(instante, TipoMovimentacao.DEPOSITO, null, 15_000)
+                        : new Linha(instante, TipoMovimentacao.TRANSFERENCIA_ENVIADA, "22222222222", -9_990));
+            }
+        }
+
+        // Ids 1..n: o cursor é o índice da próxima linha
+        @Override
+        public List<MovimentacaoResponse> buscarMovimentacoes(String cpf, long cursor, int quantidade,
+                                                              String inicio, String fim) {
+            int de = (int) cursor;
+            int ate = Math.min(linhas.size(), de + quantidade);
+            List<MovimentacaoResponse> pagina = new ArrayList<>(Math.max(0, ate - de));
+            for (int i = de; i < ate; i++) {
+                Linha l = linhas.get(i);
+                pagina.add(new MovimentacaoResponse(i + 1L, l.instante(), l.tipo(), l.contraparte(), null, l.valor()));
+            }
+            return pagina;
+        }
+    }
+
+    // Descarta o conteúdo: mede a geração, não a cópia para um buffer
+    private static final class ContadorBytes extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ExtratoPdfBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package com.so.cloudjrb.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.so.cloudjrb.dto.CartaoCreditoResponse;
+import com.so.cloudjrb.dto.CartaoDebitoResponse;
+import com.so.cloudjrb.dto.ContaResponse;
+import com.so.cloudjrb.dto.ExtratoResponse;
+import com.so.cloudjrb.dto.FaturaResponse;
+import com.so.cloudjrb.dto.MovimentacaoResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialização JSON das respostas mais frequentes: dados da conta
+ * (GET /api/contas/{cpf}) e uma página do extrato, com o ObjectMapper
+ * configurado como o do Spring Boot (valores em reais via @EmReais).
+ *
+ * Rodar com: ./mvnw -Pbenchmark verify -DskipTests (ver pom.xml), ou a classe main abaixo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacaoBenchmark {
+
+    // Linhas na página do extrato (app.extrato.pagina.padrao)
+    @Param({"50", "200"})
+    public int linhas;
+
+    private ObjectMapper mapper;
+    private ContaResponse conta;
+    private ExtratoResponse extrato;
+
+    @Setup
+    public void setup() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        FaturaResponse fatura = new FaturaResponse(7L, "1/2025", LocalDate.of(2025, 1, 25),
+                LocalDate.of(2025, 2, 4), 45_990, null);
+        conta = new ContaResponse("11111111111", 1000007, "Maria da Silva", ContaResponse.tipoConta(true),
+                1_234_567, false, null, 50_000L, null,
+                new CartaoCreditoResponse(3L, "4111 1111 1111 1111", "01/30", "123", 500_000, 45_990, 454_010, fatura),
+                new CartaoDebitoResponse(4L, "4389 3512 3456 7890", "01/30", "456"));
+
+        List<MovimentacaoResponse> movs = new ArrayList<>(linhas);
+        for (int i = 0; i < linhas; i++) {
+            movs.add(new MovimentacaoResponse(1000L + i, "01/01/2025 10:" + String.format("%02d", i % 60),
+                    i % 2 == 0 ? "Depósito" : "Transferência Enviada para João", i % 2 == 0 ? 15_000 : -9_990));
+        }
+        extrato = new ExtratoResponse("11111111111", 1_234_567, movs, 1000L + linhas - 1);
+    }
+
+    @Benchmark
+    public byte[] contaJson() throws Exception {
+        return mapper.writeValueAsBytes(conta);
+    }
+
+    @Benchmark
+    public byte[] extratoJson() throws Exception {
+        return mapper.writeValueAsBytes(extrato);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(SerializacaoBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
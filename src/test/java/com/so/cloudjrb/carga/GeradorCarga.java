@@ -0,0 +1,351 @@
+package com.so.cloudjrb.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga HTTP contra uma instância já rodando.
+ *
+ * 1. Cria 'carga.contas' contas correntes (POST /api/contas), com cartões de débito
+ *    e de crédito, e faz login em cada uma (o token vai nas chamadas seguintes).
+ * 2. Durante 'carga.aquecimento' + 'carga.duracao' segundos, dispara operações
+ *    sorteadas pelo 'carga.mix', com chegadas de Poisson a 'carga.taxa' por segundo.
+ *    O modelo é aberto: as chegadas não esperam as respostas, então um servidor
+ *    lento acumula requisições, como em produção. Cada requisição roda numa thread
+ *    virtual, com um HttpClient que também usa threads virtuais.
+ * 3. A latência é contada a partir do instante em que a requisição deveria ter
+ *    saído (sem "coordinated omission") e vai para um histograma HDR por operação.
+ *    Respostas 4xx/5xx entram no histograma e também na coluna de erros.
+ *
+ * As transferências seguem o caminho configurado no servidor: RabbitMQ ou o
+ * substituto local (app.transferencias.modo=local). A latência medida é a do aceite
+ * do pedido; a aplicação aparece nas métricas transferencias.* do servidor.
+ *
+ * Parâmetros (-D, com os padrões):
+ *   carga.url=http://localhost:8080   carga.contas=200     carga.taxa=200 (req/s)
+ *   carga.duracao=60 (s)              carga.aquecimento=10 (s)
+ *   carga.mix=login:5,saldo:25,...    (operação:peso, ver MIX_PADRAO)
+ *   carga.max-pendentes=10000         (acima disso as chegadas são descartadas e contadas)
+ *   carga.timeout-ms=10000            carga.resultado=target/carga
+ *
+ * Rodar com: ./mvnw -Pcarga verify -DskipTests (ver pom.xml), ou a classe main abaixo.
+ */
+public class GeradorCarga {
+
+    enum Operacao { LOGIN, SALDO, EXTRATO, DEPOSITO, SAQUE, TRANSFERENCIA, BOLETO, COMPRA_DEBITO, COMPRA_CREDITO }
+
+    private static final String MIX_PADRAO = "login:5,saldo:25,extrato:15,deposito:10,saque:10,"
+            + "transferencia:15,boleto:5,compra_debito:10,compra_credito:5";
+    private static final String SENHA = "carga123";
+
+    private static final class Estatistica {
+        final Histogram latencias = new ConcurrentHistogram(3); // Microssegundos, cresce conforme precisa
+        final LongAdder ok = new LongAdder();
+        final LongAdder erros = new LongAdder();
+        final LongAdder descartadas = new LongAdder();
+    }
+
+    private final String url = System.getProperty("carga.url", "http://localhost:8080");
+    private final int numeroContas = Integer.getInteger("carga.contas", 200);
+    private final double taxa = Double.parseDouble(System.getProperty("carga.taxa", "200"));
+    private final long duracaoS = Long.getLong("carga.duracao", 60L);
+    private final long aquecimentoS = Long.getLong("carga.aquecimento", 10L);
+    private final String mix = System.getProperty("carga.mix", MIX_PADRAO);
+    private final int maxPendentes = Integer.getInteger("carga.max-pendentes", 10_000);
+    private final Duration timeout = Duration.ofMillis(Long.getLong("carga.timeout-ms", 10_000L));
+    private final Path resultado = Path.of(System.getProperty("carga.resultado", "target/carga"));
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(timeout)
+            .build();
+
+    private final Map<Operacao, Estatistica> estatisticas = new EnumMap<>(Operacao.class);
+    private final AtomicInteger pendentes = new AtomicInteger();
+    private Operacao[] sorteio;
+    private List<String> cpfs;
+    private AtomicReferenceArray<String> tokens;
+    private volatile long inicioMedicaoNs;
+
+    public static void main(String[] args) throws Exception {
+        new GeradorCarga().executar();
+    }
+
+    void executar() throws Exception {
+        for (Operacao op : Operacao.values()) estatisticas.put(op, new Estatistica());
+        sorteio = montarSorteio(mix);
+
+        System.out.println("[CARGA] " + url + ": " + numeroContas + " contas, " + taxa + " req/s, "
+                + aquecimentoS + "s de aquecimento + " + duracaoS + "s, mix " + mix);
+        preparar();
+        if (cpfs.size() < 2) throw new IllegalStateException("Menos de duas contas criadas; confira a URL e os logs do servidor.");
+
+        gerar();
+        relatar();
+    }
+
+    // --- Preparação: contas, cartões e tokens ---
+
+    private void preparar() throws InterruptedException {
+        String prefixo = String.format("%05d", ThreadLocalRandom.current().nextInt(100_000)); // Uma rodada por prefixo
+        String[] criadas = new String[numeroContas];
+        String[] tokensIniciais = new String[numeroContas];
+        try (ExecutorService vt = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < numeroContas; i++) {
+                int indice = i;
+                String cpf = prefixo + String.format("%06d", i);
+                vt.execute(() -> {
+                    try {
+                        tokensIniciais[indice] = criarConta(indice, cpf);
+                        criadas[indice] = cpf;
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("[CARGA] Falha ao preparar a conta " + cpf + ": " + e.getMessage());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        }
+
+        cpfs = new ArrayList<>(numeroContas);
+        List<String> tokensValidos = new ArrayList<>(numeroContas);
+        for (int i = 0; i < numeroContas; i++) {
+            if (criadas[i] != null) {
+                cpfs.add(criadas[i]);
+                tokensValidos.add(tokensIniciais[i]);
+            }
+        }
+        tokens = new AtomicReferenceArray<>(tokensValidos.toArray(new String[0]));
+        System.out.println("[CARGA] " + cpfs.size() + " conta(s) prontas.");
+    }
+
+    private String criarConta(int indice, String cpf) throws IOException, InterruptedException {
+        exigirSucesso(enviar("POST", "/api/contas", Map.of(
+                "cpf", cpf,
+                "titular", "Carga " + indice,
+                "senha", SENHA,
+                "tipo", "corrente",
+                "saldoInicial", new BigDecimal("100000.00")), null, false), "criar conta");
+        HttpResponse<String> login = exigirSucesso(enviar("POST", "/api/login",
+                Map.of("cpf", cpf, "senha", SENHA), null, true), "login");
+        String token = json.readTree(login.body()).path("token").asText(null);
+        exigirSucesso(enviar("POST", "/api/contas/" + cpf + "/cartoes/debito", null, token, false), "cartão de débito");
+        exigirSucesso(enviar("POST", "/api/contas/" + cpf + "/cartoes/credito",
+                Map.of("limite", new BigDecimal("50000.00")), token, false), "cartão de crédito");
+        return token;
+    }
+
+    private static HttpResponse<String> exigirSucesso(HttpResponse<String> resposta, String etapa) throws IOException {
+        if (resposta.statusCode() >= 400) {
+            throw new IOException(etapa + ": HTTP " + resposta.statusCode() + " " + resposta.body());
+        }
+        return resposta;
+    }
+
+    // --- Geração (modelo aberto) ---
+
+    private void gerar() throws InterruptedException {
+        double intervaloMedioNs = TimeUnit.SECONDS.toNanos(1) / taxa;
+        long inicio = System.nanoTime();
+        inicioMedicaoNs = inicio + TimeUnit.SECONDS.toNanos(aquecimentoS);
+        long fim = inicioMedicaoNs + TimeUnit.SECONDS.toNanos(duracaoS);
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+
+        try (ExecutorService requisicoes = Executors.newVirtualThreadPerTaskExecutor()) {
+            long proxima = inicio;
+            while (proxima < fim) {
+                long espera = proxima - System.nanoTime();
+                if (espera > 0) LockSupport.parkNanos(espera);
+
+                Operacao op = sorteio[rnd.nextInt(sorteio.length)];
+                long agendada = proxima;
+                if (pendentes.incrementAndGet() > maxPendentes) {
+                    // Servidor não está dando conta: registra e segue, sem acumular sem limite
+                    pendentes.decrementAndGet();
+                    if (agendada >= inicioMedicaoNs) estatisticas.get(op).descartadas.increment();
+                } else {
+                    requisicoes.execute(() -> medir(op, agendada));
+                }
+                // Intervalo exponencial entre chegadas (processo de Poisson)
+                proxima += (long) (-Math.log(1.0 - rnd.nextDouble()) * intervaloMedioNs);
+            }
+            System.out.println("[CARGA] Chegadas encerradas, aguardando " + pendentes.get() + " requisição(ões) em curso...");
+        } // close() espera as requisições pendentes
+    }
+
+    private void medir(Operacao op, long agendadaNs) {
+        Estatistica e = estatisticas.get(op);
+        boolean conta = agendadaNs >= inicioMedicaoNs;
+        try {
+            int status = chamar(op);
+            if (conta) {
+                e.latencias.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - agendadaNs)));
+                if (status >= 400) e.erros.increment();
+                else e.ok.increment();
+            }
+        } catch (IOException ex) {
+            if (conta) e.erros.increment(); // Conexão recusada, timeout...
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pendentes.decrementAndGet();
+        }
+    }
+
+    private int chamar(Operacao op) throws IOException, InterruptedException {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int i = rnd.nextInt(cpfs.size());
+        String cpf = cpfs.get(i);
+        String token = tokens.get(i);
+        String conta = "/api/contas/" + cpf;
+
+        return switch (op) {
+            case LOGIN -> {
+                HttpResponse<String> r = enviar("POST", "/api/login", Map.of("cpf", cpf, "senha", SENHA), null, true);
+                if (r.statusCode() == 200) {
+                    String novo = json.readTree(r.body()).path("token").asText(null);
+                    if (novo != null) tokens.set(i, novo);
+                }
+                yield r.statusCode();
+            }
+            case SALDO -> enviar("GET", conta + "/saldo", null, token, false).statusCode();
+            case EXTRATO -> enviar("GET", conta + "/extrato?limite=50", null, token, false).statusCode();
+            case DEPOSITO -> enviar("POST", conta + "/deposito", Map.of("valor", new BigDecimal("10.00")), token, false).statusCode();
+            case SAQUE -> enviar("POST", conta + "/saque", Map.of("valor", new BigDecimal("5.00")), token, false).statusCode();
+            case TRANSFERENCIA -> {
+                int j = rnd.nextInt(cpfs.size() - 1);
+                if (j >= i) j++; // Qualquer outra conta
+                yield enviar("POST", "/api/contas/transferir", Map.of(
+                        "cpfOrigem", cpf,
+                        "cpfDestino", cpfs.get(j),
+                        "valor", new BigDecimal("1.00")), token, false).statusCode();
+            }
+            case BOLETO -> enviar("POST", conta + "/pagamento", Map.of(
+                    "codigo", "CARGA-" + Long.toHexString(rnd.nextLong()),
+                    "valor", new BigDecimal("2.50")), token, false).statusCode();
+            case COMPRA_DEBITO -> enviar("POST", conta + "/cartoes/debito/compra",
+                    Map.of("valor", new BigDecimal("3.00"), "descricao", "Carga"), token, false).statusCode();
+            case COMPRA_CREDITO -> enviar("POST", conta + "/cartoes/credito/compra",
+                    Map.of("valor", new BigDecimal("3.00"), "descricao", "Carga"), token, false).statusCode();
+        };
+    }
+
+    // 'lerCorpo': só o login precisa da resposta; as demais são descartadas ao chegar
+    private HttpResponse<String> enviar(String metodo, String caminho, Object corpo, String token, boolean lerCorpo)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(url + caminho)).timeout(timeout);
+        if (token != null) req.header("Authorization", "Bearer " + token);
+        if (corpo != null) {
+            req.header("Content-Type", "application/json")
+                    .method(metodo, HttpRequest.BodyPublishers.ofByteArray(json.writeValueAsBytes(corpo)));
+        } else {
+            req.method(metodo, HttpRequest.BodyPublishers.noBody());
+        }
+        return http.send(req.build(), lerCorpo
+                ? HttpResponse.BodyHandlers.ofString()
+                : HttpResponse.BodyHandlers.replacing(""));
+    }
+
+    // "login:5,saldo:25" -> vetor com cada operação repetida pelo seu peso
+    private static Operacao[] montarSorteio(String mix) {
+        List<Operacao> ops = new ArrayList<>();
+        for (String item : mix.split(",")) {
+            String[] partes = item.trim().split(":");
+            Operacao op = Operacao.valueOf(partes[0].trim().toUpperCase());
+            int peso = partes.length > 1 ? Integer.parseInt(partes[1].trim()) : 1;
+            for (int k = 0; k < peso; k++) ops.add(op);
+        }
+        if (ops.isEmpty()) throw new IllegalArgumentException("carga.mix vazio");
+        return ops.toArray(new Operacao[0]);
+    }
+
+    // --- Relatório ---
+
+    private void relatar() throws IOException {
+        Files.createDirectories(resultado);
+        List<Map<String, Object>> linhas = new ArrayList<>();
+
+        System.out.println();
+        System.out.printf("%-15s %9s %7s %8s %9s %9s %9s %9s %9s%n",
+                "operação", "ok", "erros", "descart.", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram todas = new Histogram(3);
+        long totalOk = 0;
+        for (Map.Entry<Operacao, Estatistica> entrada : estatisticas.entrySet()) {
+            Estatistica e = entrada.getValue();
+            long respostas = e.ok.sum() + e.erros.sum();
+            if (respostas == 0 && e.descartadas.sum() == 0) continue;
+            String nome = entrada.getKey().name().toLowerCase();
+            Histogram h = e.latencias;
+            todas.add(h);
+            totalOk += e.ok.sum();
+
+            double porSegundo = e.ok.sum() / (double) duracaoS;
+            System.out.printf("%-15s %9d %7d %8d %9.1f %9.2f %9.2f %9.2f %9.2f%n", nome,
+                    e.ok.sum(), e.erros.sum(), e.descartadas.sum(), porSegundo,
+                    ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(99)),
+                    ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()));
+
+            Map<String, Object> linha = new LinkedHashMap<>();
+            linha.put("operacao", nome);
+            linha.put("ok", e.ok.sum());
+            linha.put("erros", e.erros.sum());
+            linha.put("descartadas", e.descartadas.sum());
+            linha.put("porSegundo", porSegundo);
+            linha.put("p50Ms", ms(h.getValueAtPercentile(50)));
+            linha.put("p99Ms", ms(h.getValueAtPercentile(99)));
+            linha.put("p999Ms", ms(h.getValueAtPercentile(99.9)));
+            linha.put("maxMs", ms(h.getMaxValue()));
+            linhas.add(linha);
+
+            // Distribuição completa, em ms (formato .hgrm, abre no HdrHistogram plotter)
+            try (PrintStream out = new PrintStream(Files.newOutputStream(resultado.resolve(nome + ".hgrm")))) {
+                h.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        System.out.printf("%-15s %9d %7s %8s %9.1f %9.2f %9.2f %9.2f %9.2f%n", "total", totalOk, "", "",
+                totalOk / (double) duracaoS, ms(todas.getValueAtPercentile(50)), ms(todas.getValueAtPercentile(99)),
+                ms(todas.getValueAtPercentile(99.9)), ms(todas.getMaxValue()));
+
+        Map<String, Object> resumo = new LinkedHashMap<>();
+        resumo.put("url", url);
+        resumo.put("contas", cpfs.size());
+        resumo.put("taxa", taxa);
+        resumo.put("duracaoS", duracaoS);
+        resumo.put("mix", mix);
+        resumo.put("operacoes", linhas);
+        json.enable(SerializationFeature.INDENT_OUTPUT).writeValue(resultado.resolve("resumo.json").toFile(), resumo);
+        System.out.println("[CARGA] Resumo e histogramas em " + resultado.toAbsolutePath());
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,148 @@
+package com.so.cloudjrb.config;
+
+import com.so.cloudjrb.model.TipoMovimentacao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MigracaoMovimentacoesTest {
+
+    @TempDir
+    Path pasta;
+
+    private JdbcTemplate jdbc;
+    private MigracaoMovimentacoes migracao;
+
+    // Linha no formato compacto: o que a migração deve gravar para cada texto antigo
+    private record Esperada(String texto, double reais, TipoMovimentacao tipo, long centavos,
+                            String contraparte, String detalhe) {}
+
+    private static final List<Esperada> TEXTOS_ANTIGOS = List.of(
+            new Esperada("Depósito Inicial", 100.0, TipoMovimentacao.DEPOSITO_INICIAL, 10_000, null, null),
+            new Esperada("Depósito", 0.29, TipoMovimentacao.DEPOSITO, 29, null, null),
+            new Esperada("Saque", -20.0, TipoMovimentacao.SAQUE, -2_000, null, null),
+            new Esperada("Saque (Conta Corrente)", -10.1, TipoMovimentacao.SAQUE_CORRENTE, -1_010, null, null),
+            new Esperada("Saque (Conta Poupança)", -5.0, TipoMovimentacao.SAQUE_POUPANCA, -500, null, null),
+            new Esperada("Pagamento de boleto 34191.79001", -99.99, TipoMovimentacao.PAGAMENTO_BOLETO, -9_999,
+                    null, "34191.79001"),
+            new Esperada("Compra Débito: Padaria", -12.5, TipoMovimentacao.COMPRA_DEBITO, -1_250, null, "Padaria"),
+            new Esperada("Compra Crédito: Loja X", -300.0, TipoMovimentacao.COMPRA_CREDITO, -30_000, null, "Loja X"),
+            new Esperada("Pagamento de Fatura do Cartão", -150.0, TipoMovimentacao.PAGAMENTO_FATURA, -15_000, null, null),
+            new Esperada("Transferência enviada para CPF 22222222222", -40.0, TipoMovimentacao.TRANSFERENCIA_ENVIADA,
+                    -4_000, "22222222222", null),
+            new Esperada("Transferência recebida de CPF 33333333333", 40.0, TipoMovimentacao.TRANSFERENCIA_RECEBIDA,
+                    4_000, "33333333333", null),
+            new Esperada("Estorno de transferência para CPF 22222222222", 40.0, TipoMovimentacao.TRANSFERENCIA_ESTORNO,
+                    4_000, "22222222222", null),
+            new Esperada("Aplicação em Poupança (Rendimento 0.5%)", 1.23, TipoMovimentacao.APLICACAO_POUPANCA, 123,
+                    null, "0.5%"),
+            new Esperada("Resgate de Poupança", 10.0, TipoMovimentacao.RESGATE_POUPANCA, 1_000, null, null),
+            new Esperada("Conta encerrada em 02/03/2025 14:05", 0.0, TipoMovimentacao.ENCERRAMENTO, 0, null, null),
+            new Esperada("Tarifa avulsa", -1.0, TipoMovimentacao.OUTRO, -100, null, "Tarifa avulsa"));
+
+    private static final LocalDateTime PRIMEIRA = LocalDateTime.of(2025, 3, 2, 9, 0);
+
+    @BeforeEach
+    void iniciar() {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + pasta.resolve("banco.sqlite"));
+        jdbc = new JdbcTemplate(dataSource);
+        migracao = new MigracaoMovimentacoes();
+        ReflectionTestUtils.setField(migracao, "dataSource", dataSource);
+    }
+
+    @Test
+    void converteCadaTextoAntigoEApagaAsColunasAntigas() throws Exception {
+        jdbc.execute("create table movimentacoes (id integer primary key, account_cpf varchar(14), "
+                + "tipo varchar(255), data_hora varchar(255), valor double)");
+        for (int i = 0; i < TEXTOS_ANTIGOS.size(); i++) {
+            Esperada e = TEXTOS_ANTIGOS.get(i);
+            jdbc.update("insert into movimentacoes (id, account_cpf, tipo, data_hora, valor) values (?, '111', ?, ?, ?)",
+                    i + 1, e.texto(), String.format("%1$td/%1$tm/%1$tY %1$tH:%1$tM", PRIMEIRA.plusMinutes(i)), e.reais());
+        }
+        // Data ilegível: instante 0, a linha é convertida mesmo assim
+        jdbc.update("insert into movimentacoes (id, account_cpf, tipo, data_hora, valor) values (100, '111', 'Saque', 'ontem', -1.0)");
+
+        migracao.migrar();
+
+        List<Map<String, Object>> linhas = jdbc.queryForList(
+                "select id, codigo, instante_ms, valor_centavos, contraparte, detalhe from movimentacoes order by id");
+        assertEquals(TEXTOS_ANTIGOS.size() + 1, linhas.size());
+        for (int i = 0; i < TEXTOS_ANTIGOS.size(); i++) {
+            Esperada e = TEXTOS_ANTIGOS.get(i);
+            Map<String, Object> linha = linhas.get(i);
+            assertEquals(e.tipo().codigo(), ((Number) linha.get("codigo")).intValue(), e.texto());
+            assertEquals(epochMs(PRIMEIRA.plusMinutes(i)), ((Number) linha.get("instante_ms")).longValue(), e.texto());
+            assertEquals(e.centavos(), ((Number) linha.get("valor_centavos")).longValue(), e.texto());
+            assertEquals(e.contraparte(), linha.get("contraparte"), e.texto());
+            assertEquals(e.detalhe(), linha.get("detalhe"), e.texto());
+            // O texto exibido continua o mesmo (o do encerramento perde a data, que é a da linha)
+            String exibido = e.tipo().descrever(e.contraparte(), e.detalhe());
+            assertEquals(e.tipo() == TipoMovimentacao.ENCERRAMENTO ? "Conta encerrada" : e.texto(), exibido);
+        }
+        Map<String, Object> semData = linhas.get(TEXTOS_ANTIGOS.size());
+        assertEquals(0L, ((Number) semData.get("instante_ms")).longValue());
+        assertEquals(TipoMovimentacao.SAQUE.codigo(), ((Number) semData.get("codigo")).intValue());
+
+        List<String> colunas = colunas();
+        for (String antiga : List.of("tipo", "data_hora", "valor", "instante")) {
+            assertFalse(colunas.contains(antiga), antiga);
+        }
+        assertTrue(indices().contains("idx_mov_conta_instante_ms"));
+
+        // Segunda subida: já convertida, não muda nada
+        List<Map<String, Object>> antes = jdbc.queryForList("select * from movimentacoes order by id");
+        migracao.migrar();
+        assertEquals(antes, jdbc.queryForList("select * from movimentacoes order by id"));
+        assertEquals(colunas, colunas());
+    }
+
+    @Test
+    void instanteTemPrecedenciaSobreODataHora() throws Exception {
+        // Versão que já filtrava por período: coluna 'instante' e índice sobre ela
+        jdbc.execute("create table movimentacoes (id integer primary key, account_cpf varchar(14), "
+                + "tipo varchar(255), data_hora varchar(255), instante timestamp, valor double)");
+        jdbc.execute("create index idx_mov_conta_instante on movimentacoes (account_cpf, instante)");
+        long instante = epochMs(LocalDateTime.of(2025, 3, 2, 9, 0, 42));
+        jdbc.update("insert into movimentacoes values (1, '111', 'Depósito', '02/03/2025 09:00', ?, 10.0)", instante);
+
+        migracao.migrar();
+
+        assertEquals(instante, jdbc.queryForObject("select instante_ms from movimentacoes where id = 1", Long.class));
+        assertFalse(colunas().contains("instante"));
+        assertEquals(List.of("idx_mov_conta_instante_ms"), indices());
+    }
+
+    @Test
+    void bancoNovoNaoEAlterado() throws Exception {
+        migracao.migrar();
+        assertTrue(colunas().isEmpty());
+    }
+
+    private List<String> colunas() {
+        return new ArrayList<>(jdbc.queryForList("select name from pragma_table_info('movimentacoes') order by name",
+                String.class));
+    }
+
+    private List<String> indices() {
+        return jdbc.queryForList("select name from pragma_index_list('movimentacoes') order by name", String.class);
+    }
+
+    private static long epochMs(LocalDateTime dataHora) {
+        return dataHora.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,116 @@
+package com.so.cloudjrb.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.so.cloudjrb.exception.AcessoNegadoException;
+import com.so.cloudjrb.service.TokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenFilterTest {
+
+    private TokenService tokenService;
+    private TokenFilter filtro;
+
+    @BeforeEach
+    void iniciar() {
+        tokenService = new TokenService();
+        ReflectionTestUtils.setField(tokenService, "segredo", "segredo-de-teste");
+        ReflectionTestUtils.setField(tokenService, "validadeMinutos", 30L);
+        ReflectionTestUtils.setField(tokenService, "rotacaoHoras", 24L);
+        ReflectionTestUtils.invokeMethod(tokenService, "iniciar");
+
+        filtro = new TokenFilter();
+        ReflectionTestUtils.setField(filtro, "tokenService", tokenService);
+        ReflectionTestUtils.setField(filtro, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void tokenValidoDoTitularPassaComOCpfNaRequisicao() throws Exception {
+        MockHttpServletRequest request = requisicao("GET", "/api/contas/111/extrato", tokenService.emitir("111").valor());
+        MockFilterChain chain = filtrar(request, new MockHttpServletResponse());
+
+        assertNotNull(chain.getRequest());
+        assertEquals("111", request.getAttribute(TokenFilter.ATRIBUTO_CPF));
+    }
+
+    @Test
+    void tokenInvalidoERecusadoComMesmoSemObrigatoriedade() throws Exception {
+        String token = tokenService.emitir("111").valor();
+        String adulterado = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = filtrar(requisicao("GET", "/api/contas/111", adulterado), response);
+
+        assertNull(chain.getRequest());
+        assertEquals(401, response.getStatus());
+        assertTrue(response.getContentAsString().contains("Sessão inválida"));
+    }
+
+    @Test
+    void tokenRevogadoERecusado() throws Exception {
+        String token = tokenService.emitir("111").valor();
+        tokenService.revogar("111");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtrar(requisicao("GET", "/api/contas/111", token), response);
+
+        assertEquals(401, response.getStatus());
+    }
+
+    @Test
+    void tokenDeOutraContaNoCaminhoERecusadoCom403() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = filtrar(requisicao("POST", "/api/contas/222/saque", tokenService.emitir("111").valor()), response);
+
+        assertNull(chain.getRequest());
+        assertEquals(403, response.getStatus());
+    }
+
+    @Test
+    void semTokenPassaOuERecusadoConformeObrigatoriedade() throws Exception {
+        MockFilterChain livre = filtrar(requisicao("GET", "/api/contas/111", null), new MockHttpServletResponse());
+        assertNotNull(livre.getRequest());
+
+        ReflectionTestUtils.setField(filtro, "obrigatorio", true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = filtrar(requisicao("GET", "/api/contas/111", null), response);
+        assertNull(chain.getRequest());
+        assertEquals(401, response.getStatus());
+    }
+
+    @Test
+    void loginEAberturaDeContaNaoPassamPeloFiltro() throws Exception {
+        ReflectionTestUtils.setField(filtro, "obrigatorio", true);
+        assertNotNull(filtrar(requisicao("POST", "/api/login", null), new MockHttpServletResponse()).getRequest());
+        assertNotNull(filtrar(requisicao("POST", "/api/contas", null), new MockHttpServletResponse()).getRequest());
+    }
+
+    @Test
+    void titularDoCorpoTemDeSerODaSessao() throws Exception {
+        MockHttpServletRequest request = requisicao("POST", "/api/contas/transferir", tokenService.emitir("111").valor());
+        filtrar(request, new MockHttpServletResponse());
+
+        TokenFilter.verificarTitular(request, "111");
+        assertThrows(AcessoNegadoException.class, () -> TokenFilter.verificarTitular(request, "222"));
+    }
+
+    private MockFilterChain filtrar(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filtro.doFilter(request, response, chain);
+        return chain;
+    }
+
+    private static MockHttpServletRequest requisicao(String metodo, String caminho, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest(metodo, caminho);
+        if (token != null) request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,235 @@
+package com.so.cloudjrb.ledger;
+
+import com.so.cloudjrb.model.TipoMovimentacao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerJournalTest {
+
+    @TempDir
+    Path pasta;
+
+    private LedgerJournal journal;
+    private final List<RegistroLedger> projetados = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void parar() throws InterruptedException {
+        if (journal != null) journal.parar();
+    }
+
+    @Test
+    void registrosGravadosVoltamNaLeituraComSeq() throws Exception {
+        Path arquivo = abrir(10);
+
+        gravar(deposito("111", 100, 100), deposito("111", 50, 150));
+        gravar(deposito("222", 70, 70));
+        journal.parar();
+
+        List<RegistroLedger> lidos = LedgerJournal.ler(arquivo);
+        assertEquals(3, lidos.size());
+        assertEquals(10L, lidos.get(0).seq());
+        assertEquals(12L, lidos.get(2).seq());
+        assertEquals("222", lidos.get(2).cpf());
+        assertEquals(150L, lidos.get(1).saldoApos());
+        assertEquals(3, projetados.size());
+    }
+
+    @Test
+    void tipoDaMovimentacaoContraparteEDetalheVoltamNaLeitura() throws Exception {
+        Path arquivo = abrir(0);
+        long instante = 1_700_000_000_000L;
+        gravar(new RegistroLedger(-1L, TipoRegistro.TRANSFERENCIA_DEBITO, instante, "111", "222", 40, 60,
+                        TipoMovimentacao.TRANSFERENCIA_ENVIADA, null, "chave-1"),
+                new RegistroLedger(-1L, TipoRegistro.COMPRA_CREDITO, instante, "111", null, 25, 60,
+                        TipoMovimentacao.COMPRA_CREDITO, "Loja X", null));
+        journal.parar();
+
+        List<RegistroLedger> lidos = LedgerJournal.ler(arquivo);
+        assertEquals(TipoMovimentacao.TRANSFERENCIA_ENVIADA, lidos.get(0).movimento());
+        assertEquals("222", lidos.get(0).contraparte());
+        assertNull(lidos.get(0).detalhe());
+        assertEquals(TipoMovimentacao.COMPRA_CREDITO, lidos.get(1).movimento());
+        assertEquals("Loja X", lidos.get(1).detalhe());
+        assertEquals(instante, lidos.get(1).instante());
+    }
+
+    @Test
+    void registroNoFormatoAnteriorEDecompostoNaLeitura() throws Exception {
+        Path arquivo = pasta.resolve("journal-antigo.log");
+        ByteArrayOutputStream conteudo = new ByteArrayOutputStream();
+        conteudo.write(registroAntigo(0, TipoRegistro.DEBITO, "", "Pagamento de boleto 123 (Venc.: 10/10/2026)"));
+        conteudo.write(registroAntigo(1, TipoRegistro.TRANSFERENCIA_DEBITO, "222", "Transferência enviada para CPF 222"));
+        conteudo.write(registroAntigo(2, TipoRegistro.COMPRA_CREDITO, "", "Depósito"));
+        Files.write(arquivo, conteudo.toByteArray());
+
+        List<RegistroLedger> lidos = LedgerJournal.ler(arquivo);
+        assertEquals(3, lidos.size());
+        assertEquals(TipoMovimentacao.PAGAMENTO_BOLETO, lidos.get(0).movimento());
+        assertEquals("123 (Venc.: 10/10/2026)", lidos.get(0).detalhe());
+        assertEquals(TipoMovimentacao.TRANSFERENCIA_ENVIADA, lidos.get(1).movimento());
+        assertEquals("222", lidos.get(1).contraparte());
+        assertNull(lidos.get(1).detalhe());
+        // Compra no crédito: o texto já era a descrição da compra, não passa por decompor
+        assertEquals(TipoMovimentacao.COMPRA_CREDITO, lidos.get(2).movimento());
+        assertEquals("Depósito", lidos.get(2).detalhe());
+    }
+
+    @Test
+    void registroIncompletoNoFimEDescartado() throws Exception {
+        Path arquivo = abrir(0);
+        gravar(deposito("111", 100, 100));
+        gravar(deposito("111", 20, 120));
+        journal.parar();
+
+        // Crash no meio da escrita: só parte do último registro chegou ao disco
+        long tamanho = Files.size(arquivo);
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            canal.truncate(tamanho - 5);
+        }
+
+        List<RegistroLedger> lidos = LedgerJournal.ler(arquivo);
+        assertEquals(1, lidos.size());
+        assertEquals(100L, lidos.get(0).saldoApos());
+    }
+
+    @Test
+    void falhaNaGravacaoTruncaOArquivoEParaOJournal() throws Exception {
+        Path arquivo = abrir(0);
+        gravar(deposito("111", 100, 100));
+        long tamanhoConfirmado = Files.size(arquivo);
+
+        // O próximo write grava metade dos bytes e falha
+        FileChannel real = (FileChannel) ReflectionTestUtils.getField(journal, "canal");
+        CanalQueFalha canal = new CanalQueFalha(real);
+        ReflectionTestUtils.setField(journal, "canal", canal);
+        canal.falharNoProximoWrite = true;
+
+        CompletionException erro = assertThrows(CompletionException.class,
+                () -> gravar(deposito("111", 30, 130), deposito("111", 40, 170)));
+        assertTrue(erro.getCause() instanceof IOException);
+
+        assertFalse(journal.disponivel());
+        assertEquals(tamanhoConfirmado, Files.size(arquivo), "bytes do grupo que falhou ficaram no arquivo");
+        assertEquals(1L, ReflectionTestUtils.getField(journal, "proximoSeq"));
+
+        // Nada é gravado depois da falha, nem chega à projeção
+        assertThrows(CompletionException.class, () -> gravar(deposito("111", 5, 105)));
+        assertEquals(tamanhoConfirmado, Files.size(arquivo));
+        assertEquals(1, projetados.size());
+
+        journal.parar();
+        List<RegistroLedger> lidos = LedgerJournal.ler(arquivo);
+        assertEquals(1, lidos.size());
+        assertEquals(0L, lidos.get(0).seq());
+    }
+
+    private Path abrir(long proximoSeq) throws IOException {
+        Path arquivo = pasta.resolve("journal.log");
+        journal = new LedgerJournal(arquivo, 256, projetados::addAll, new SimpleMeterRegistry());
+        journal.abrir(proximoSeq);
+        return arquivo;
+    }
+
+    private void gravar(RegistroLedger... registros) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        journal.gravar(List.of(registros), future);
+        future.join();
+    }
+
+    private static RegistroLedger deposito(String cpf, long valor, long saldoApos) {
+        return new RegistroLedger(-1L, TipoRegistro.DEPOSITO, System.currentTimeMillis(), cpf, null,
+                valor, saldoApos, TipoMovimentacao.DEPOSITO, null, null);
+    }
+
+    // Registro no formato anterior ao código do tipo: descrição pronta e nada depois da chave
+    private static byte[] registroAntigo(long seq, TipoRegistro tipo, String contraparte, String descricao)
+            throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeLong(seq);
+        out.writeByte(tipo.codigo());
+        out.writeLong(1_700_000_000_000L);
+        out.writeUTF("111");
+        out.writeUTF(contraparte);
+        out.writeLong(100);
+        out.writeLong(0);
+        out.writeUTF(descricao);
+        out.writeUTF("");
+        byte[] dados = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(dados);
+        ByteArrayOutputStream registro = new ByteArrayOutputStream();
+        DataOutputStream cabecalho = new DataOutputStream(registro);
+        cabecalho.writeInt(dados.length);
+        cabecalho.writeInt((int) crc.getValue());
+        cabecalho.write(dados);
+        return registro.toByteArray();
+    }
+
+    /** Repassa tudo ao canal real; com 'falharNoProximoWrite', grava só metade e lança IOException. */
+    private static final class CanalQueFalha extends FileChannel {
+
+        private final FileChannel real;
+        volatile boolean falharNoProximoWrite;
+
+        CanalQueFalha(FileChannel real) {
+            this.real = real;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!falharNoProximoWrite) return real.write(src);
+            falharNoProximoWrite = false;
+            ByteBuffer metade = src.duplicate();
+            metade.limit(src.position() + src.remaining() / 2);
+            real.write(metade);
+            real.force(false);
+            throw new IOException("Disco cheio");
+        }
+
+        @Override public int read(ByteBuffer dst) throws IOException { return real.read(dst); }
+        @Override public long read(ByteBuffer[] dsts, int offset, int length) throws IOException { return real.read(dsts, offset, length); }
+        @Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException { return real.write(srcs, offset, length); }
+        @Override public long position() throws IOException { return real.position(); }
+        @Override public FileChannel position(long newPosition) throws IOException { real.position(newPosition); return this; }
+        @Override public long size() throws IOException { return real.size(); }
+        @Override public FileChannel truncate(long size) throws IOException { real.truncate(size); return this; }
+        @Override public void force(boolean metaData) throws IOException { real.force(metaData); }
+        @Override public long transferTo(long position, long count, WritableByteChannel target) throws IOException { return real.transferTo(position, count, target); }
+        @Override public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException { return real.transferFrom(src, position, count); }
+        @Override public int read(ByteBuffer dst, long position) throws IOException { return real.read(dst, position); }
+        @Override public int write(ByteBuffer src, long position) throws IOException { return real.write(src, position); }
+        @Override public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException { return real.map(mode, position, size); }
+        @Override public FileLock lock(long position, long size, boolean shared) throws IOException { return real.lock(position, size, shared); }
+        @Override public FileLock tryLock(long position, long size, boolean shared) throws IOException { return real.tryLock(position, size, shared); }
+        @Override protected void implCloseChannel() throws IOException { real.close(); }
+    }
+}
@@ -0,0 +1,129 @@
+package com.so.cloudjrb.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmissorNumerosCartaoTest {
+
+    @TempDir
+    Path pasta;
+
+    private SQLiteDataSource banco;
+    private JdbcTemplate jdbc;
+    private SimpleMeterRegistry meterRegistry;
+    private EmissorNumerosCartao emissor;
+
+    @BeforeEach
+    void iniciar() {
+        banco = new SQLiteDataSource();
+        banco.setUrl("jdbc:sqlite:" + pasta.resolve("banco.sqlite"));
+        jdbc = new JdbcTemplate(banco);
+        jdbc.execute("create table cartoes_credito (numero text unique)");
+        jdbc.execute("create table cartoes_debito (numero text unique)");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void parar() throws InterruptedException {
+        if (emissor != null) emissor.parar();
+    }
+
+    @Test
+    void numerosTemDigitoDeLuhnValidoEBinDaFaixa() {
+        emissor = novo(List.of("222100-272099"), List.of("438935"), 50);
+        for (int i = 0; i < 200; i++) {
+            String credito = emissor.emitir(EmissorNumerosCartao.Tipo.CREDITO);
+            assertTrue(credito.matches("\\d{4} \\d{4} \\d{4} \\d{4}"), credito);
+            assertTrue(luhnValido(credito), credito);
+            int bin = Integer.parseInt(credito.replace(" ", "").substring(0, 6));
+            assertTrue(bin >= 222100 && bin <= 272099, credito);
+
+            String debito = emissor.emitir(EmissorNumerosCartao.Tipo.DEBITO);
+            assertTrue(luhnValido(debito), debito);
+            assertTrue(debito.startsWith("4389 35"), debito);
+        }
+    }
+
+    @Test
+    void binsInvalidosSaoRecusadosNaSubida() {
+        for (String bin : List.of("272099-222100", "41111", "411111-4111111", "011111", "41a111")) {
+            EmissorNumerosCartao invalido = configurado(List.of(bin), List.of("438935"), 50);
+            IllegalStateException erro = assertThrows(IllegalStateException.class, invalido::iniciar, bin);
+            assertTrue(erro.getMessage().contains(bin), erro.getMessage());
+        }
+    }
+
+    @Test
+    void filaEGeracaoNaHoraNaoRepetemNumeros() throws InterruptedException {
+        emissor = novo(List.of("411111"), List.of("438935"), 30);
+        // Espera a fila encher e para a thread: as 30 primeiras saem da fila, o resto é gerado na hora
+        long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (disponiveis() < 30 && System.nanoTime() < prazo) Thread.sleep(10);
+        assertEquals(30.0, disponiveis());
+        emissor.parar();
+
+        Set<String> emitidos = new HashSet<>();
+        for (int i = 0; i < 60; i++) {
+            String numero = emissor.emitir(EmissorNumerosCartao.Tipo.CREDITO);
+            assertTrue(emitidos.add(numero), "repetido: " + numero);
+            // Como o cartão criado com ele: o próximo número é conferido contra este
+            jdbc.update("insert into cartoes_credito (numero) values (?)", numero);
+        }
+        assertEquals(30.0, meterRegistry.counter("cartoes.numeros.pool.vazio", "tipo", "credito").count());
+    }
+
+    private EmissorNumerosCartao novo(List<String> binsCredito, List<String> binsDebito, int capacidade) {
+        EmissorNumerosCartao e = configurado(binsCredito, binsDebito, capacidade);
+        e.iniciar();
+        return e;
+    }
+
+    private EmissorNumerosCartao configurado(List<String> binsCredito, List<String> binsDebito, int capacidade) {
+        EmissorNumerosCartao e = new EmissorNumerosCartao();
+        ReflectionTestUtils.setField(e, "jdbcTemplate", new NamedParameterJdbcTemplate(banco));
+        ReflectionTestUtils.setField(e, "transactionManager", new DataSourceTransactionManager(banco));
+        ReflectionTestUtils.setField(e, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(e, "binsCredito", binsCredito);
+        ReflectionTestUtils.setField(e, "binsDebito", binsDebito);
+        ReflectionTestUtils.setField(e, "capacidade", capacidade);
+        ReflectionTestUtils.setField(e, "minimo", capacidade);
+        return e;
+    }
+
+    private double disponiveis() {
+        return meterRegistry.get("cartoes.numeros.disponiveis").tag("tipo", "credito").gauge().value();
+    }
+
+    // Conferência de Luhn independente da usada na geração
+    private static boolean luhnValido(String numero) {
+        String digitos = numero.replace(" ", "");
+        int soma = 0;
+        for (int i = 0; i < digitos.length(); i++) {
+            int d = digitos.charAt(digitos.length() - 1 - i) - '0';
+            if (i % 2 == 1) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            soma += d;
+        }
+        return soma % 10 == 0;
+    }
+}
@@ -0,0 +1,280 @@
+package com.so.cloudjrb.service;
+
+import com.so.cloudjrb.config.TransacaoConfig;
+import com.so.cloudjrb.exception.DomainException;
+import com.so.cloudjrb.model.BloqueioLogin;
+import com.so.cloudjrb.model.TransferenciaProcessada;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EscritorAgrupado sobre um SQLite real, com o EntityManager e o gerenciador de
+ * transações da aplicação (TransacaoConfig). As operações usam um
+ * TransactionTemplate (como o @Transactional delas) que participa do grupo; as
+ * com JdbcTemplate usam a mesma conexão da transação do JPA.
+ *
+ * Uma conexão só, como a de escrita da aplicação.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:target/escritor-agrupado-test.sqlite",
+        "spring.datasource.hikari.maximum-pool-size=1",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TransacaoConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // O escritor abre as transações
+class EscritorAgrupadoTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate participante;
+    private SimpleMeterRegistry meterRegistry;
+    private EscritorAgrupado escritor;
+
+    // Como o TransferenciaDedupStore: ids lembrados em memória após o commit
+    private final Set<String> lembradas = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void iniciar() {
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("drop table if exists conta");
+        jdbc.execute("create table conta (cpf text primary key, saldo integer not null)");
+        jdbc.update("insert into conta values ('111', 1000), ('222', 0)");
+        jdbc.update("delete from transferencias_processadas");
+        jdbc.update("delete from bloqueios_login");
+
+        participante = new TransactionTemplate(transactionManager);
+        meterRegistry = new SimpleMeterRegistry();
+
+        escritor = new EscritorAgrupado();
+        ReflectionTestUtils.setField(escritor, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(escritor, "entityManager", entityManager);
+        ReflectionTestUtils.setField(escritor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(escritor, "maxOperacoes", 64);
+        ReflectionTestUtils.setField(escritor, "maxEsperaMs", 200L);
+        ReflectionTestUtils.setField(escritor, "capacidadeFila", 100);
+        ReflectionTestUtils.setField(escritor, "esperaMs", 1000L);
+        ReflectionTestUtils.setField(escritor, "resultadoMs", 5000L);
+        escritor.iniciar();
+    }
+
+    @AfterEach
+    void parar() throws InterruptedException {
+        escritor.parar();
+    }
+
+    @Test
+    void transferenciaDesfeitaNoGrupoEAplicadaNaNovaTentativa() throws Throwable {
+        // Duas no mesmo grupo; a segunda falha depois de registrar o id (ex: erro no flush)
+        CompletableFuture<Void> ok = escritor.submeter(() -> transferir("t1", 100, false));
+        CompletableFuture<Void> falha = escritor.submeter(() -> transferir("t2", 200, true));
+
+        ok.get(5, TimeUnit.SECONDS);
+        ExecutionException erro = assertThrows(ExecutionException.class, () -> falha.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DataIntegrityViolationException.class, erro.getCause());
+
+        assertEquals(Set.of("t1"), lembradas, "afterCommit da operação desfeita disparou");
+        assertEquals(900L, saldo("111"));
+
+        // Nova tentativa (reentrega da fila): não pode ser tomada por já processada
+        escritor.executar(() -> transferir("t2", 200, false));
+        assertEquals(Set.of("t1", "t2"), lembradas);
+        assertEquals(700L, saldo("111"));
+        assertEquals(300L, saldo("222"));
+        assertEquals(2, jdbc.queryForObject("select count(*) from transferencias_processadas", Integer.class));
+    }
+
+    @Test
+    void falhaDeParticipanteNaoDerrubaAsVizinhas() throws Throwable {
+        CompletableFuture<Void> ok = escritor.submeter(() -> transferir("t1", 100, false));
+        CompletableFuture<Void> semSaldo = escritor.submeter(() -> transferir("t2", 5000, false));
+        CompletableFuture<Void> ok2 = escritor.submeter(() -> transferir("t3", 50, false));
+
+        ok.get(5, TimeUnit.SECONDS);
+        ok2.get(5, TimeUnit.SECONDS);
+        ExecutionException erro = assertThrows(ExecutionException.class, () -> semSaldo.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DomainException.class, erro.getCause());
+        assertEquals(850L, saldo("111"));
+        assertEquals(Set.of("t1", "t3"), lembradas);
+    }
+
+    @Test
+    void participanteQueFalhaEEngolidoDesfazAOperacao() {
+        CompletableFuture<Void> ok = escritor.submeter(() -> transferir("t1", 100, false));
+        CompletableFuture<Object> engoliu = escritor.submeter(() -> {
+            jdbc.update("update conta set saldo = saldo + 1 where cpf = '222'");
+            try {
+                participante.executeWithoutResult(s -> { throw new DomainException("Recusada."); });
+            } catch (DomainException ignorada) {
+                // Segue como se nada tivesse acontecido
+            }
+            return null;
+        });
+
+        ok.join();
+        ExecutionException erro = assertThrows(ExecutionException.class, () -> engoliu.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(org.springframework.transaction.UnexpectedRollbackException.class, erro.getCause());
+        assertEquals(100L, saldo("222"));
+    }
+
+    @Test
+    void commitDoGrupoQueFalhaRefazCadaOperacaoComEfeitosUmaVez() throws Throwable {
+        AtomicBoolean primeiroCommit = new AtomicBoolean(true);
+        AtomicInteger efeitos = new AtomicInteger();
+        EscritorAgrupado.Operacao<Void> operacao = () -> participante.execute(s -> {
+            jdbc.update("update conta set saldo = saldo - 10 where cpf = '111'");
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (primeiroCommit.getAndSet(false)) throw new IllegalStateException("Disco cheio");
+                }
+
+                @Override
+                public void afterCommit() {
+                    efeitos.incrementAndGet();
+                }
+            });
+            return null;
+        });
+
+        List<CompletableFuture<Void>> futuros = List.of(escritor.submeter(operacao), escritor.submeter(operacao));
+        for (CompletableFuture<Void> f : futuros) f.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, efeitos.get());
+        assertEquals(980L, saldo("111"));
+    }
+
+    @Test
+    void quemDesisteAntesDoGrupoNaoTemAOperacaoAplicada() throws Throwable {
+        ReflectionTestUtils.setField(escritor, "resultadoMs", 100L);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Object> ocupando = escritor.submeter(() -> {
+            liberar.await();
+            return null;
+        });
+        Thread.sleep(300); // O grupo da primeira já começou
+
+        DomainException erro = assertThrows(DomainException.class,
+                () -> escritor.executar(() -> transferir("t1", 100, false)));
+        assertEquals("Sistema ocupado, tente novamente.", erro.getMessage());
+        liberar.countDown();
+        ocupando.get(5, TimeUnit.SECONDS);
+        ReflectionTestUtils.setField(escritor, "resultadoMs", 5000L);
+
+        escritor.executar(() -> null); // O próximo grupo já passou pela desistida
+        assertEquals(1000L, saldo("111"));
+        assertFalse(lembradas.contains("t1"));
+        assertTrue(escritor.submeter(() -> 1).get(5, TimeUnit.SECONDS) == 1);
+    }
+
+    @Test
+    void flushQueFalhaNoSavepointNaoLevaAsVizinhasNoCommitDoGrupo() throws Throwable {
+        jdbc.update("insert into transferencias_processadas (id, processada_em) values ('t0', 0)");
+        jdbc.update("insert into bloqueios_login (chave, bloqueado_ate) values ('ip:1', 1)");
+
+        // Segura o escritor para as três seguintes irem juntas no próximo grupo
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Object> ocupando = escritor.submeter(() -> {
+            liberar.await();
+            return null;
+        });
+        Thread.sleep(300);
+
+        CompletableFuture<Void> antes = escritor.submeter(() -> registrar("t1"));
+        // Altera uma entidade e insere um id repetido: o INSERT vai antes no flush e falha,
+        // o UPDATE fica pendente no contexto de persistência
+        CompletableFuture<Void> repetida = escritor.submeter(() -> participante.execute(s -> {
+            entityManager.merge(new BloqueioLogin("ip:1", 999));
+            entityManager.persist(new TransferenciaProcessada("t0", 0));
+            return null;
+        }));
+        CompletableFuture<Void> depois = escritor.submeter(() -> registrar("t2"));
+        liberar.countDown();
+
+        ocupando.get(5, TimeUnit.SECONDS);
+        antes.get(5, TimeUnit.SECONDS);
+        depois.get(5, TimeUnit.SECONDS);
+        ExecutionException erro = assertThrows(ExecutionException.class, () -> repetida.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DataIntegrityViolationException.class, erro.getCause());
+
+        assertEquals(3.0, meterRegistry.summary("escrita.grupo.operacoes").max(), "as três num grupo só");
+        assertEquals(0.0, meterRegistry.counter("escrita.grupo.refeitos").count(), "o commit do grupo falhou");
+        assertEquals(List.of("t0", "t1", "t2"),
+                jdbc.queryForList("select id from transferencias_processadas order by id", String.class));
+        // Sem o clear() o UPDATE da operação desfeita iria no flush do commit do grupo
+        assertEquals(1L, jdbc.queryForObject("select bloqueado_ate from bloqueios_login", Long.class));
+    }
+
+    // Como BankService.transferir: dedup, débito/crédito, registra o id
+    private Void transferir(String id, long valor, boolean falharNoFim) {
+        return participante.execute(s -> {
+            if (lembradas.contains(id)) return null;
+            Long saldo = jdbc.queryForObject("select saldo from conta where cpf = '111'", Long.class);
+            if (saldo < valor) throw new DomainException("Saldo insuficiente.");
+            jdbc.update("update conta set saldo = saldo - ? where cpf = '111'", valor);
+            jdbc.update("update conta set saldo = saldo + ? where cpf = '222'", valor);
+            jdbc.update("insert into transferencias_processadas (id, processada_em) values (?, 0)", id);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    lembradas.add(id);
+                }
+            });
+            if (falharNoFim) throw new DataIntegrityViolationException("Falha no flush");
+            return null;
+        });
+    }
+
+    private Void registrar(String id) {
+        return participante.execute(s -> {
+            entityManager.persist(new TransferenciaProcessada(id, 0));
+            return null;
+        });
+    }
+
+    private long saldo(String cpf) {
+        return jdbc.queryForObject("select saldo from conta where cpf = ?", Long.class, cpf);
+    }
+}
@@ -0,0 +1,171 @@
+package com.so.cloudjrb.service;
+
+import com.so.cloudjrb.exception.LoginBloqueadoException;
+import com.so.cloudjrb.model.BloqueioLogin;
+import com.so.cloudjrb.repository.BloqueioLoginRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class LimitadorLoginTest {
+
+    private static final String IP = "10.0.0.1";
+
+    @Mock
+    private BloqueioLoginRepository repository;
+
+    private TokenService tokenService;
+
+    @BeforeEach
+    void iniciar() {
+        MockitoAnnotations.openMocks(this);
+        tokenService = new TokenService();
+        ReflectionTestUtils.setField(tokenService, "segredo", "segredo-de-teste");
+        ReflectionTestUtils.setField(tokenService, "validadeMinutos", 30L);
+        ReflectionTestUtils.setField(tokenService, "rotacaoHoras", 24L);
+        tokenService.iniciar();
+    }
+
+    @Test
+    void cpfBloqueadoAposMaxFalhasERecusadoSemIrAoBanco() {
+        LimitadorLogin limitador = novo();
+        for (int i = 0; i < 4; i++) limitador.registrarFalha("111", IP);
+        assertDoesNotThrow(() -> limitador.verificar("111", IP));
+
+        limitador.registrarFalha("111", IP);
+        assertEquals("cpf:111", gravado().getChave());
+
+        clearInvocations(repository);
+        LoginBloqueadoException erro = assertThrows(LoginBloqueadoException.class, () -> limitador.verificar("111", IP));
+        assertTrue(erro.getSegundosRestantes() > 0 && erro.getSegundosRestantes() <= 300);
+        verifyNoInteractions(repository);
+        // Outro CPF do mesmo IP ainda passa (o IP tem limite maior)
+        assertDoesNotThrow(() -> limitador.verificar("222", IP));
+    }
+
+    @Test
+    void bloqueioDoCpfRevogaAsSessoesAbertas() {
+        LimitadorLogin limitador = novo();
+        String token = tokenService.emitir("111").valor();
+        assertNotNull(tokenService.validar(token));
+
+        for (int i = 0; i < 5; i++) limitador.registrarFalha("111", IP);
+        assertNull(tokenService.validar(token));
+    }
+
+    @Test
+    void ipComFalhasDemaisBloqueiaQualquerCpf() {
+        LimitadorLogin limitador = novo();
+        for (int i = 0; i < 20; i++) limitador.registrarFalha("cpf" + i, IP);
+
+        assertThrows(LoginBloqueadoException.class, () -> limitador.verificar("999", IP));
+        assertDoesNotThrow(() -> limitador.verificar("999", "10.0.0.2"));
+    }
+
+    @Test
+    void loginCorretoZeraAsFalhasDoCpf() {
+        LimitadorLogin limitador = novo();
+        for (int i = 0; i < 4; i++) limitador.registrarFalha("111", IP);
+        limitador.registrarSucesso("111");
+        for (int i = 0; i < 4; i++) limitador.registrarFalha("111", IP);
+
+        assertDoesNotThrow(() -> limitador.verificar("111", IP));
+    }
+
+    @Test
+    void bloqueioGravadoVoltaNaSubida() {
+        LimitadorLogin antes = novo();
+        for (int i = 0; i < 5; i++) antes.registrarFalha("111", IP);
+
+        // Restart: memória nova, mesma tabela
+        BloqueioLogin bloqueio = gravado();
+        when(repository.findByBloqueadoAteGreaterThan(anyLong())).thenReturn(List.of(bloqueio));
+        LimitadorLogin depois = novo();
+        assertThrows(LoginBloqueadoException.class, () -> depois.verificar("111", IP));
+    }
+
+    @Test
+    void bloqueioValeEmMemoriaMesmoSemConseguirGravar() {
+        when(repository.save(any())).thenThrow(new IllegalStateException("Banco indisponível"));
+        LimitadorLogin limitador = novo();
+        for (int i = 0; i < 5; i++) limitador.registrarFalha("111", IP);
+
+        assertThrows(LoginBloqueadoException.class, () -> limitador.verificar("111", IP));
+        verify(repository).save(any());
+    }
+
+    @Test
+    void chavesNovasAlemDoTetoDescartamAsSemBloqueio() {
+        LimitadorLogin limitador = novo();
+        ReflectionTestUtils.setField(limitador, "maxChaves", 10);
+        for (int i = 0; i < 5; i++) limitador.registrarFalha("111", null);
+
+        // Uma falha por CPF inventado, cada uma uma chave nova
+        for (int i = 0; i < 1000; i++) limitador.registrarFalha("cpf" + i, null);
+
+        assertTrue(chaves(limitador).size() <= 10);
+        assertThrows(LoginBloqueadoException.class, () -> limitador.verificar("111", IP), "bloqueio descartado");
+    }
+
+    @Test
+    void tetoSoComBloqueiosNaoContaChavesNovas() {
+        LimitadorLogin limitador = novo();
+        ReflectionTestUtils.setField(limitador, "maxChaves", 2);
+        for (int i = 0; i < 5; i++) limitador.registrarFalha("111", null);
+        for (int i = 0; i < 5; i++) limitador.registrarFalha("222", null);
+
+        clearInvocations(repository);
+        for (int i = 0; i < 5; i++) limitador.registrarFalha("333", null);
+
+        assertEquals(2, chaves(limitador).size());
+        assertDoesNotThrow(() -> limitador.verificar("333", IP));
+        verify(repository, never()).save(any());
+    }
+
+    private LimitadorLogin novo() {
+        LimitadorLogin limitador = new LimitadorLogin();
+        ReflectionTestUtils.setField(limitador, "repository", repository);
+        ReflectionTestUtils.setField(limitador, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(limitador, "tokenService", tokenService);
+        ReflectionTestUtils.setField(limitador, "janelaSegundos", 300L);
+        ReflectionTestUtils.setField(limitador, "maxFalhasCpf", 5);
+        ReflectionTestUtils.setField(limitador, "maxFalhasIp", 20);
+        ReflectionTestUtils.setField(limitador, "bloqueioSegundos", 300L);
+        ReflectionTestUtils.setField(limitador, "maxChaves", 100000);
+        limitador.iniciar();
+        return limitador;
+    }
+
+    // Último bloqueio gravado no banco
+    private BloqueioLogin gravado() {
+        ArgumentCaptor<BloqueioLogin> bloqueio = ArgumentCaptor.forClass(BloqueioLogin.class);
+        verify(repository).save(bloqueio.capture());
+        return bloqueio.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> chaves(LimitadorLogin limitador) {
+        return (Map<String, ?>) ReflectionTestUtils.getField(limitador, "chaves");
+    }
+}
@@ -0,0 +1,74 @@
+package com.so.cloudjrb.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class NumberGeneratorTest {
+
+    @TempDir
+    Path pasta;
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate transacao;
+    private ReservaSequencias reserva;
+
+    @BeforeEach
+    void iniciar() throws Exception {
+        SingleConnectionDataSource banco = new SingleConnectionDataSource("jdbc:sqlite:" + pasta.resolve("banco.sqlite"), true);
+        jdbc = new JdbcTemplate(banco);
+        jdbc.execute("create table accounts (cpf text primary key, numero integer)");
+        transacao = new TransactionTemplate(new DataSourceTransactionManager(banco));
+
+        SQLiteDataSource sequencias = new SQLiteDataSource();
+        sequencias.setUrl("jdbc:sqlite:" + pasta.resolve("banco.sqlite-sequencias"));
+        reserva = new ReservaSequencias();
+        ReflectionTestUtils.setField(reserva, "dataSource", sequencias);
+        reserva.iniciar();
+    }
+
+    @Test
+    void numeroNaoSeRepeteAposRollbackAteSavepoint() {
+        NumberGenerator gerador = novo();
+        int[] numeros = new int[2];
+        transacao.executeWithoutResult(status -> {
+            // Como uma operação desfeita dentro de um grupo do EscritorAgrupado
+            Object savepoint = status.createSavepoint();
+            numeros[0] = gerador.gerarNumeroConta();
+            status.rollbackToSavepoint(savepoint);
+            numeros[1] = gerador.gerarNumeroConta();
+        });
+        assertEquals(1000000 + NumberGenerator.digitoLuhn(100000), numeros[0]);
+        assertNotEquals(numeros[0], numeros[1]);
+
+        // Outra instância (ou um restart) começa depois do bloco já reservado
+        int deOutra = novo().gerarNumeroConta();
+        assertEquals(100100L, deOutra / 10);
+    }
+
+    @Test
+    void primeiroBlocoComecaDepoisDoMaiorNumeroGravado() {
+        jdbc.update("insert into accounts values ('111', ?)", 5000004);
+        assertEquals(500001L, novo().gerarNumeroConta() / 10);
+    }
+
+    private NumberGenerator novo() {
+        NumberGenerator gerador = new NumberGenerator();
+        ReflectionTestUtils.setField(gerador, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(gerador, "reservaSequencias", reserva);
+        ReflectionTestUtils.setField(gerador, "inicio", 100000L);
+        ReflectionTestUtils.setField(gerador, "bloco", 100);
+        return gerador;
+    }
+}
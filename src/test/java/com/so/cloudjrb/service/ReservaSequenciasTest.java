@@ -0,0 +1,99 @@
+package com.so.cloudjrb.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReservaSequenciasTest {
+
+    @TempDir
+    Path pasta;
+
+    private ReservaSequencias reserva;
+
+    @BeforeEach
+    void iniciar() throws Exception {
+        reserva = nova("banco.sqlite-sequencias");
+    }
+
+    @Test
+    void blocosSeguidosNaoSeSobrepoem() {
+        assertEquals(101L, reserva.reservar("movimentacoes", 1, 100));
+        assertEquals(201L, reserva.reservar("movimentacoes", 1, 100));
+        // Outra sequência começa do próprio piso
+        assertEquals(100_100L, reserva.reservar("contas.numero", 100_000, 100));
+    }
+
+    @Test
+    void reservaNuncaComecaAbaixoDoPiso() {
+        reserva.reservar("faturas", 1, 100);
+        // Ids gravados além da sequência (ex: arquivo de sequências perdido)
+        assertEquals(5100L, reserva.reservar("faturas", 5000, 100));
+        assertEquals(5200L, reserva.reservar("faturas", 1, 100));
+    }
+
+    @Test
+    void reservaSobreviveAoRollbackDaTransacaoDeNegocio() throws Exception {
+        SQLiteConfig pragmas = new SQLiteConfig();
+        pragmas.setBusyTimeout(200);
+        SQLiteDataSource banco = new SQLiteDataSource(pragmas);
+        banco.setUrl("jdbc:sqlite:" + pasta.resolve("banco.sqlite"));
+        try (Connection con = banco.getConnection(); Statement st = con.createStatement()) {
+            st.executeUpdate("create table faturas (id integer primary key)");
+            con.setAutoCommit(false);
+            // A transação de negócio segura o lock de escrita do arquivo principal
+            st.executeUpdate("insert into faturas values (1)");
+            long fim = reserva.reservar("faturas", 2, 100);
+            con.rollback();
+
+            assertEquals(102L, fim);
+            assertEquals(202L, reserva.reservar("faturas", 1, 100), "bloco desfeito junto com o rollback");
+        }
+    }
+
+    @Test
+    void instanciasConcorrentesRecebemBlocosDisjuntos() throws Exception {
+        ReservaSequencias outra = nova("banco.sqlite-sequencias");
+        Set<Long> fins = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ReservaSequencias r = i % 2 == 0 ? reserva : outra;
+            tarefas.add(pool.submit(() -> assertTrue(fins.add(r.reservar("movimentacoes", 1, 10)))));
+        }
+        for (Future<?> t : tarefas) t.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertEquals(200, fins.size());
+        assertEquals(2001L, reserva.reservar("movimentacoes", 1, 0));
+    }
+
+    private ReservaSequencias nova(String arquivo) throws Exception {
+        SQLiteConfig pragmas = new SQLiteConfig();
+        pragmas.setBusyTimeout(10_000);
+        SQLiteDataSource dataSource = new SQLiteDataSource(pragmas);
+        dataSource.setUrl("jdbc:sqlite:" + pasta.resolve(arquivo));
+        ReservaSequencias r = new ReservaSequencias();
+        ReflectionTestUtils.setField(r, "dataSource", dataSource);
+        r.iniciar();
+        return r;
+    }
+}